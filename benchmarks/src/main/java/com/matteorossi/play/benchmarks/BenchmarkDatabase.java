@@ -0,0 +1,85 @@
+package com.matteorossi.play.benchmarks;
+
+import com.matteorossi.play.database.ClaseDLLDAO;
+import com.matteorossi.play.database.DatabaseConnection;
+import com.matteorossi.play.database.DatasetGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+/**
+ * Database SQLite generato per una prova di benchmark.
+ * Lo schema è quello dell'applicazione ({@link ClaseDLLDAO#generateDB()}, migrazioni comprese),
+ * i dati vengono da {@link DatasetGenerator}: casuali, sbilanciati e ripetibili a parità di parametri.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Dimensioni configurabili da riga di comando, ad esempio {@code -p users=10000 -p answers=1000000}</li>
+ *   <li>Sbilanciamento di Zipf configurabile con {@code -p skew=0} (uniforme) o valori maggiori</li>
+ *   <li>Tutti gli utenti hanno la password {@link #PASSWORD}, così {@code loginUser} va a buon fine</li>
+ *   <li>Il file viene creato in {@code play.bench.dir} (default {@code target/bench-data}) e cancellato alla fine</li>
+ * </ul>
+ *
+ * @see DataAccessBenchmark Benchmark che usano questo stato
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    static final String PASSWORD = "benchmark";
+
+    static final int LANGUAGES = 5;
+    static final int THEMES = 6;
+    static final int DIFFICULTIES = 4;
+
+    @Param("1000")
+    public int users;
+
+    @Param("5000")
+    public int questions;
+
+    @Param("100000")
+    public int answers;
+
+    @Param("1.0")
+    public double skew;
+
+    @Param("42")
+    public long seed;
+
+    private Path databaseFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        Path directory = Paths.get(System.getProperty("play.bench.dir", "target/bench-data"));
+        Files.createDirectories(directory);
+        // Un file vuoto evita la copia del database incluso nel JAR
+        databaseFile = Files.createTempFile(directory, "play-bench-", ".db");
+        System.setProperty("play.db.path", databaseFile.toString());
+
+        DatabaseConnection.init();
+        ClaseDLLDAO.generateDB();
+        DatasetGenerator.generate(new DatasetGenerator.Spec(users, questions, answers,
+                LANGUAGES, THEMES, DIFFICULTIES, skew, seed, PASSWORD), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        DatabaseConnection.shutdown();
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            Files.deleteIfExists(Paths.get(databaseFile + suffix));
+        }
+    }
+
+    static String username(int userId) {
+        return DatasetGenerator.username(userId);
+    }
+}
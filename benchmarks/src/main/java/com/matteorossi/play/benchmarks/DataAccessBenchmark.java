@@ -0,0 +1,148 @@
+package com.matteorossi.play.benchmarks;
+
+import com.matteorossi.play.database.AuthService;
+import com.matteorossi.play.database.QueryDAO;
+import com.matteorossi.play.database.QuestionBucketCache;
+import com.matteorossi.play.models.PlayerRankingModel;
+import com.matteorossi.play.models.QuestionModel;
+import com.matteorossi.play.models.SessionPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark dei metodi di {@link QueryDAO} usati nei percorsi più frequenti dell'applicazione,
+ * eseguiti su un {@link BenchmarkDatabase} generato.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Tempo medio per chiamata in microsecondi</li>
+ *   <li>Utenti, domande e gruppi scelti a caso per ogni chiamata, con un generatore per thread</li>
+ *   <li>{@code getQuestions} misurato sia con la cache dei gruppi sia leggendo sempre dal database</li>
+ * </ul>
+ *
+ * @see PlayBenchmarks Avvio con risultati in JSON
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataAccessBenchmark {
+
+    /**
+     * Scelta casuale dei parametri, separata per thread.
+     */
+    @State(Scope.Thread)
+    public static class Picks {
+        private SplittableRandom random;
+        private int users;
+        private int questions;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkDatabase database) {
+            random = new SplittableRandom(database.seed ^ Thread.currentThread().getId());
+            users = database.users;
+            questions = database.questions;
+        }
+
+        int userId() {
+            return 1 + random.nextInt(users);
+        }
+
+        int questionId() {
+            return 1 + random.nextInt(questions);
+        }
+
+        int languageId() {
+            return 1 + random.nextInt(BenchmarkDatabase.LANGUAGES);
+        }
+
+        int themeId() {
+            return 1 + random.nextInt(BenchmarkDatabase.THEMES);
+        }
+
+        int difficultyId() {
+            return 1 + random.nextInt(BenchmarkDatabase.DIFFICULTIES);
+        }
+
+        boolean correct() {
+            return random.nextBoolean();
+        }
+    }
+
+    @Benchmark
+    public List<QuestionModel> getQuestions(BenchmarkDatabase database, Picks picks) {
+        return QueryDAO.getQuestions(picks.themeId(), picks.languageId(), picks.difficultyId());
+    }
+
+    // Stesso gruppo letto dal database a ogni chiamata
+    @Benchmark
+    public List<QuestionModel> getQuestionsUncached(BenchmarkDatabase database, Picks picks) {
+        int themeId = picks.themeId();
+        int languageId = picks.languageId();
+        int difficultyId = picks.difficultyId();
+        QuestionBucketCache.getInstance().invalidate(themeId, languageId, difficultyId);
+        return QueryDAO.getQuestions(themeId, languageId, difficultyId);
+    }
+
+    @Benchmark
+    public void updateUserAnswer(BenchmarkDatabase database, Picks picks) {
+        QueryDAO.updateUserAnswer(picks.userId(), picks.questionId(), picks.correct());
+    }
+
+    @Benchmark
+    public void updateUserProgress(BenchmarkDatabase database, Picks picks) {
+        QueryDAO.updateUserProgress(picks.userId(), picks.themeId(), picks.languageId(), picks.difficultyId(), 10);
+    }
+
+    @Benchmark
+    public double getOverallCompletionPercentage(BenchmarkDatabase database, Picks picks) {
+        return QueryDAO.getOverallCompletionPercentage(picks.languageId(), picks.userId());
+    }
+
+    @Benchmark
+    public Map<Integer, Double> getOverallCompletionPercentageForAllThemes(BenchmarkDatabase database, Picks picks) {
+        return QueryDAO.getOverallCompletionPercentageForAllThemes(picks.userId());
+    }
+
+    @Benchmark
+    public Map<Integer, Double> getOverallCompletionPercentageForAllDifficulties(BenchmarkDatabase database, Picks picks) {
+        return QueryDAO.getOverallCompletionPercentageForAllDifficulties(picks.userId());
+    }
+
+    @Benchmark
+    public List<PlayerRankingModel> getPlayerRanking(BenchmarkDatabase database) {
+        return QueryDAO.getPlayerRanking();
+    }
+
+    @Benchmark
+    public List<QuestionModel> getAllQuestions(BenchmarkDatabase database) {
+        return QueryDAO.getAllQuestions();
+    }
+
+    // Dominato dal costo di BCrypt.checkpw
+    @Benchmark
+    public boolean loginUser(BenchmarkDatabase database, Picks picks) {
+        return QueryDAO.loginUser(BenchmarkDatabase.username(picks.userId()), BenchmarkDatabase.PASSWORD);
+    }
+
+    // Login completo: una query per credenziali e ruolo, una verifica BCrypt sul pool dedicato
+    @Benchmark
+    public SessionPrincipal authenticate(BenchmarkDatabase database, Picks picks) {
+        return AuthService.authenticate(BenchmarkDatabase.username(picks.userId()), BenchmarkDatabase.PASSWORD).join();
+    }
+}
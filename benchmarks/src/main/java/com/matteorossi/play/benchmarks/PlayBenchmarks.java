@@ -0,0 +1,38 @@
+package com.matteorossi.play.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Avvio dei benchmark JMH con i risultati salvati in JSON.
+ * Accetta le stesse opzioni della riga di comando di JMH; se non vengono indicati
+ * {@code -rf} e {@code -rff} il risultato va in {@value #DEFAULT_RESULT_FILE}.
+ *
+ * <p>Esempi:</p>
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar
+ * java -jar benchmarks/target/benchmarks.jar getQuestions -p questions=50000
+ * java -jar benchmarks/target/benchmarks.jar -p users=10000 -p answers=1000000 -rff grande.json
+ * </pre>
+ */
+public class PlayBenchmarks {
+
+    static final String DEFAULT_RESULT_FILE = "jmh-results.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cli.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -1,13 +1,26 @@
 package com.matteorossi.play;
 
+import com.matteorossi.play.database.AnswerJournal;
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.database.ClaseDLLDAO;
+import com.matteorossi.play.database.DataExporter;
+import com.matteorossi.play.database.DatabaseConnection;
+import com.matteorossi.play.database.DatasetGenerator;
+import com.matteorossi.play.database.NotificationOutbox;
+import com.matteorossi.play.database.QueryMetrics;
+import com.matteorossi.play.database.QuestionImporter;
+import com.matteorossi.play.database.ReferenceDataCache;
 import com.matteorossi.play.telegram.TelegramBoot;
+import com.matteorossi.play.utilitis.ViewPreloader;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Arrays;
 
 /**
  * Classe principale dell'applicazione Play per l'apprendimento della programmazione.
@@ -17,8 +30,14 @@ import java.io.IOException;
  * <ul>
  *   <li>Avvio dell'interfaccia grafica JavaFX</li>
  *   <li>Inizializzazione del database</li>
+ *   <li>Avvio misurato con {@link StartupPipeline}: bot Telegram, dati di riferimento e prime viste in parallelo</li>
+ *   <li>Pubblicazione su JMX delle metriche delle query ({@link QueryMetrics})</li>
  *   <li>Configurazione del bot Telegram</li>
  *   <li>Gestione dell'uscita dall'applicazione</li>
+ *   <li>Ricalcolo dei contatori di completamento con l'argomento {@code --rebuild-counters}</li>
+ *   <li>Importazione di domande da file con l'argomento {@code --import-questions <file>}</li>
+ *   <li>Esportazione di una tabella con l'argomento {@code --export <tabella> <file>}</li>
+ *   <li>Generazione di un dataset sintetico con l'argomento {@code --generate-dataset [opzioni]}</li>
  * </ul>
  *
  * @see Application Classe base JavaFX per le applicazioni GUI
@@ -27,10 +46,24 @@ import java.io.IOException;
  */
 
 public class Main extends Application{
+    private static final String INTRODUCTION_VIEW = "/com/matteorossi/play/view/intruduction.fxml";
+    private static final String LOGIN_VIEW = "/com/matteorossi/play/view/login.fxml";
+
+    //Fasi dell'avvio misurate, riepilogo stampato a fine avvio
+    private static final StartupPipeline startup = new StartupPipeline();
+
+    @Override
+    public void init() {
+        //Il toolkit JavaFX è pronto: le prime viste vengono caricate in parallelo con la creazione della finestra
+        for (String view : new String[]{INTRODUCTION_VIEW, LOGIN_VIEW}) {
+            String name = "Vista " + view.substring(view.lastIndexOf('/') + 1);
+            ViewPreloader.offer(view, startup.supplyAsync(name, () -> ViewPreloader.load(view)));
+        }
+    }
+
     @Override
     public void start(Stage stage) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("/com/matteorossi/play/view/intruduction.fxml"));
-        Scene scene = new Scene(fxmlLoader.load(), 900, 500);
+        Scene scene = new Scene(ViewPreloader.take(INTRODUCTION_VIEW), 900, 500);
         stage.setTitle("Play");
         stage.setScene(scene);
 
@@ -40,26 +73,76 @@ public class Main extends Application{
         });
 
         stage.show();
+        startup.firstWindowShown();
+        startup.reportWhenDone();
     }
 
 
     public static void main(String[] args){
-        //Fa partire prima il Boot no new Threed
-        TelegramBoot.initBoot();
+        //Ricalcolo dei contatori di completamento senza avviare l'interfaccia
+        if (Arrays.asList(args).contains("--rebuild-counters")) {
+            ClaseDLLDAO.generateDB();
+            boolean rebuilt = ClaseDLLDAO.rebuildCompletionCounters();
+            DatabaseConnection.shutdown();
+            System.exit(rebuilt ? 0 : 1);
+        }
+
+        //Importazione massiva di domande da CSV o JSON Lines senza avviare l'interfaccia
+        int importIndex = Arrays.asList(args).indexOf("--import-questions");
+        if (importIndex >= 0) {
+            System.exit(importQuestions(args, importIndex));
+        }
+
+        //Esportazione in streaming di una tabella senza avviare l'interfaccia
+        int exportIndex = Arrays.asList(args).indexOf("--export");
+        if (exportIndex >= 0) {
+            System.exit(exportTable(args, exportIndex));
+        }
+
+        //Generazione di un dataset sintetico di grandi dimensioni senza avviare l'interfaccia
+        int generateIndex = Arrays.asList(args).indexOf("--generate-dataset");
+        if (generateIndex >= 0) {
+            System.exit(generateDataset(args, generateIndex));
+        }
+
+        //Bot Telegram in background: la prima finestra non aspetta la rete
+        startup.runAsync("Bot Telegram", () -> {
+            TelegramBoot.initBoot();
+            //Mesaggio di prova per corretto funzionamento
+            TelegramBoot.enqueueMessage(1111048197, "Sto funzionando !!!");
+        });
 
+        //Copia del database, pool di connessioni e schema (una connessione, una transazione)
+        startup.run("Database", () -> {
+            try {
+                DatabaseConnection.init();
+            } catch (SQLException e) {
+                System.err.println("Errore nell'inizializzazione del database: " + e.getMessage());
+            }
+            //Eliminaizone delle tabelle
+            //ClaseDLLDAO.deleteAllTables(); //DA NON DECCOMENTARE o SI PERDONO TUTTI I DATI
+            //Creazione delle tabelle
+            ClaseDLLDAO.generateDB();
+        });
 
-        //Eliminaizone delle tabelle
-        //ClaseDLLDAO.deleteAllTables(); //DA NON DECCOMENTARE o SI PERDONO TUTTI I DATI
-        //Creazione delle tabelle
-        ClaseDLLDAO.generateDB();
+        //Consegna in background delle notifiche scritte nell'outbox, anche quelle rimaste dall'ultima esecuzione
+        startup.run("Outbox notifiche", () -> NotificationOutbox.getInstance().start(TelegramBoot::sendMessage));
 
-        //Mesaggio di prova per corretto funzionamento
-        TelegramBoot.sendMessageOnce(1111048197, "Sto funzionando !!!");
+        //Metriche delle query visibili da JConsole/VisualVM sotto com.matteorossi.play:type=QueryMetrics
+        startup.run("Metriche JMX", QueryMetrics::registerMBeans);
 
+        //Linguaggi, temi e difficoltà in memoria prima che servano alle schermate di scelta
+        startup.runAsync("Dati di riferimento", () -> ReferenceDataCache.getInstance().get());
 
         //Salvo i dati anche in caso di chiusara del utente
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
            System.out.println("Shutting down...");
+           //Prima gli aggiornamenti Telegram accodati, che possono ancora usare il database
+           TelegramBoot.shutdown();
+           AsyncDAO.shutdown();
+           AnswerJournal.getInstance().shutdown();
+           NotificationOutbox.getInstance().shutdown();
+           DatabaseConnection.shutdown();
 
         }));
 
@@ -67,4 +150,70 @@ public class Main extends Application{
         launch();
     }
 
+    // Esegue la generazione indicata da --generate-dataset [--users N ...] e restituisce il codice di uscita
+    private static int generateDataset(String[] args, int generateIndex) {
+        try {
+            DatasetGenerator.Spec spec = DatasetGenerator.parseSpec(Arrays.asList(args).subList(generateIndex + 1, args.length));
+            DatabaseConnection.init();
+            ClaseDLLDAO.generateDB();
+            DatasetGenerator.GenerationReport report = DatasetGenerator.generate(spec,
+                    rows -> System.out.println("  " + rows + " risposte"));
+            System.out.println(report.summary());
+            return 0;
+        } catch (SQLException | IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Generazione non riuscita: " + e.getMessage());
+            return 1;
+        } finally {
+            DatabaseConnection.shutdown();
+        }
+    }
+
+    // Esegue l'esportazione indicata da --export <tabella> <file> e restituisce il codice di uscita
+    private static int exportTable(String[] args, int exportIndex) {
+        if (exportIndex + 2 >= args.length) {
+            System.err.println("Uso: --export <questions|user_answers|user_progress> <file.csv|file.jsonl>[.gz]");
+            return 2;
+        }
+
+        try {
+            DataExporter.Dataset dataset = DataExporter.Dataset.fromName(args[exportIndex + 1]);
+            DatabaseConnection.init();
+            ClaseDLLDAO.generateDB();
+            DataExporter.ExportReport report = DataExporter.exportToFile(dataset, Paths.get(args[exportIndex + 2]),
+                    rows -> System.out.println("  " + rows + " righe"));
+            System.out.println(report.summary());
+            return 0;
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            System.err.println("Esportazione non riuscita: " + e.getMessage());
+            return 1;
+        } finally {
+            DatabaseConnection.shutdown();
+        }
+    }
+
+    // Esegue l'importazione indicata da --import-questions <file> e restituisce il codice di uscita
+    private static int importQuestions(String[] args, int importIndex) {
+        if (importIndex + 1 >= args.length) {
+            System.err.println("Uso: --import-questions <file.csv|file.jsonl>");
+            return 2;
+        }
+
+        Path file = Paths.get(args[importIndex + 1]);
+        try {
+            DatabaseConnection.init();
+            ClaseDLLDAO.generateDB();
+            QuestionImporter.ImportReport report = new QuestionImporter().importFile(file);
+            System.out.println(report.summary());
+            for (QuestionImporter.Reject reject : report.rejects()) {
+                System.out.println("  riga " + reject.line() + ": " + reject.reason());
+            }
+            return report.inserted() > 0 || report.rowsRead() == 0 ? 0 : 1;
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            System.err.println("Importazione non riuscita: " + e.getMessage());
+            return 1;
+        } finally {
+            DatabaseConnection.shutdown();
+        }
+    }
+
 }
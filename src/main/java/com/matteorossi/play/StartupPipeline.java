@@ -0,0 +1,168 @@
+package com.matteorossi.play;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Orchestrazione dell'avvio dell'applicazione: fasi sincrone e fasi in background misurate,
+ * con un riepilogo dei tempi stampato quando tutte le fasi sono terminate.
+ * I tempi sono in millisecondi dall'avvio della JVM.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>{@link #run}: fase bloccante sul thread chiamante</li>
+ *   <li>{@link #runAsync} e {@link #supplyAsync}: fasi su thread daemon, che non trattengono la JVM</li>
+ *   <li>Gli errori delle fasi in background vengono registrati senza interrompere l'avvio</li>
+ *   <li>Il riepilogo attende al massimo {@value #REPORT_TIMEOUT_SECONDS} secondi: le fasi ancora aperte risultano in corso</li>
+ * </ul>
+ *
+ * @see Main Fasi dell'avvio
+ */
+final class StartupPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupPipeline.class);
+
+    private static final long REPORT_TIMEOUT_SECONDS = 30;
+    private static final String FIRST_WINDOW = "Prima finestra visibile";
+
+    /**
+     * Fase conclusa.
+     *
+     * @param name        nome della fase
+     * @param thread      thread che l'ha eseguita
+     * @param startMillis inizio, in millisecondi dall'avvio della JVM
+     * @param millis      durata
+     * @param failed      true se la fase è terminata con un errore
+     */
+    record Phase(String name, String thread, long startMillis, long millis, boolean failed) {
+    }
+
+    private final long originNanos = System.nanoTime();
+    // Millisecondi trascorsi dall'avvio della JVM alla creazione della pipeline
+    private final long originMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("startup-", 0).daemon().factory());
+    private final ConcurrentLinkedQueue<Phase> phases = new ConcurrentLinkedQueue<>();
+    private final Map<String, Long> running = new ConcurrentHashMap<>();
+    private final List<CompletableFuture<?>> pending = new ArrayList<>();
+    private final CompletableFuture<Void> firstWindow = new CompletableFuture<>();
+
+    StartupPipeline() {
+        phases.add(new Phase("Avvio JVM", "-", 0, originMillis, false));
+    }
+
+    // Esegue la fase sul thread corrente; le eccezioni vengono registrate e propagate
+    void run(String name, Runnable task) {
+        long start = begin(name);
+        boolean failed = true;
+        try {
+            task.run();
+            failed = false;
+        } finally {
+            end(name, start, failed);
+        }
+    }
+
+    CompletableFuture<Void> runAsync(String name, Runnable task) {
+        return supplyAsync(name, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Esegue la fase in background. Il future termina con l'eventuale errore della fase,
+     * che viene anche registrato nel log.
+     */
+    synchronized <T> CompletableFuture<T> supplyAsync(String name, Supplier<T> task) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            long start = begin(name);
+            boolean failed = true;
+            try {
+                T result = task.get();
+                failed = false;
+                return result;
+            } catch (Throwable e) {
+                // Anche gli Error, ad esempio un inizializzatore statico fallito
+                logger.warn("Fase di avvio '{}' non riuscita: {}", name, e.toString());
+                throw e;
+            } finally {
+                end(name, start, failed);
+            }
+        }, executor);
+        pending.add(future);
+        return future;
+    }
+
+    // Da chiamare sul thread JavaFX subito dopo stage.show()
+    void firstWindowShown() {
+        phases.add(new Phase(FIRST_WINDOW, Thread.currentThread().getName(), 0, elapsedMillis(), false));
+        firstWindow.complete(null);
+    }
+
+    /**
+     * Stampa il riepilogo quando la prima finestra è visibile e le fasi in background sono terminate,
+     * o comunque dopo {@value #REPORT_TIMEOUT_SECONDS} secondi.
+     */
+    synchronized void reportWhenDone() {
+        List<CompletableFuture<?>> awaited = new ArrayList<>(pending);
+        awaited.add(firstWindow);
+        CompletableFuture.allOf(awaited.toArray(CompletableFuture[]::new))
+                .handle((ignored, error) -> null)
+                .completeOnTimeout(null, REPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .thenRun(() -> {
+                    logger.info("Tempi di avvio:\n{}", report());
+                    executor.shutdown();
+                });
+    }
+
+    // Tabella delle fasi ordinate per inizio, con quelle ancora in corso in fondo
+    String report() {
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingLong(Phase::startMillis).thenComparingLong(Phase::millis));
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, "%-30s %-24s %8s %8s%n",
+                "fase", "thread", "inizio", "durata"));
+        for (Phase phase : sorted) {
+            report.append(String.format(Locale.ROOT, "%-30s %-24s %8d %8d%s%n", phase.name(), phase.thread(),
+                    phase.startMillis(), phase.millis(), phase.failed() ? "  ERRORE" : ""));
+        }
+        running.forEach((name, start) -> report.append(String.format(Locale.ROOT, "%-30s %-24s %8d %8s%n",
+                name, "-", toMillis(start), "in corso")));
+        return report.toString();
+    }
+
+    private long begin(String name) {
+        long start = System.nanoTime();
+        running.put(name, start);
+        return start;
+    }
+
+    private void end(String name, long start, boolean failed) {
+        running.remove(name);
+        phases.add(new Phase(name, Thread.currentThread().getName(), toMillis(start),
+                (System.nanoTime() - start) / 1_000_000, failed));
+    }
+
+    private long toMillis(long nanos) {
+        return originMillis + (nanos - originNanos) / 1_000_000;
+    }
+
+    private long elapsedMillis() {
+        return toMillis(System.nanoTime());
+    }
+}
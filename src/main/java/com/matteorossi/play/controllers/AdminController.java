@@ -1,21 +1,28 @@
 package com.matteorossi.play.controllers;
 
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.database.QueryDAO;
+import com.matteorossi.play.database.QuestionImporter;
 import com.matteorossi.play.models.*;
-import com.matteorossi.play.telegram.TelegramBoot;
+import com.matteorossi.play.utilitis.FxAsync;
+import com.matteorossi.play.utilitis.SessionRegistry;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
-import java.sql.SQLException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 /**
  * Controller per la gestione dell'interfaccia amministrativa dell'applicazione.
  * Gestisce le operazioni CRUD per utenti, amministratori, linguaggi di programmazione,
@@ -36,11 +43,13 @@ import java.util.List;
  * <ul>
  *   <li>Inserimento nuovi elementi (linguaggi, categorie, difficoltà, amministratori)</li>
  *   <li>Gestione reset password utenti con notifica Telegram</li>
+ *   <li>Importazione massiva di domande da file CSV o JSON Lines</li>
  *   <li>Eliminazione record da tutte le tabelle</li>
  *   <li>Navigazione tra le diverse view dell'applicazione</li>
  * </ul>
  *
- * <p>Interagisce con il database tramite {@link QueryDAO} e invia notifiche tramite {@link TelegramBoot}.</p>
+ * <p>Interagisce con il database tramite {@link AsyncDAO}, senza bloccare il thread JavaFX,
+ * e invia le notifiche tramite l'outbox di {@link QueryDAO#resetUserPassword(String)}.</p>
  *
  * @see UserModel Modello dati per gli utenti
  * @see AdminModel Modello dati per gli amministratori
@@ -107,14 +116,15 @@ public class AdminController {
     public void onInsertLanguageClick(ActionEvent actionEvent) {
         String language = insertLanguageTextField.getText();
 
-        try {
-            QueryDAO.insertProgrammingLanguage(language.toLowerCase());
-            WhindowUtilit.showAlert("Successo", "Linguaggio inserito correttamente", "Successo");
-        } catch (SQLException e) {
-            logger.error(e.getMessage());
-            WhindowUtilit.showAlert("Errore", "Errore nell'inserimento di un linguaggio", "Errore");
-        }
-        loadLanguages();
+        FxAsync.onFx(FxAsync.withLoading(source(actionEvent), AsyncDAO.supply(() -> QueryDAO.insertProgrammingLanguage(language.toLowerCase()))),
+                inserted -> {
+                    WhindowUtilit.showAlert("Successo", "Linguaggio inserito correttamente", "Successo");
+                    loadLanguages();
+                }, error -> {
+                    logger.error(error.getMessage());
+                    WhindowUtilit.showAlert("Errore", "Errore nell'inserimento di un linguaggio", "Errore");
+                    loadLanguages();
+                });
     }
 
     @FXML
@@ -129,21 +139,23 @@ public class AdminController {
             return;
         }
 
-        try {
-            if (QueryDAO.insertAdmin(username, password, firstName, lastName)) {
-                WhindowUtilit.showAlert("Successo", "Admin inserito con successo", "Successo");
-            }
-        } catch (SQLException e) {
-            logger.error("Errore SQL durante l'aggiunta dell'admin: " + username, e);
-            WhindowUtilit.showAlert("Errore", "Errore SQL", "Si è verificato un errore durante l'aggiunta dell'admin.");
-            throw new RuntimeException(e);
-        }
-        loadAdmins();
+        // Hash BCrypt e inserimento in background
+        FxAsync.onFx(FxAsync.withLoading(source(actionEvent), AsyncDAO.supply(() -> QueryDAO.insertAdmin(username, password, firstName, lastName))),
+                inserted -> {
+                    if (inserted) {
+                        WhindowUtilit.showAlert("Successo", "Admin inserito con successo", "Successo");
+                    }
+                    loadAdmins();
+                }, error -> {
+                    logger.error("Errore SQL durante l'aggiunta dell'admin: " + username, error);
+                    WhindowUtilit.showAlert("Errore", "Errore SQL", "Si è verificato un errore durante l'aggiunta dell'admin.");
+                });
     }
 
     @FXML
     public void onLoginClick(ActionEvent actionEvent) {
         try {
+            SessionRegistry.getInstance().closeUi();
             windowUtilit.changeWhindow(actionEvent, "/com/matteorossi/play/view/login.fxml", "Login");
         } catch (IOException e) {
             logger.error("Errore IOException", e);
@@ -161,6 +173,47 @@ public class AdminController {
         }
     }
 
+    @FXML
+    public void onImportQuestionsClick(ActionEvent actionEvent) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Importa domande");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV o JSON Lines", "*.csv", "*.jsonl", "*.ndjson"),
+                new FileChooser.ExtensionFilter("Tutti i file", "*.*"));
+        File file = fileChooser.showOpenDialog(source(actionEvent).getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        // Importazione a blocchi in background, al termine il riepilogo con righe/s e scarti
+        FxAsync.onFx(FxAsync.withLoading(source(actionEvent), AsyncDAO.supply(() -> {
+            try {
+                return new QuestionImporter().importFile(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        })), this::showImportReport, error -> {
+            logger.error("Errore durante l'importazione delle domande", error);
+            WhindowUtilit.showAlert("Errore", error.getMessage(), "Importazione non riuscita");
+        });
+    }
+
+    private void showImportReport(QuestionImporter.ImportReport report) {
+        StringBuilder content = new StringBuilder(report.summary());
+        for (QuestionImporter.Reject reject : report.rejects()) {
+            content.append("\nRiga ").append(reject.line()).append(": ").append(reject.reason());
+        }
+
+        Alert alert = new Alert(report.rejected() == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("Importazione domande");
+        alert.setHeaderText(report.inserted() + " domande importate");
+        TextArea details = new TextArea(content.toString());
+        details.setEditable(false);
+        details.setWrapText(true);
+        alert.getDialogPane().setContent(details);
+        alert.showAndWait();
+    }
+
     @FXML
     public void onInsertThemsClik(ActionEvent actionEvent) {
         String categories = insertThemsTextField.getText();
@@ -169,14 +222,15 @@ public class AdminController {
             WhindowUtilit.showAlert("Errore", "Campi vuoti", "Compila tutti i campi.");
         }
 
-        try {
-            QueryDAO.insertTheme(categories.toLowerCase());
-            WhindowUtilit.showAlert("Successo", "Categoria inserita con successo", "Successo");
-        }catch (SQLException e){
-            logger.error("Errore SQL", e);
-            WhindowUtilit.showAlert("Errore", "Errore SQL", "Si è verificato un errore durante l'aggiunta della categoria.");
-        }
-        loadCategories();
+        FxAsync.onFx(FxAsync.withLoading(source(actionEvent), AsyncDAO.supply(() -> QueryDAO.insertTheme(categories.toLowerCase()))),
+                inserted -> {
+                    WhindowUtilit.showAlert("Successo", "Categoria inserita con successo", "Successo");
+                    loadCategories();
+                }, error -> {
+                    logger.error("Errore SQL", error);
+                    WhindowUtilit.showAlert("Errore", "Errore SQL", "Si è verificato un errore durante l'aggiunta della categoria.");
+                    loadCategories();
+                });
     }
 
     @FXML
@@ -205,28 +259,30 @@ public class AdminController {
             return;
         }
 
-        // Controllo se il livello di difficoltà è già presente nel database
-        List<Integer> difficultsLevelDB = QueryDAO.getAllLevelDifficulties();
-        if (difficultsLevelDB.contains(levelDiff)) {
-            WhindowUtilit.showAlert("Errore", "Livello già presente", "Il livello di difficoltà " + levelDiff + " è già presente nel database.");
-            return;
-        }
-
-        // Se tutto è corretto, procedi con l'inserimento
-        try {
-            boolean isInserted = QueryDAO.insertDifficult(difficultName.toLowerCase(), levelDiff.intValue());
+        // Controllo del livello e inserimento in background, il risultato torna sul thread JavaFX
+        FxAsync.onFx(FxAsync.withLoading(source(actionEvent), AsyncDAO.supply(() -> {
+            // Controllo se il livello di difficoltà è già presente nel database
+            if (QueryDAO.getAllLevelDifficulties().contains(levelDiff)) {
+                return null;
+            }
+            return QueryDAO.insertDifficult(difficultName.toLowerCase(), levelDiff.intValue());
+        })), isInserted -> {
+            if (isInserted == null) {
+                WhindowUtilit.showAlert("Errore", "Livello già presente", "Il livello di difficoltà " + levelDiff + " è già presente nel database.");
+                return;
+            }
             if (isInserted) {
                 WhindowUtilit.showAlert("Successo", "Difficoltà inserita con successo", "La difficoltà è stata aggiunta correttamente.");
             } else {
                 WhindowUtilit.showAlert("Errore", "Inserimento fallito", "Non è stato possibile inserire la difficoltà.");
             }
-        } catch (SQLException e) {
+            // Ricarica la lista delle difficoltà
+            loadDifficults();
+        }, error -> {
             WhindowUtilit.showAlert("Errore", "Errore SQL", "Si è verificato un errore durante l'aggiunta della difficoltà.");
-            logger.error("Errore SQL: " + e.getMessage(), e); // Log dell'errore SQL
-        }
-
-        // Ricarica la lista delle difficoltà
-        loadDifficults();
+            logger.error("Errore SQL: " + error.getMessage(), error); // Log dell'errore SQL
+            loadDifficults();
+        });
     }
 
     @FXML
@@ -276,99 +332,112 @@ public class AdminController {
     }
 
     private void loadUsers() {
-        List<UserModel> users = QueryDAO.getAllUsers();
-        ObservableList<UserModel> userList = FXCollections.observableArrayList(users);
-        userTable.setItems(userList);
+        loadTable(userTable, AsyncDAO.getAllUsers());
     }
 
     private void loadAdmins() {
-        List<AdminModel> admins = QueryDAO.getAdmin();
-        ObservableList<AdminModel> adminList = FXCollections.observableArrayList(admins);
-        adminTable.setItems(adminList);
+        loadTable(adminTable, AsyncDAO.getAdmin());
     }
 
     private void loadLanguages() {
-        List<LanguagesModel> languages = QueryDAO.getLanguages();
-        ObservableList<LanguagesModel> languageList = FXCollections.observableArrayList(languages);
-        languagesTable.setItems(languageList);
+        loadTable(languagesTable, AsyncDAO.getLanguages());
     }
 
     private void loadCategories() {
-        List<CategoryModel> categories = QueryDAO.getCategories();
-        ObservableList<CategoryModel> categoriesList = FXCollections.observableArrayList(categories);
-        categoryTable.setItems(categoriesList);
+        loadTable(categoryTable, AsyncDAO.getCategories());
     }
 
     private void loadDifficults(){
-        List<DifficultyModel> difficults = QueryDAO.getDifficulty();
-        ObservableList<DifficultyModel> difficultsList = FXCollections.observableArrayList(difficults);
-        difficultyTable.setItems(difficultsList);
+        loadTable(difficultyTable, AsyncDAO.getDifficulty());
+    }
+
+    // Mostra "Caricamento..." nella tabella finché la lettura in background non termina
+    private <T> void loadTable(TableView<T> table, CompletableFuture<List<T>> rows) {
+        Node placeholder = table.getPlaceholder();
+        table.setPlaceholder(new Label("Caricamento..."));
+        FxAsync.onFx(rows, items -> {
+            ObservableList<T> itemList = FXCollections.observableArrayList(items);
+            table.setItems(itemList);
+            table.setPlaceholder(placeholder);
+        }, error -> {
+            logger.error("Errore nel caricamento della tabella", error);
+            table.setPlaceholder(new Label("Errore nel caricamento"));
+        });
+    }
+
+    // Nodo che ha generato l'evento, disabilitato durante l'operazione
+    private static Node source(ActionEvent actionEvent) {
+        return (Node) actionEvent.getSource();
     }
 
     private void resetPassword(UserModel user) {
-            Boolean temp = QueryDAO.updateIsReset(user.getUsername(),true);
-            System.out.println("SONO ADMIN "+ temp);
-            if (QueryDAO.resetUserPassword(user.getUsername()) && temp) {
+        // Hash BCrypt in background; le notifiche Telegram partono dall'outbox dopo il commit
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.resetUserPassword(user.getUsername())), reset -> {
+            if (reset) {
                 WhindowUtilit.showAlert("Successo", "Password resettata", "Operazione completata con successo.");
-                System.out.println("Password resettata "+ user.getPassword());
-                // Invio notifica su Telegram
-                String telegraMessag = "Ciao " + user.getUsername() + " la tua password e stata resettata";
-                TelegramBoot.sendMessageOnce(Long.parseLong(user.getTelegramId()), telegraMessag);
             }
+        });
     }
 
     private void deleteUser(UserModel user) {
-        try {
-            if (QueryDAO.deleteUser(user.getUsername())) {
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.deleteUser(user.getUsername())), deleted -> {
+            if (deleted) {
                 userTable.getItems().remove(user);
                 WhindowUtilit.showAlert("Successo", "Utente eliminato", "Operazione completata con successo.");
             }
-        } catch (SQLException e) {
-            logger.error("Errore durante l'eliminazione dell'utente", e);
-        }
+        }, error -> logger.error("Errore durante l'eliminazione dell'utente", error));
     }
 
     private void deleteAdmin(AdminModel admin) {
-        try {
-            if (QueryDAO.deleteAdmin(admin.getUsername())) {
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.deleteAdmin(admin.getUsername())), deleted -> {
+            if (deleted) {
                 adminTable.getItems().remove(admin);
                 WhindowUtilit.showAlert("Successo", "Admin eliminato", "Operazione completata con successo.");
             }
-        } catch (SQLException e) {
-            logger.error("Errore durante l'eliminazione dell'admin", e);
-        }
+        }, error -> logger.error("Errore durante l'eliminazione dell'admin", error));
     }
 
     private void deleteLanguage(LanguagesModel language) {
-        try {
-            if (QueryDAO.deleteProggrammingLanguages(language.getLanguageName())) {
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.deleteProggrammingLanguages(language.getLanguageName())), deleted -> {
+            if (deleted) {
                 languagesTable.getItems().remove(language);
                 WhindowUtilit.showAlert("Successo", "Linguaggio eliminato", "Operazione completata con successo.");
             }
-        } catch (SQLException e) {
-            logger.error("Errore durante l'eliminazione del linguaggio", e);
-        }
+        }, error -> logger.error("Errore durante l'eliminazione del linguaggio", error));
     }
 
     private void delateCategories(CategoryModel categoty){
-        try {
-            if (QueryDAO.deleteTheme(categoty.getCategoryName()));
-            categoryTable.getItems().remove(categoty);
-            WhindowUtilit.showAlert("Successo", "Categoria eliminata", "Operazione completata con successo.");
-        }catch (SQLException e){
-            logger.error("Errore durante l'eliminazione della categoria", e);
-        }
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.deleteTheme(categoty.getCategoryName())), deleted -> {
+            if (deleted) {
+                categoryTable.getItems().remove(categoty);
+                WhindowUtilit.showAlert("Successo", "Categoria eliminata", "Operazione completata con successo.");
+            } else {
+                WhindowUtilit.showAlert("Errore", "Categoria non eliminata", "La categoria non esiste più.");
+                loadCategories();
+            }
+        }, error -> {
+            // Tipicamente una foreign key: la categoria è ancora usata da alcune domande
+            logger.error("Errore durante l'eliminazione della categoria", error);
+            WhindowUtilit.showAlert("Errore", "Categoria non eliminata",
+                    "Impossibile eliminare la categoria: verifica che non sia usata da nessuna domanda.");
+        });
     }
 
     private void delateDifficults(DifficultyModel difficult){
-        try {
-            if (QueryDAO.deleteDifficult(difficult.getDifficulty()));{
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.deleteDifficult(difficult.getDifficulty())), deleted -> {
+            if (deleted) {
                 difficultyTable.getItems().remove(difficult);
                 WhindowUtilit.showAlert("Successo", "Difficolta eliminata", "Operazione completata con successo.");
+            } else {
+                WhindowUtilit.showAlert("Errore", "Difficolta non eliminata", "La difficolta non esiste più.");
+                loadDifficults();
             }
-        }catch (SQLException e){
-            logger.error("Errore durante l'eliminazione della difficolta", e);
-        }
+        }, error -> {
+            // Tipicamente una foreign key: la difficoltà è ancora usata da alcune domande
+            logger.error("Errore durante l'eliminazione della difficolta", error);
+            WhindowUtilit.showAlert("Errore", "Difficolta non eliminata",
+                    "Impossibile eliminare la difficolta: verifica che non sia usata da nessuna domanda.");
+        });
     }
 
 
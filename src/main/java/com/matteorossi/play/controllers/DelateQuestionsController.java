@@ -1,24 +1,30 @@
 package com.matteorossi.play.controllers;
 
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.database.QueryDAO;
 import com.matteorossi.play.models.QuestionModel;
+import com.matteorossi.play.models.QuestionSummaryModel;
+import com.matteorossi.play.utilitis.FxAsync;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.control.Button;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.cell.PropertyValueFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.SQLException;
 import java.util.List;
 import java.util.ResourceBundle;
 /**
@@ -28,11 +34,16 @@ import java.util.ResourceBundle;
  *
  * <p>Utilizza una {@link TableView} JavaFX con colonne per:
  * <ul>
- *   <li>Testo della domanda</li>
+ *   <li>Anteprima del testo della domanda</li>
  *   <li>Linguaggio di programmazione associato</li>
  *   <li>Azione di eliminazione tramite pulsante</li>
  * </ul></p>
  *
+ * <p>Le domande vengono lette a pagine (paginazione keyset sull'id) mentre l'utente scorre
+ * la tabella; il testo completo viene caricato solo per la domanda selezionata. Tutte le letture
+ * avvengono in background tramite {@link com.matteorossi.play.database.AsyncDAO}.</p>
+ *
+ * @see QuestionSummaryModel Riga della tabella
  * @see QuestionModel Modello dati per le domande
  * @see QueryDAO Classe per l'accesso al database
  * @see WhindowUtilit Utility per la gestione delle finestre
@@ -40,33 +51,54 @@ import java.util.ResourceBundle;
 public class DelateQuestionsController implements Initializable {
 
     @FXML
-    private TableView<QuestionModel> questionsTable;
+    private TableView<QuestionSummaryModel> questionsTable;
+
+    @FXML
+    private TableColumn<QuestionSummaryModel, String> questionColumn;
 
     @FXML
-    private TableColumn<QuestionModel, String> questionColumn;
+    private TableColumn<QuestionSummaryModel, String> languageColumn;
 
     @FXML
-    private TableColumn<QuestionModel, String> languageColumn;
+    private TableColumn<QuestionSummaryModel, Void> actionColumn;
 
     @FXML
-    private TableColumn<QuestionModel, Void> actionColumn;
+    private TextArea questionDetailArea;
 
     private final WhindowUtilit windowUtilit = new WhindowUtilit();
     private static final Logger logger = LoggerFactory.getLogger(DelateQuestionsController.class);
 
-    private ObservableList<QuestionModel> questionsList = FXCollections.observableArrayList();
+    private ObservableList<QuestionSummaryModel> questionsList = FXCollections.observableArrayList();
+
+    // Domande lette per ogni pagina
+    private static final int PAGE_SIZE = 50;
+    // Frazione di scorrimento oltre la quale viene letta la pagina successiva
+    private static final double LOAD_THRESHOLD = 0.9;
+
+    // Stato della paginazione keyset
+    private int lastLoadedId = 0;
+    private boolean hasMorePages = true;
+    private boolean loadingPage = false;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         // Configura le colonne
-        questionColumn.setCellValueFactory(new PropertyValueFactory<>("question"));
+        questionColumn.setCellValueFactory(new PropertyValueFactory<>("preview"));
         languageColumn.setCellValueFactory(new PropertyValueFactory<>("languageName"));
 
         // Configura la colonna con il pulsante di eliminazione
         configureButtonColumn(actionColumn, "Elimina", this::deleteQuestion);
 
-        // Carica le domande dal database
-        loadQuestions();
+        // Testo completo caricato solo per la domanda selezionata
+        questionsTable.getSelectionModel().selectedItemProperty()
+                .addListener((obs, oldValue, newValue) -> showQuestionDetail(newValue));
+
+        // La scrollbar esiste solo dopo la creazione della skin della tabella
+        questionsTable.skinProperty().addListener((obs, oldSkin, newSkin) -> attachScrollListener());
+
+        // Carica la prima pagina di domande
+        questionsTable.setItems(questionsList);
+        loadNextPage();
     }
 
     /**
@@ -100,12 +132,57 @@ public class DelateQuestionsController implements Initializable {
     }
 
     /**
-     * Carica le domande dal database e le visualizza nella tabella.
+     * Carica la pagina di domande successiva all'ultima letta e la aggiunge alla tabella.
      */
-    private void loadQuestions() {
-        List<QuestionModel> questions = QueryDAO.getAllQuestions();
-        questionsList.setAll(questions);
-        questionsTable.setItems(questionsList);
+    private void loadNextPage() {
+        if (!hasMorePages || loadingPage) {
+            return;
+        }
+
+        // Una sola pagina in lettura alla volta, la tabella si aggiorna sul thread JavaFX
+        loadingPage = true;
+        int afterId = lastLoadedId;
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.getQuestionSummaries(afterId, PAGE_SIZE)), page -> {
+            loadingPage = false;
+            hasMorePages = page.size() == PAGE_SIZE;
+            if (!page.isEmpty()) {
+                lastLoadedId = page.get(page.size() - 1).getId();
+                questionsList.addAll(page);
+            }
+        }, error -> {
+            // hasMorePages resta invariato: lo scorrimento successivo riprova la stessa pagina
+            loadingPage = false;
+            logger.error("Errore nel caricamento delle domande", error);
+            WhindowUtilit.showAlert("Errore", "Impossibile caricare le domande, riprova più tardi.", "Errore di caricamento");
+        });
+    }
+
+    // Legge la pagina successiva quando lo scorrimento verticale si avvicina al fondo
+    private void attachScrollListener() {
+        for (Node node : questionsTable.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar scrollBar && scrollBar.getOrientation() == Orientation.VERTICAL) {
+                scrollBar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= scrollBar.getMax() * LOAD_THRESHOLD) {
+                        loadNextPage();
+                    }
+                });
+            }
+        }
+    }
+
+    private void showQuestionDetail(QuestionSummaryModel summary) {
+        if (summary == null) {
+            questionDetailArea.clear();
+            return;
+        }
+
+        // Testo completo letto in background, ignorato se nel frattempo la selezione è cambiata
+        questionDetailArea.setText("Caricamento...");
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.getQuestionById(summary.getId())), question -> {
+            if (questionsTable.getSelectionModel().getSelectedItem() == summary) {
+                questionDetailArea.setText(question != null ? question.getQuestion() : "");
+            }
+        });
     }
 
     /**
@@ -113,15 +190,13 @@ public class DelateQuestionsController implements Initializable {
      *
      * @param question La domanda da eliminare.
      */
-    private void deleteQuestion(QuestionModel question) {
-        try {
-            if (QueryDAO.deleteQuestion(question.getId())) {
+    private void deleteQuestion(QuestionSummaryModel question) {
+        FxAsync.onFx(AsyncDAO.supply(() -> QueryDAO.deleteQuestion(question.getId())), deleted -> {
+            if (deleted) {
                 questionsList.remove(question);
                 WhindowUtilit.showAlert("Successo", "Domanda eliminata", "Operazione completata con successo.");
             }
-        } catch (SQLException e) {
-            logger.error("Errore durante l'eliminazione della domanda", e);
-        }
+        }, error -> logger.error("Errore durante l'eliminazione della domanda", error));
     }
 
     @FXML
@@ -1,9 +1,11 @@
 package com.matteorossi.play.controllers;
 
-import com.matteorossi.play.database.QueryDAO;
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.models.DifficultyModel;
-import com.matteorossi.play.utilitis.DataStorage;
-import com.matteorossi.play.utilitis.GlobalConfig;
+import com.matteorossi.play.models.ProgressSnapshot;
+import com.matteorossi.play.utilitis.FxAsync;
+import com.matteorossi.play.utilitis.ProgressCache;
+import com.matteorossi.play.utilitis.SessionRegistry;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -20,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller per la gestione della selezione della difficoltà delle domande.
@@ -34,8 +37,9 @@ import java.util.Random;
  * </ul>
  *
  * @see DifficultyModel Modello dati per le difficoltà
- * @see QueryDAO Classe per l'accesso al database
- * @see DataStorage Utility per la gestione dello stato dell'applicazione
+ * @see AsyncDAO Classe per l'accesso al database
+ * @see SessionRegistry Scelte salvate nella sessione
+ * @see ProgressCache Percentuali di completamento della sessione
  */
 public class DiffiChoisController {
 
@@ -47,11 +51,14 @@ public class DiffiChoisController {
 
     @FXML
     private void initialize() {
-        List<DifficultyModel> difficulties = QueryDAO.getDifficulty();
-        generateButton(difficulties);
+        // Difficoltà e progressi letti in background, con indicatore di caricamento
+        CompletableFuture<List<DifficultyModel>> difficulties = AsyncDAO.getDifficulty();
+        CompletableFuture<ProgressSnapshot> progress = AsyncDAO.supply(ProgressCache::getCurrent);
+        FxAsync.onFx(FxAsync.withSpinner(anchorPaneDifficult, CompletableFuture.allOf(difficulties, progress)),
+                loaded -> generateButton(difficulties.join(), progress.join()));
     }
 
-    private void generateButton(List<DifficultyModel> difficulties) {
+    private void generateButton(List<DifficultyModel> difficulties, ProgressSnapshot progress) {
         Random rand = new Random();
         int width = 500;
         int height = 900;
@@ -62,8 +69,8 @@ public class DiffiChoisController {
         double elementHeight = 80;
         int maxAttempts = 1000;
 
-        int userId = GlobalConfig.userID;
-        Map<Integer, Double> completionMap = QueryDAO.getOverallCompletionPercentageForAllDifficulties(userId);
+        // Percentuali lette dall'istantanea della sessione
+        Map<Integer, Double> completionMap = progress.getDifficultyCompletions();
 
         for (DifficultyModel diff : difficulties) {
             boolean positionFound = false;
@@ -118,7 +125,7 @@ public class DiffiChoisController {
     private void goToThemsScrin(DifficultyModel difficult, ActionEvent actionEvent) {
         try {
             System.out.println("Difficoltà ID: " + difficult.getId());
-            DataStorage.setDataStorage("difficulty", difficult.getId());
+            SessionRegistry.getInstance().current().selectDifficulty(difficult.getId());
             windowUtilit.changeWhindow(actionEvent, "/com/matteorossi/play/view/generateQuestions.fxml", "Domande");
         } catch (IOException e) {
             logger.error("Errore IOException", e);
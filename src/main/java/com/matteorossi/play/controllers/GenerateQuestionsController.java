@@ -1,8 +1,16 @@
 package com.matteorossi.play.controllers;
 
+import com.matteorossi.play.database.AnswerJournal;
+import com.matteorossi.play.database.AsyncDAO;
+import com.matteorossi.play.database.QuestionBucketCache;
 import com.matteorossi.play.database.QueryDAO;
 import com.matteorossi.play.models.QuestionModel;
-import com.matteorossi.play.utilitis.DataStorage;
+import com.matteorossi.play.models.QuizSessionModel;
+import com.matteorossi.play.models.UserAnswerModel;
+import com.matteorossi.play.utilitis.FxAsync;
+import com.matteorossi.play.utilitis.ProgressCache;
+import com.matteorossi.play.utilitis.SessionRegistry;
+import com.matteorossi.play.utilitis.UserSession;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
@@ -14,9 +22,9 @@ import org.slf4j.LoggerFactory;
 import javafx.stage.Stage;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static com.matteorossi.play.utilitis.GlobalConfig.SCORE_QUESTIONS;
-import static com.matteorossi.play.utilitis.GlobalConfig.userID;
 /**
  * Controller per la gestione del test di programmazione interattivo.
  * Gestisce il flusso delle domande, la verifica delle risposte e il salvataggio del progresso utente.
@@ -28,10 +36,14 @@ import static com.matteorossi.play.utilitis.GlobalConfig.userID;
  *   <li>Salvataggio automatico progressi allo shutdown</li>
  *   <li>Sblocco difficoltà superiori al superamento del test</li>
  *   <li>Calcolo punteggio in tempo reale</li>
+ *   <li>Registrazione asincrona delle risposte tramite {@link AnswerJournal}</li>
+ *   <li>Salvataggio di risposte e punteggio della sessione in un'unica transazione</li>
+ *   <li>Caricamento anticipato delle domande della difficoltà successiva</li>
+ *   <li>Letture e salvataggi in background tramite {@link AsyncDAO}, con stato di caricamento</li>
  * </ul>
  *
  * @see QuestionModel Modello dati per le domande
- * @see DataStorage Gestione dello stato dell'applicazione
+ * @see UserSession Utente collegato e scelte per il test
  * @see QueryDAO Accesso al database
  */
 
@@ -52,71 +64,93 @@ public class GenerateQuestionsController {
 
     private List<QuestionModel> questions;
     private int currentIndex = 0;
-    private Map<Integer, Boolean> userCorrectAnswers = new HashMap<>();
+    // Esito delle risposte della sessione, per id della domanda
+    private Map<Integer, Boolean> userCorrectAnswers = new LinkedHashMap<>();
     private final WhindowUtilit windowUtilit = new WhindowUtilit();
     private static final Logger logger = LoggerFactory.getLogger(GenerateQuestionsController.class);
 
     // Aggiunto per salvare lo stato al shutdown
     private boolean testCompleted = false;
+    private UserSession userSession;
     private Integer languageId;
     private Integer themeId;
     private Integer difficultyId;
 
     @FXML
     public void initialize() {
-        languageId = DataStorage.getDataAs("languageName", Integer.class);
-        themeId = DataStorage.getDataAs("themeName", Integer.class);
-        difficultyId = DataStorage.getDataAs("difficulty", Integer.class);
+        userSession = SessionRegistry.getInstance().current();
+        UserSession.QuizSelection selection = userSession.getSelection();
+        languageId = selection.languageId();
+        themeId = selection.themeId();
+        difficultyId = selection.difficultyId();
         System.out.println("Difficulty ID: " + difficultyId);
-        questions = QueryDAO.getQuestions(themeId, languageId, difficultyId);
+
+        configureCheckBoxBehavior();
+
+        // Domande lette in background: navigazione disabilitata finché non arrivano
+        titleLabel.setText("Caricamento domande...");
+        setNavigationDisabled(true);
+        FxAsync.onFx(AsyncDAO.getQuestions(themeId, languageId, difficultyId), this::onQuestionsLoaded, error -> {
+            logger.error("Errore nel caricamento delle domande", error);
+            onQuestionsLoaded(new ArrayList<>());
+        });
+    }
+
+    private void onQuestionsLoaded(List<QuestionModel> loaded) {
+        questions = loaded;
         System.out.println("Questions: " + questions.size());
+        setNavigationDisabled(false);
 
         currentIndex = 0;
 
 
         // Torno ai linguaggi se non ci sono domande
         if (questions.isEmpty()) {
-            Platform.runLater(() -> {
-                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                alert.setTitle("Nessuna domanda trovata");
-                alert.setHeaderText(null);
-                alert.setContentText("Non ci sono domande disponibili per la categoria selezionata.");
-
-                alert.showAndWait().ifPresent(response -> {
-                    if (response == ButtonType.OK) {
-                        try {
-                            Stage stage = (Stage) titleLabel.getScene().getWindow();
-                            windowUtilit.changeWhindow(stage, "/com/matteorossi/play/view/programmingLanguages.fxml", "Linguaggi di programmazione");
-                        } catch (IOException e) {
-                            WhindowUtilit.showAlert("Errore", "Impossibile tornare alla schermata dei linguaggi", e.getMessage());
-                        }
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Nessuna domanda trovata");
+            alert.setHeaderText(null);
+            alert.setContentText("Non ci sono domande disponibili per la categoria selezionata.");
+
+            alert.showAndWait().ifPresent(response -> {
+                if (response == ButtonType.OK) {
+                    try {
+                        Stage stage = (Stage) titleLabel.getScene().getWindow();
+                        windowUtilit.changeWhindow(stage, "/com/matteorossi/play/view/programmingLanguages.fxml", "Linguaggi di programmazione");
+                    } catch (IOException e) {
+                        WhindowUtilit.showAlert("Errore", "Impossibile tornare alla schermata dei linguaggi", e.getMessage());
                     }
-                });
+                }
             });
+            return;
         }
 
-
-
-        if (!questions.isEmpty()) {
-            Collections.shuffle(questions);
-            showQuestion();
-        }
-
+        Collections.shuffle(questions);
+        showQuestion();
+        prefetchNextDifficulty();
 
         titleLabel.setText("Domanda numero " + (currentIndex + 1) + " di " + questions.size());
 
-        configureCheckBoxBehavior();
-
-        // Aggiunto shutdown hook
-        Runtime.getRuntime().addShutdownHook(new Thread(this::saveProgressOnShutdown));
+        // Sessione salvata dallo shutdown hook se il test non viene confermato
+        AnswerJournal.getInstance().registerOpenSession(this, this::saveProgressOnShutdown);
     }
 
+    private void setNavigationDisabled(boolean disabled) {
+        nextButton.setDisable(disabled);
+        previousButton.setDisable(disabled);
+    }
 
+    // Mentre l'utente risponde carica in background le domande del livello successivo
+    private void prefetchNextDifficulty() {
+        Integer nextDifficultyId = QueryDAO.getNextDifficultyId(QueryDAO.getLevelDifficultyById(difficultyId));
+        if (nextDifficultyId != null) {
+            QuestionBucketCache.getInstance().prefetch(themeId, languageId, nextDifficultyId);
+        }
+    }
 
     // Aggiunto metodo per salvataggio al shutdown
-    private void saveProgressOnShutdown() {
+    private QuizSessionModel saveProgressOnShutdown() {
         if (testCompleted || questions == null || questions.isEmpty()) {
-            return;
+            return null;
         }
 
         // Salva l'ultima risposta corrente
@@ -125,11 +159,17 @@ public class GenerateQuestionsController {
         }
 
         long correctCount = userCorrectAnswers.values().stream().filter(Boolean::booleanValue).count();
-        if (correctCount > 0) {
-            int totalScore = (int) (correctCount * SCORE_QUESTIONS);
-            QueryDAO.updateUserProgress(userID, themeId, languageId, difficultyId, totalScore);
-            System.out.println("Progressi salvati allo shutdown: " + totalScore + " punti");
-        }
+        int totalScore = (int) (correctCount * SCORE_QUESTIONS);
+        logger.debug("Progressi salvati allo shutdown: {} punti", totalScore);
+        return buildSession(totalScore);
+    }
+
+    // Sessione corrente con tutte le risposte date finora
+    private QuizSessionModel buildSession(int score) {
+        List<UserAnswerModel> answers = new ArrayList<>(userCorrectAnswers.size());
+        int userId = userSession.getUserId();
+        userCorrectAnswers.forEach((questionId, correct) -> answers.add(new UserAnswerModel(userId, questionId, correct)));
+        return new QuizSessionModel(userId, themeId, languageId, difficultyId, answers, score);
     }
 
     // Resto del codice rimane ESATTAMENTE uguale...
@@ -226,9 +266,10 @@ public class GenerateQuestionsController {
             isCorrect = userAnswer.equals(correctAnswer);
         }
 
-        userCorrectAnswers.put(currentIndex, isCorrect);
+        userCorrectAnswers.put(currentQuestion.getId(), isCorrect);
         System.out.println("Risposta dell'utente è corretta? " + isCorrect);
-        QueryDAO.updateUserAnswer(userID, currentQuestion.getId(), isCorrect);
+        // Scrittura in background: il click non attende il disco
+        AnswerJournal.getInstance().record(userSession.getUserId(), currentQuestion.getId(), isCorrect);
     }
 
     @FXML
@@ -255,16 +296,47 @@ public class GenerateQuestionsController {
         System.out.println("Numero di risposte corrette: " + correctCount);
         System.out.println("Percentuale di correttezza: " + (percentage * 100) + "%");
 
-        if (percentage >= 0.5) {
-            int totalScore = (int) (correctCount * SCORE_QUESTIONS);
-            System.out.println("Salvataggio del punteggio: " + totalScore);
-            QueryDAO.updateUserProgress(userID, themeId, languageId, difficultyId, totalScore);
+        // Risposte e punteggio in un'unica transazione (punteggio solo se il test è superato)
+        int totalScore = percentage >= 0.5 ? (int) (correctCount * SCORE_QUESTIONS) : 0;
+        QuizSessionModel session = buildSession(totalScore);
+        boolean passed = percentage >= 0.5;
+
+        // Salvataggio e ricerca del livello successivo in background, il pulsante resta disabilitato
+        CompletableFuture<NextLevel> nextLevel = AsyncDAO.supply(() -> {
+            if (!AnswerJournal.getInstance().commitSession(session)) {
+                logger.error("Salvataggio della sessione non riuscito");
+            }
+            // Sessione salvata: il journal non deve più trattenere questo controller
+            AnswerJournal.getInstance().unregisterOpenSession(this);
+            ProgressCache.invalidate(userSession);
+            if (!passed) {
+                return null;
+            }
 
             int currentLevelDifficulty = QueryDAO.getLevelDifficultyById(difficultyId);
             Integer nextDifficultyId = QueryDAO.getNextDifficultyId(currentLevelDifficulty);
+            // Già in cache grazie al caricamento anticipato
+            List<QuestionModel> nextDifficultyQuestions = nextDifficultyId == null
+                    ? List.of()
+                    : QueryDAO.getQuestions(themeId, languageId, nextDifficultyId);
+            return new NextLevel(nextDifficultyId, nextDifficultyQuestions);
+        });
+
+        FxAsync.onFx(FxAsync.withLoading(confermButton, nextLevel), next -> showResult(actionEvent, passed, totalScore, next));
+    }
+
+    // Difficoltà successiva e relative domande (lista vuota se non ce ne sono)
+    private record NextLevel(Integer difficultyId, List<QuestionModel> questions) {
+    }
+
+    private void showResult(ActionEvent actionEvent, boolean passed, int totalScore, NextLevel next) {
+        if (passed) {
+            logger.debug("Salvataggio del punteggio: {}", totalScore);
+
+            Integer nextDifficultyId = next.difficultyId();
 
             if (nextDifficultyId != null) {
-                List<QuestionModel> nextDifficultyQuestions = QueryDAO.getQuestions(themeId, languageId, nextDifficultyId);
+                List<QuestionModel> nextDifficultyQuestions = next.questions();
 
                 if (!nextDifficultyQuestions.isEmpty()) {
                     Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
@@ -274,14 +346,17 @@ public class GenerateQuestionsController {
 
                     Optional<ButtonType> result = alert.showAndWait();
                     if (result.isPresent() && result.get() == ButtonType.OK) {
-                        DataStorage.setDataStorage("difficulty", nextDifficultyId);
+                        userSession.selectDifficulty(nextDifficultyId);
                         difficultyId = nextDifficultyId; // Aggiorna la difficoltà corrente
-                        questions = nextDifficultyQuestions;
+                        questions = new ArrayList<>(nextDifficultyQuestions);
+                        Collections.shuffle(questions);
                         currentIndex = 0;
                         testCompleted = false; // Resetta per il nuovo test
                         userCorrectAnswers.clear();
                         titleLabel.setText("Domanda numero " + (currentIndex + 1) + " di " + questions.size());
                         showQuestion();
+                        prefetchNextDifficulty();
+                        AnswerJournal.getInstance().registerOpenSession(this, this::saveProgressOnShutdown);
                     } else {
                         Alert infoAlert = new Alert(Alert.AlertType.INFORMATION);
                         infoAlert.setTitle("Test completato");
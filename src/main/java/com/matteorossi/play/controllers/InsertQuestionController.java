@@ -1,21 +1,24 @@
 package com.matteorossi.play.controllers;
 
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.database.QueryDAO;
 import com.matteorossi.play.models.DifficultyModel;
 import com.matteorossi.play.models.LanguagesModel;
 import com.matteorossi.play.models.ThemsModel;
+import com.matteorossi.play.utilitis.FxAsync;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 /**
  * Controller per l'inserimento di nuove domande nel sistema.
  * Gestisce la selezione di linguaggi, categorie e difficoltà tramite tabelle interattive
@@ -26,6 +29,7 @@ import java.util.List;
  *   <li>Tabelle di selezione con checkbox per linguaggi, categorie e difficoltà</li>
  *   <li>Form dinamico che cambia in base al tipo di domanda selezionato</li>
  *   <li>Validazione degli input e gestione degli errori</li>
+ *   <li>Letture e inserimenti in background tramite {@link AsyncDAO}</li>
  * </ul>
  *
  * @see LanguagesModel Modello dati per i linguaggi
@@ -121,8 +125,7 @@ public class InsertQuestionController{
                 //Controllo che la risposta coretta sia stata inserita
                 if (selectedCheckbox != null) {
                     //Inserisco i dati nel DB
-                    try {
-                        QueryDAO.insertQuestion(
+                    insertInBackground(actionEvent, () -> QueryDAO.insertQuestion(
                                 selectedLanguage.getId(),
                                 selectedCategory.getId(),
                                 selectedDifficulty.getId(),
@@ -134,14 +137,7 @@ public class InsertQuestionController{
                                 answerDTextField.getText(),
                                 selectedCheckbox.getText(),
                                 null
-                        );
-
-                        WhindowUtilit.showAlert("Sucesso", "Domanda inserita corettamente", "Informativa");
-
-                    }catch (SQLException e){
-                        WhindowUtilit.showAlert("Errore", "Domanda NON inserita corettamente", "Informativa");
-                        logger.error("Errore SQL{}", e.getMessage());
-                    }
+                        ));
                 }
             }else {
                 WhindowUtilit.showAlert("Errore", "Inserire tutte le possibili risposte", "Errore");
@@ -154,8 +150,7 @@ public class InsertQuestionController{
 
             if (question != null && answer != null) {
 
-                try {
-                    QueryDAO.insertQuestion(
+                insertInBackground(actionEvent, () -> QueryDAO.insertQuestion(
                             selectedLanguage.getId(),
                             selectedCategory.getId(),
                             selectedDifficulty.getId(),
@@ -168,14 +163,7 @@ public class InsertQuestionController{
                             null,
                             answer
 
-                    );
-
-                    WhindowUtilit.showAlert("Sucesso", "Domanda inserita corettamente", "Informativa");
-
-                } catch (SQLException e) {
-                    WhindowUtilit.showAlert("Errore", "Domanda NON inserita corettamente", "Informativa");
-                    logger.error("Errore SQL{}", e.getMessage());
-                }
+                ));
 
             }else{
                 WhindowUtilit.showAlert("Errore", "Si prega di riempire tutte le caselle", "Informativa");
@@ -190,6 +178,16 @@ public class InsertQuestionController{
 
 
 
+    // Inserimento fuori dal thread JavaFX, il pulsante resta disabilitato fino all'esito
+    private void insertInBackground(ActionEvent actionEvent, AsyncDAO.SqlCall<Boolean> insert) {
+        FxAsync.onFx(FxAsync.withLoading((Node) actionEvent.getSource(), AsyncDAO.supply(insert)),
+                inserted -> WhindowUtilit.showAlert("Sucesso", "Domanda inserita corettamente", "Informativa"),
+                error -> {
+                    WhindowUtilit.showAlert("Errore", "Domanda NON inserita corettamente", "Informativa");
+                    logger.error("Errore SQL{}", error.getMessage());
+                });
+    }
+
     public void onAdminButton(ActionEvent actionEvent) {
         try {
             windowUtilit.changeWhindow(actionEvent,"/com/matteorossi/play/view/admin.fxml","Admin page");
@@ -272,21 +270,29 @@ public class InsertQuestionController{
 
 
     private void loadLanguage() {
-        List<LanguagesModel> languages = QueryDAO.getLanguagesIdName();
-        ObservableList<LanguagesModel> observableList = FXCollections.observableList(languages);
-        languageTable.setItems(observableList);
+        loadTable(languageTable, AsyncDAO.getLanguagesIdName());
     }
 
     private void loadThemes() {
-        List<ThemsModel> thems = QueryDAO.getThemIdName();
-        ObservableList<ThemsModel> observableList = FXCollections.observableList(thems);
-        categoryTable.setItems(observableList);
+        loadTable(categoryTable, AsyncDAO.getThemIdName());
     }
 
     private void loadDifficulty() {
-        List<DifficultyModel> difficult = QueryDAO.getDifficultIdName();
-        ObservableList<DifficultyModel> observableList = FXCollections.observableList(difficult);
-        difficultyTable.setItems(observableList);
+        loadTable(difficultyTable, AsyncDAO.getDifficultIdName());
+    }
+
+    // Mostra "Caricamento..." nella tabella finché la lettura in background non termina
+    private <T> void loadTable(TableView<T> table, CompletableFuture<List<T>> rows) {
+        Node placeholder = table.getPlaceholder();
+        table.setPlaceholder(new Label("Caricamento..."));
+        FxAsync.onFx(rows, items -> {
+            ObservableList<T> observableList = FXCollections.observableList(items);
+            table.setItems(observableList);
+            table.setPlaceholder(placeholder);
+        }, error -> {
+            logger.error("Errore nel caricamento della tabella", error);
+            table.setPlaceholder(new Label("Errore nel caricamento"));
+        });
     }
 
     private void handleCheckBoxLanguages(LanguagesModel language, boolean isSelected) {
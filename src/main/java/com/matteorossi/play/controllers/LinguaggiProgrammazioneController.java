@@ -1,9 +1,11 @@
 package com.matteorossi.play.controllers;
 
-import com.matteorossi.play.database.QueryDAO;
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.models.LanguagesModel;
-import com.matteorossi.play.utilitis.DataStorage;
-import com.matteorossi.play.utilitis.GlobalConfig;
+import com.matteorossi.play.models.ProgressSnapshot;
+import com.matteorossi.play.utilitis.FxAsync;
+import com.matteorossi.play.utilitis.ProgressCache;
+import com.matteorossi.play.utilitis.SessionRegistry;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -17,6 +19,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller per la selezione dei linguaggi di programmazione.
@@ -32,8 +35,8 @@ import java.util.*;
  * </ul>
  *
  * @see LanguagesModel Modello dati per i linguaggi
- * @see DataStorage Utility per la gestione dello stato
- * @see GlobalConfig Configurazione globale dell'utente
+ * @see SessionRegistry Scelte salvate nella sessione
+ * @see ProgressCache Percentuali di completamento della sessione
  */
 
 
@@ -47,6 +50,7 @@ public class LinguaggiProgrammazioneController {
 
     public void onLoginButtonClik(ActionEvent actionEvent) {
         try {
+            SessionRegistry.getInstance().closeUi();
             windowUtilit.changeWhindow(actionEvent, "/com/matteorossi/play/view/login.fxml", "Login");
         } catch (IOException e) {
             logger.error("Errore nel cambio pagina {}", e);
@@ -55,8 +59,11 @@ public class LinguaggiProgrammazioneController {
 
     @FXML
     public void initialize() {
-        List<LanguagesModel> languages = QueryDAO.getLanguagesIdName();
-        generateButton(languages);
+        // Linguaggi e progressi letti in background, con indicatore di caricamento
+        CompletableFuture<List<LanguagesModel>> languages = AsyncDAO.getLanguagesIdName();
+        CompletableFuture<ProgressSnapshot> progress = AsyncDAO.supply(ProgressCache::getCurrent);
+        FxAsync.onFx(FxAsync.withSpinner(languagesArchorPane, CompletableFuture.allOf(languages, progress)),
+                loaded -> generateButton(languages.join(), progress.join()));
     }
 
 
@@ -69,8 +76,9 @@ public class LinguaggiProgrammazioneController {
      * +------------------------+
      * </pre>
      * @param languages Lista dei linguaggi da visualizzare
+     * @param progress Istantanea dei progressi della sessione
      */
-    private void generateButton(List<LanguagesModel> languages) {
+    private void generateButton(List<LanguagesModel> languages, ProgressSnapshot progress) {
         Random rand = new Random();
         int width = 500;
         int height = 900;
@@ -81,12 +89,7 @@ public class LinguaggiProgrammazioneController {
         double elementHeight = 80;
         int maxAttempts = 1000;
 
-        int userId = GlobalConfig.userID;
-        Map<Integer, Double> completionMap = new HashMap<>();
-        for (LanguagesModel lang : languages) {
-            Double completionPercentage = QueryDAO.getOverallCompletionPercentage(lang.getId(), userId);
-            completionMap.put(lang.getId(), completionPercentage != null ? completionPercentage : 0.0);
-        }
+        // Percentuali lette dall'istantanea della sessione, senza query per ogni linguaggio
 
         for (LanguagesModel lang : languages) {
             boolean positionFound = false;
@@ -110,7 +113,7 @@ public class LinguaggiProgrammazioneController {
             }
 
             // Creazione elementi UI
-            VBox languageBox = createLanguageBox(lang, completionMap.get(lang.getId()));
+            VBox languageBox = createLanguageBox(lang, progress.getLanguageCompletion(lang.getId()));
             languageBox.setLayoutX(x);
             languageBox.setLayoutY(y);
             languagesArchorPane.getChildren().add(languageBox);
@@ -136,7 +139,7 @@ public class LinguaggiProgrammazioneController {
     private void goToThemsScrin(LanguagesModel languages, ActionEvent actionEvent) {
         try {
             System.out.println("Linguaggio ID " + languages.getId());
-            DataStorage.setDataStorage("languageName", languages.getId());
+            SessionRegistry.getInstance().current().selectLanguage(languages.getId());
             windowUtilit.changeWhindow(actionEvent, "/com/matteorossi/play/view/themsChois.fxml", "Scegli tema");
         } catch (IOException e) {
             logger.error("Errore IOException", e);
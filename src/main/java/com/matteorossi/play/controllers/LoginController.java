@@ -1,19 +1,24 @@
 package com.matteorossi.play.controllers;
 
-import com.matteorossi.play.database.QueryDAO;
+import com.matteorossi.play.database.AsyncDAO;
+import com.matteorossi.play.database.AuthService;
 import com.matteorossi.play.models.AdminModel;
+import com.matteorossi.play.models.SessionPrincipal;
 import com.matteorossi.play.models.UserModel;
-import com.matteorossi.play.utilitis.GlobalConfig;
+import com.matteorossi.play.utilitis.FxAsync;
+import com.matteorossi.play.utilitis.ProgressCache;
+import com.matteorossi.play.utilitis.SessionRegistry;
+import com.matteorossi.play.utilitis.UserSession;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.TextField;
-import org.mindrot.jbcrypt.BCrypt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -25,12 +30,13 @@ import java.io.IOException;
  *   <li>Autenticazione per utenti e amministratori</li>
  *   <li>Gestione reset password</li>
  *   <li>Navigazione verso registrazione e reimpostazione password</li>
- *   <li>Controllo hash password con BCrypt</li>
+ *   <li>Verifica delle credenziali in background tramite {@link AuthService}</li>
  * </ul>
  *
  * @see UserModel Modello dati utenti
  * @see AdminModel Modello dati amministratori
- * @see GlobalConfig Configurazione globale per l'ID utente
+ * @see SessionPrincipal Esito del login
+ * @see SessionRegistry Sessione aperta dopo il login
  */
 
 
@@ -49,37 +55,44 @@ public class LoginController {
     @FXML
     private Button singinButton;
 
-    private enum UserRole {USER, ADMIN, RESET_REQUIRED, INVALID}
-
     @FXML
     private void onLoginButtonClik(ActionEvent actionEvent) {
         String username = texfildeUsername.getText();
         String password = textfildPassword.getText();
 
-        UserRole role = verifyUser(username, password); //da mettere in riga 39 IMPORTANTE
-        switch (role) {
-            case USER:
-                logger.info("Login Successful: User");
-                //Salvo ID utente variabile globale
-                GlobalConfig.userID = QueryDAO.getIDByUsername(username);
-                changePage(actionEvent, "/com/matteorossi/play/view/roulseAndInformation.fxml", "Informazioni e Regole");
-                break;
-
-            case ADMIN:
-                logger.info("Login Successful: Admin");
-                changePage(actionEvent, "/com/matteorossi/play/view/admin.fxml", "Pagina Admin");
-                break;
-
-            case RESET_REQUIRED:
+        // Una query e una verifica BCrypt fuori dal thread JavaFX: il pulsante resta disabilitato fino alla risposta
+        CompletableFuture<SessionPrincipal> login = AuthService.authenticate(username, password);
+        CompletableFuture<UserSession> session = login.thenCompose(principal -> {
+            if (principal == null || principal.resetRequired()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            UserSession opened = SessionRegistry.getInstance().open(principal);
+            if (principal.isAdmin()) {
+                return CompletableFuture.completedFuture(opened);
+            }
+            //Progressi calcolati una volta per tutta la sessione
+            return AsyncDAO.run(() -> ProgressCache.loadFor(opened)).thenApply(ignored -> opened);
+        });
+
+        FxAsync.onFx(FxAsync.withLoading(loginButton, session), opened -> {
+            SessionPrincipal principal = login.join();
+            if (principal == null) {
+                WhindowUtilit.showAlert("Errore", "Credenziali errate o utente inesistente", "Errore di login");
+            } else if (principal.resetRequired()) {
                 logger.info("Password Reset Required");
                 handlePasswordReset();
-                break;
-
-            case INVALID:
-            default:
-                WhindowUtilit.showAlert("Errore", "Credenziali errate o utente inesistente", "Errore di login");
-                break;
-        }
+            } else {
+                //La sessione appena aperta diventa quella dell'interfaccia
+                SessionRegistry.getInstance().bindUi(opened);
+                if (principal.isAdmin()) {
+                    logger.info("Login Successful: Admin");
+                    changePage(actionEvent, "/com/matteorossi/play/view/admin.fxml", "Pagina Admin");
+                } else {
+                    logger.info("Login Successful: User");
+                    changePage(actionEvent, "/com/matteorossi/play/view/roulseAndInformation.fxml", "Informazioni e Regole");
+                }
+            }
+        });
     }
 
     @FXML
@@ -92,27 +105,6 @@ public class LoginController {
         changePage(actionEvent, "/com/matteorossi/play/view/reinsertPassword.fxml", "Reimposta Password");
     }
 
-    private UserRole verifyUser(String username, String password) {
-        UserModel user = QueryDAO.getUser(username);
-
-        if (user != null) {
-            if (verifyPassword(username, password) && user.getIsReset()) return UserRole.RESET_REQUIRED;
-            if (QueryDAO.loginUser(username, password)) return UserRole.USER;
-        }
-
-        AdminModel admin = QueryDAO.getAdminByUsername(username);
-        if (admin != null) {
-            if (QueryDAO.loginAdmin(username, password)) return UserRole.ADMIN;
-        }
-
-        return UserRole.INVALID;
-    }
-
-    private Boolean verifyPassword(String username, String password) {
-        String storedPassword = QueryDAO.getUserPassword(username);
-        return BCrypt.checkpw(password, storedPassword);
-    }
-
     private void handlePasswordReset() {
         loginButton.setVisible(false);
         singinButton.setVisible(false);
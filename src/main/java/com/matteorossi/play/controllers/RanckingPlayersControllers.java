@@ -1,15 +1,22 @@
 package com.matteorossi.play.controllers;
 
-import com.matteorossi.play.database.QueryDAO;
+import com.matteorossi.play.database.AsyncDAO;
+import com.matteorossi.play.database.Leaderboard;
 import com.matteorossi.play.models.PlayerRankingModel;
+import com.matteorossi.play.utilitis.FxAsync;
+import com.matteorossi.play.utilitis.SessionRegistry;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.Pagination;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.Region;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,12 +29,13 @@ import java.io.IOException;
  * <p>Caratteristiche principali:</p>
  * <ul>
  *   <li>Tabella ordinata per punteggio decrescente</li>
- *   <li>Collegamento diretto ai dati del database</li>
+ *   <li>Caricamento della sola pagina visibile tramite {@link Leaderboard}</li>
+ *   <li>Posizione in classifica dell'utente collegato</li>
  *   <li>Navigazione verso altre view principali</li>
  * </ul>
  *
  * @see PlayerRankingModel Modello dati per la classifica
- * @see QueryDAO Accesso al database per il ranking
+ * @see Leaderboard Classifica incrementale in memoria
  */
 
 public class RanckingPlayersControllers {
@@ -44,6 +52,14 @@ public class RanckingPlayersControllers {
     @FXML
     private TableColumn<PlayerRankingModel, Integer> totalScoreColumn;
 
+    @FXML
+    private Pagination rankingPagination;
+
+    @FXML
+    private Label myRankLabel;
+
+    // Righe visibili nella tabella senza scorrimento
+    private static final int PAGE_SIZE = 10;
 
     private final WhindowUtilit windowUtilit = new WhindowUtilit();
     private static final Logger logger = LoggerFactory.getLogger(RanckingPlayersControllers.class);
@@ -76,12 +92,36 @@ public class RanckingPlayersControllers {
         usernameColumn.setCellValueFactory(new PropertyValueFactory<>("username"));
         totalScoreColumn.setCellValueFactory(new PropertyValueFactory<>("totalScore"));
 
-        loadRankingData();
+        // Il primo accesso carica la classifica dal database: lo faccio in background
+        int userId = SessionRegistry.getInstance().current().getUserId();
+        myRankLabel.setText("Caricamento classifica...");
+        rankingTable.setPlaceholder(new Label("Caricamento..."));
+        FxAsync.onFx(AsyncDAO.supply(() -> {
+            Leaderboard leaderboard = Leaderboard.getInstance();
+            return new RankSummary(leaderboard.size(), leaderboard.getRank(userId));
+        }), loaded -> {
+            int players = loaded.players();
+            int rank = loaded.rank();
+            rankingPagination.setPageCount(Math.max(1, (players + PAGE_SIZE - 1) / PAGE_SIZE));
+            // Classifica già in memoria: le pagine si leggono senza accedere al database
+            rankingPagination.setPageFactory(this::loadRankingPage);
+
+            myRankLabel.setText(rank > 0
+                    ? "La tua posizione: " + rank + " di " + players
+                    : "Non sei ancora in classifica");
+        });
+    }
+
+    // Numero di giocatori e posizione dell'utente collegato
+    private record RankSummary(int players, int rank) {
     }
 
-    private void loadRankingData() {
-        ObservableList<PlayerRankingModel> rankingList = FXCollections.observableArrayList(QueryDAO.getPlayerRanking());
+    // Carica solo i giocatori della pagina richiesta; la paginazione fa da semplice navigatore
+    private Node loadRankingPage(int pageIndex) {
+        ObservableList<PlayerRankingModel> rankingList =
+                FXCollections.observableArrayList(Leaderboard.getInstance().getPage(pageIndex, PAGE_SIZE));
         rankingTable.setItems(rankingList);
+        return new Region();
     }
 
 }
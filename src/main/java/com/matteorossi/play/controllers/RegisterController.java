@@ -1,10 +1,13 @@
 package com.matteorossi.play.controllers;
 
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.database.QueryDAO;
 import com.matteorossi.play.telegram.TelegramBoot;
+import com.matteorossi.play.utilitis.FxAsync;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
@@ -26,6 +29,7 @@ import java.sql.SQLException;
  *   <li>Invio notifiche Telegram al completamento</li>
  *   <li>Gestione di username riservati (es. contenenti "admin")</li>
  *   <li>Tooltip informativi per tutti i campi</li>
+ *   <li>Controllo dell'username e inserimento eseguiti in background tramite {@link AsyncDAO}</li>
  * </ul>
  */
 public class RegisterController {
@@ -70,29 +74,26 @@ public class RegisterController {
                     "Errore Password");
         }
         else {
-            try {
-                QueryDAO.insertuser(username, password, name, surname, telegramId);
-
-                WhindowUtilit.showAlert(
-                        "Sucesso",
-                        "Il tuo account e stato creato con sucesso si prega di fare il loggin",
-                        "Sucesso");
+            // Hash BCrypt, inserimento e notifiche Telegram fuori dal thread JavaFX
+            String telegramChat = telegramId;
+            FxAsync.onFx(FxAsync.withLoading((Node) actionEvent.getSource(), AsyncDAO.run(() -> {
+                QueryDAO.insertuser(username, password, name, surname, telegramChat);
 
                 //opzionale TelegramID
-                if (telegramId.isEmpty()){
-                    System.out.println(telegramId);
-                    telegramId = "0";
-                }else {
+                if (!telegramChat.isEmpty()) {
                     // Invio notifiche Telegram
-                    TelegramBoot.sendMessageOnce(Long.parseLong(telegramId), "Benvenuto in Play il tuo occount e stato creato");
-                    TelegramBoot.sendMessageOnce(Long.parseLong(telegramId), "Ti invitiamo a fare il login con le seguenti credenziuali");
-                    TelegramBoot.sendMessageOnce(Long.parseLong(telegramId), "Username: " + username);
-                    TelegramBoot.sendMessageOnce(Long.parseLong(telegramId), "Password: " + password);
+                    TelegramBoot.enqueueMessage(Long.parseLong(telegramChat), "Benvenuto in Play il tuo occount e stato creato");
+                    TelegramBoot.enqueueMessage(Long.parseLong(telegramChat), "Ti invitiamo a fare il login con le seguenti credenziuali");
+                    TelegramBoot.enqueueMessage(Long.parseLong(telegramChat), "Username: " + username);
+                    TelegramBoot.enqueueMessage(Long.parseLong(telegramChat), "Password: " + password);
                 }
-            } catch (SQLException e) {
-                logger.error("Errore nella creazione del utente", e);
+            })), done -> WhindowUtilit.showAlert(
+                    "Sucesso",
+                    "Il tuo account e stato creato con sucesso si prega di fare il loggin",
+                    "Sucesso"), error -> {
+                logger.error("Errore nella creazione del utente", error);
                 WhindowUtilit.showAlert("Errore", "C'e stato un errore nella creazione del account", "Riprova in seguito");
-            }
+            });
         }
 
         System.out.println("Name: " + name + surname + telegramId + username + password);
@@ -175,7 +176,16 @@ public class RegisterController {
             return;
         }
 
-        if (!QueryDAO.isUsernameUnique(username)) {
+        // Verifica in background: la risposta viene scartata se nel frattempo l'username è cambiato
+        FxAsync.onFx(AsyncDAO.isUsernameUnique(username), unique -> {
+            if (username.equals(usernameTextFild.getText())) {
+                showUsernameCheck(username, unique);
+            }
+        });
+    }
+
+    private void showUsernameCheck(String username, boolean unique) {
+        if (!unique) {
             userNameUnicLable.setText("✗ Username già usato");
             userNameUnicLable.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
 
@@ -1,11 +1,14 @@
 package com.matteorossi.play.controllers;
 
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.database.QueryDAO;
 import com.matteorossi.play.models.UserModel;
 import com.matteorossi.play.telegram.TelegramBoot;
+import com.matteorossi.play.utilitis.FxAsync;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -50,31 +53,49 @@ public class ReinsertPasswordController {
 
 
     public void onConfermaClik(ActionEvent actionEvent) {
-        System.out.println("Conferma " + userNameTextFild.getText());
-        UserModel user = QueryDAO.getUser(userNameTextFild.getText());
-        System.out.println("User name "+ user.getTelegramId());
+        String username = userNameTextFild.getText();
+        String newPassword = rePasswordTextFild.getText();
 
         String passwordMessage = "La tua password e stata cambiata correttamente in: " + passwordTextFild.getText();
-        //Controlalre se lo username e coretto e le due password coincidono
-        if (user.getUsername() != null && checkPassword()) {
+        //Controlalre se le due password coincidono prima di andare sul database
+        if (!checkPassword()) {
+            showAlert("Errore", "Username non valido o incorretto");
+            return;
+        }
+
+        // Lettura utente, hash BCrypt e aggiornamento in background
+        FxAsync.onFx(FxAsync.withLoading((Node) actionEvent.getSource(), AsyncDAO.supply(() -> {
+            UserModel user = QueryDAO.getUser(username);
+            //Controlalre se lo username e coretto
+            if (user == null || user.getUsername() == null) {
+                return UpdateResult.INVALID_USER;
+            }
 
             //aggiorno la password
-            if(QueryDAO.updatePassword(user.getUsername(), rePasswordTextFild.getText())){
-                if (QueryDAO.updateIsReset(user.getUsername(), false)){
+            if (!QueryDAO.updatePassword(user.getUsername(), newPassword)) {
+                return UpdateResult.NOT_UPDATED;
+            }
+            if (!QueryDAO.updateIsReset(user.getUsername(), false)) {
+                return UpdateResult.RESET_FLAG_NOT_CLEARED;
+            }
+            TelegramBoot.enqueueMessage(Long.parseLong(user.getTelegramId()),passwordMessage);
+            return UpdateResult.UPDATED;
+        })), result -> {
+            switch (result) {
+                case UPDATED -> {
                     WhindowUtilit.showAlert("Riuscita", "Password updated successfully torna al login", "Informativa");
                     beckToLogin.setVisible(true); //rendo il bottone per tornare al login visibile
-                    TelegramBoot.sendMessageOnce(Long.parseLong(user.getTelegramId()),passwordMessage);
                 }
-
+                case NOT_UPDATED -> showAlert("Errore", "Password not updated");
+                case INVALID_USER -> showAlert("Errore", "Username non valido o incorretto");
+                case RESET_FLAG_NOT_CLEARED -> logger.warn("Password aggiornata ma flag di reset non rimosso per {}", username);
             }
-            else showAlert("Errore", "Password not updated");
-
-        }else {
-            showAlert("Errore", "Username non valido o incorretto");
-        }
+        });
 
     }
 
+    private enum UpdateResult {UPDATED, NOT_UPDATED, INVALID_USER, RESET_FLAG_NOT_CLEARED}
+
 
     public void onBeckToLoginCliced(ActionEvent actionEvent) {
         try {
@@ -1,9 +1,11 @@
 package com.matteorossi.play.controllers;
 
-import com.matteorossi.play.database.QueryDAO;
+import com.matteorossi.play.database.AsyncDAO;
 import com.matteorossi.play.models.ThemsModel;
-import com.matteorossi.play.utilitis.DataStorage;
-import com.matteorossi.play.utilitis.GlobalConfig;
+import com.matteorossi.play.models.ProgressSnapshot;
+import com.matteorossi.play.utilitis.FxAsync;
+import com.matteorossi.play.utilitis.ProgressCache;
+import com.matteorossi.play.utilitis.SessionRegistry;
 import com.matteorossi.play.utilitis.WhindowUtilit;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -20,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller per la selezione dei temi di apprendimento.
@@ -35,8 +38,8 @@ import java.util.Random;
  * </ul>
  *
  * @see ThemsModel Modello dati per i temi
- * @see DataStorage Utility per la gestione dello stato
- * @see GlobalConfig Configurazione globale dell'utente
+ * @see SessionRegistry Scelte salvate nella sessione
+ * @see ProgressCache Percentuali di completamento della sessione
  */
 
 public class ThemsChoisController {
@@ -49,8 +52,11 @@ public class ThemsChoisController {
 
     @FXML
     private void initialize() {
-        List<ThemsModel> thems = QueryDAO.getThemIdName();
-        generateButton(thems);
+        // Temi e progressi letti in background, con indicatore di caricamento
+        CompletableFuture<List<ThemsModel>> thems = AsyncDAO.getThemIdName();
+        CompletableFuture<ProgressSnapshot> progress = AsyncDAO.supply(ProgressCache::getCurrent);
+        FxAsync.onFx(FxAsync.withSpinner(anchorPaneThems, CompletableFuture.allOf(thems, progress)),
+                loaded -> generateButton(thems.join(), progress.join()));
     }
 
     /**
@@ -62,9 +68,10 @@ public class ThemsChoisController {
      * +----------------------+
      * </pre>
      * @param thems Lista dei temi da visualizzare
+     * @param progress Istantanea dei progressi della sessione
      */
     @FXML
-    private void generateButton(List<ThemsModel> thems) {
+    private void generateButton(List<ThemsModel> thems, ProgressSnapshot progress) {
         Random rand = new Random();
         int width = 500;
         int height = 900;
@@ -75,8 +82,8 @@ public class ThemsChoisController {
         double elementHeight = 80;
         int maxAttempts = 1000;
 
-        int userId = GlobalConfig.userID;
-        Map<Integer, Double> completionMap = QueryDAO.getOverallCompletionPercentageForAllThemes(userId);
+        // Percentuali lette dall'istantanea della sessione
+        Map<Integer, Double> completionMap = progress.getThemeCompletions();
 
         for (ThemsModel them : thems) {
             boolean positionFound = false;
@@ -131,7 +138,7 @@ public class ThemsChoisController {
     private void goToThemsScrin(ThemsModel thems, ActionEvent actionEvent) {
         try {
             System.out.println("Id del tema: " + thems.getId());
-            DataStorage.setDataStorage("themeName", thems.getId());
+            SessionRegistry.getInstance().current().selectTheme(thems.getId());
             windowUtilit.changeWhindow(actionEvent, "/com/matteorossi/play/view/difficultChois.fxml", "Scegli difficoltà");
         } catch (IOException e) {
             logger.error("Errore IOException", e);
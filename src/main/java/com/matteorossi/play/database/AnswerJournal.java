@@ -0,0 +1,364 @@
+package com.matteorossi.play.database;
+
+import com.matteorossi.play.models.QuizSessionModel;
+import com.matteorossi.play.models.UserAnswerModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Journal write-behind per la registrazione delle risposte degli utenti.
+ * Il thread JavaFX accoda la risposta e ritorna subito; un unico thread di scrittura
+ * raccoglie le risposte in coda e le scrive in una sola transazione (group commit).
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>{@link #record(int, int, boolean)} non blocca mai sul disco</li>
+ *   <li>Le risposte ripetute alla stessa domanda vengono unite, vince l'ultima</li>
+ *   <li>{@link #flush()} attende la scrittura di tutto ciò che è stato accodato</li>
+ *   <li>{@link #commitSession(QuizSessionModel)} salva una sessione conclusa in una sola transazione</li>
+ *   <li>{@link #shutdown()} salva le sessioni aperte e svuota la coda prima della chiusura dell'applicazione</li>
+ *   <li>Statistiche su profondità della coda e latenza delle scritture</li>
+ * </ul>
+ *
+ * @see QueryDAO#updateUserAnswers(java.util.Collection) Scrittura del gruppo di risposte
+ * @see QueryDAO#commitQuizSession(QuizSessionModel) Scrittura di una sessione conclusa
+ */
+public class AnswerJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnswerJournal.class);
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 200;
+    private static final long DEFAULT_FLUSH_TIMEOUT_MS = 10_000;
+
+    private static final AnswerJournal INSTANCE = new AnswerJournal();
+
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Sessioni di test in corso da salvare alla chiusura dell'applicazione
+    private final Map<Object, Supplier<QuizSessionModel>> openSessions = new ConcurrentHashMap<>();
+
+    // Statistiche
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong sessions = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    // Segnale di stop per il thread di scrittura
+    private static final Object STOP = new Object();
+
+    private AnswerJournal() {
+        writer = new Thread(this::writeLoop, "answer-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static AnswerJournal getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Accoda la risposta di un utente senza attendere la scrittura su disco.
+     * Se la coda è piena, il journal è stato chiuso o il thread di scrittura non è più attivo
+     * la risposta viene scritta subito.
+     */
+    public void record(int userId, int questionId, boolean isCorrect) {
+        UserAnswerModel answer = new UserAnswerModel(userId, questionId, isCorrect);
+        if (running && writer.isAlive() && queue.offer(answer)) {
+            enqueued.incrementAndGet();
+            return;
+        }
+
+        logger.warn("Journal non disponibile, scrittura sincrona della risposta {}", answer);
+        writeWithRetry(List.of(answer));
+    }
+
+    /**
+     * Attende che tutte le risposte accodate finora siano state scritte.
+     *
+     * @return true se la scrittura è terminata entro il timeout
+     */
+    public boolean flush() {
+        return flush(DEFAULT_FLUSH_TIMEOUT_MS);
+    }
+
+    public boolean flush(long timeoutMillis) {
+        if (!running || !writer.isAlive()) {
+            return queue.isEmpty();
+        }
+        return submit(new FlushRequest(null), timeoutMillis);
+    }
+
+    /**
+     * Salva una sessione conclusa: risposte e incremento del punteggio in un'unica transazione.
+     * La scrittura avviene sul thread del journal dopo le risposte già accodate, così una
+     * risposta precedente non può sovrascrivere quella salvata con la sessione.
+     *
+     * @return true se la sessione è stata salvata
+     */
+    public boolean commitSession(QuizSessionModel session) {
+        if (!running || !writer.isAlive()) {
+            return commitWithRetry(session);
+        }
+        return submit(new FlushRequest(session), DEFAULT_FLUSH_TIMEOUT_MS);
+    }
+
+    // Accoda la richiesta e ne attende il completamento da parte del thread di scrittura
+    private boolean submit(FlushRequest request, long timeoutMillis) {
+        try {
+            if (!queue.offer(request, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            return request.done.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Flush del journal non completato: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Registra una sessione di test in corso. Alla chiusura dell'applicazione il fornitore
+     * viene interrogato e la sessione restituita (se non null) viene salvata prima di fermare il journal.
+     *
+     * @param owner   chiave della sessione, tipicamente il controller del test
+     * @param session fornitore della sessione da salvare
+     */
+    public void registerOpenSession(Object owner, Supplier<QuizSessionModel> session) {
+        openSessions.put(owner, session);
+    }
+
+    public void unregisterOpenSession(Object owner) {
+        openSessions.remove(owner);
+    }
+
+    /**
+     * Salva le sessioni aperte, scrive le risposte ancora in coda e ferma il thread di scrittura.
+     * Le risposte registrate dopo la chiusura vengono scritte in modo sincrono.
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+
+        for (Supplier<QuizSessionModel> supplier : openSessions.values()) {
+            try {
+                QuizSessionModel session = supplier.get();
+                if (session != null) {
+                    commitSession(session);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Errore nel salvataggio di una sessione aperta: {}", e.getMessage());
+            }
+        }
+        openSessions.clear();
+
+        running = false;
+        try {
+            queue.put(STOP);
+            writer.join(DEFAULT_FLUSH_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Risposte arrivate durante la chiusura
+        List<Object> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        processBatch(remaining);
+        logger.info("Journal delle risposte chiuso: {}", getStats());
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+            boolean stop = batch.remove(STOP);
+            try {
+                processBatch(batch);
+            } catch (RuntimeException e) {
+                // Il thread di scrittura è uno solo: un errore inatteso fallisce il gruppo, non il journal
+                failures.incrementAndGet();
+                logger.error("Errore inatteso nella scrittura di {} elementi del journal", batch.size(), e);
+                for (Object entry : batch) {
+                    if (entry instanceof FlushRequest request) {
+                        request.done.complete(false);
+                    }
+                }
+            }
+            batch.clear();
+
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    // Unisce le risposte del gruppo, le scrive e poi sblocca le richieste di flush.
+    // Le sessioni vengono salvate nel punto della coda in cui sono state accodate.
+    private void processBatch(List<Object> batch) {
+        Map<Long, UserAnswerModel> answers = new LinkedHashMap<>();
+        List<FlushRequest> flushRequests = new ArrayList<>();
+        boolean pendingWritten = true;
+
+        for (Object entry : batch) {
+            if (entry instanceof UserAnswerModel answer) {
+                long key = ((long) answer.getUserId() << 32) | (answer.getQuestionId() & 0xFFFFFFFFL);
+                answers.remove(key);
+                answers.put(key, answer);
+            } else if (entry instanceof FlushRequest request && request.session == null) {
+                flushRequests.add(request);
+            } else if (entry instanceof FlushRequest request) {
+                pendingWritten &= writePending(answers);
+                request.done.complete(commitWithRetry(request.session));
+            }
+        }
+
+        boolean written = writePending(answers) && pendingWritten;
+        flushRequests.forEach(request -> request.done.complete(written));
+    }
+
+    private boolean writePending(Map<Long, UserAnswerModel> answers) {
+        if (answers.isEmpty()) {
+            return true;
+        }
+        List<UserAnswerModel> pending = new ArrayList<>(answers.values());
+        answers.clear();
+        boolean written = withRetry(() -> QueryDAO.updateUserAnswers(pending), pending.size());
+        if (!written) {
+            logger.error("Risposte perse dopo {} tentativi: {}", MAX_WRITE_ATTEMPTS, pending);
+        }
+        return written;
+    }
+
+    private void writeWithRetry(List<UserAnswerModel> answers) {
+        if (!withRetry(() -> QueryDAO.updateUserAnswers(answers), answers.size())) {
+            logger.error("Risposte perse dopo {} tentativi: {}", MAX_WRITE_ATTEMPTS, answers);
+        }
+    }
+
+    private boolean commitWithRetry(QuizSessionModel session) {
+        boolean written = withRetry(() -> QueryDAO.commitQuizSession(session), session.getAnswers().size());
+        if (written) {
+            sessions.incrementAndGet();
+        } else {
+            logger.error("Sessione persa dopo {} tentativi: {}", MAX_WRITE_ATTEMPTS, session);
+        }
+        return written;
+    }
+
+    private boolean withRetry(JournalWrite write, int rows) {
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            long start = System.nanoTime();
+            try {
+                write.run();
+                recordFlush(System.nanoTime() - start, rows);
+                return true;
+            } catch (SQLException e) {
+                failures.incrementAndGet();
+                logger.warn("Scrittura di {} risposte fallita (tentativo {}/{}): {}",
+                        rows, attempt, MAX_WRITE_ATTEMPTS, e.getMessage());
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    break;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void recordFlush(long nanos, int rows) {
+        written.addAndGet(rows);
+        batches.incrementAndGet();
+        totalFlushNanos.addAndGet(nanos);
+        lastFlushNanos = nanos;
+        if (nanos > maxFlushNanos) {
+            maxFlushNanos = nanos;
+        }
+    }
+
+    /**
+     * Restituisce un'istantanea delle statistiche del journal.
+     */
+    public JournalStats getStats() {
+        long batchCount = batches.get();
+        return new JournalStats(
+                queue.size(),
+                enqueued.get(),
+                written.get(),
+                batchCount,
+                failures.get(),
+                sessions.get(),
+                lastFlushNanos / 1_000_000.0,
+                maxFlushNanos / 1_000_000.0,
+                batchCount == 0 ? 0.0 : totalFlushNanos.get() / 1_000_000.0 / batchCount);
+    }
+
+    /**
+     * Statistiche del journal.
+     *
+     * @param queueDepth       elementi in attesa di scrittura
+     * @param enqueued         risposte accodate dall'avvio
+     * @param written          righe scritte (dopo l'unione dei duplicati)
+     * @param batches          transazioni eseguite
+     * @param failures         tentativi di scrittura falliti
+     * @param sessions         sessioni di test salvate
+     * @param lastFlushMillis  durata dell'ultima transazione
+     * @param maxFlushMillis   durata massima di una transazione
+     * @param avgFlushMillis   durata media di una transazione
+     */
+    public record JournalStats(int queueDepth, long enqueued, long written, long batches, long failures, long sessions,
+                               double lastFlushMillis, double maxFlushMillis, double avgFlushMillis) {
+    }
+
+    // Richiesta di flush: completata dopo la scrittura degli elementi che la precedono.
+    // Se contiene una sessione, questa viene salvata nella stessa posizione della coda.
+    private static final class FlushRequest {
+        private final QuizSessionModel session;
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        private FlushRequest(QuizSessionModel session) {
+            this.session = session;
+        }
+    }
+
+    @FunctionalInterface
+    private interface JournalWrite {
+        void run() throws SQLException;
+    }
+}
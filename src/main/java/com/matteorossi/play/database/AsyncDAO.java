@@ -0,0 +1,137 @@
+package com.matteorossi.play.database;
+
+import com.matteorossi.play.models.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Facciata asincrona di {@link QueryDAO}.
+ * Ogni chiamata viene eseguita su un virtual thread e restituisce un {@link CompletableFuture},
+ * così query SQLite e controlli BCrypt non bloccano mai il thread JavaFX.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Un virtual thread per operazione: l'attesa della connessione dal pool non occupa thread di sistema</li>
+ *   <li>Le {@link SQLException} arrivano al chiamante come causa di una {@link CompletionException}</li>
+ *   <li>Metodi tipizzati per le letture usate dalle schermate, {@link #supply(SqlCall)} e {@link #run(SqlTask)} per il resto</li>
+ * </ul>
+ *
+ * <p>Per riportare il risultato sul thread JavaFX usare {@code FxAsync}.</p>
+ *
+ * @see QueryDAO Implementazione sincrona delle query
+ * @see com.matteorossi.play.utilitis.FxAsync Consegna dei risultati all'interfaccia
+ */
+public class AsyncDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDAO.class);
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 3000;
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private AsyncDAO() {
+    }
+
+    /**
+     * Operazione sul database che restituisce un valore.
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * Operazione sul database senza valore di ritorno.
+     */
+    @FunctionalInterface
+    public interface SqlTask {
+        void run() throws SQLException;
+    }
+
+    // Esegue l'operazione su un virtual thread
+    public static <T> CompletableFuture<T> supply(SqlCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    public static CompletableFuture<Void> run(SqlTask task) {
+        return supply(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    // Letture usate dalle schermate
+
+    public static CompletableFuture<List<LanguagesModel>> getLanguagesIdName() {
+        return supply(QueryDAO::getLanguagesIdName);
+    }
+
+    public static CompletableFuture<List<ThemsModel>> getThemIdName() {
+        return supply(QueryDAO::getThemIdName);
+    }
+
+    public static CompletableFuture<List<DifficultyModel>> getDifficultIdName() {
+        return supply(QueryDAO::getDifficultIdName);
+    }
+
+    public static CompletableFuture<List<DifficultyModel>> getDifficulty() {
+        return supply(QueryDAO::getDifficulty);
+    }
+
+    public static CompletableFuture<List<LanguagesModel>> getLanguages() {
+        return supply(QueryDAO::getLanguages);
+    }
+
+    public static CompletableFuture<List<CategoryModel>> getCategories() {
+        return supply(QueryDAO::getCategories);
+    }
+
+    public static CompletableFuture<List<UserModel>> getAllUsers() {
+        return supply(QueryDAO::getAllUsers);
+    }
+
+    public static CompletableFuture<List<AdminModel>> getAdmin() {
+        return supply(QueryDAO::getAdmin);
+    }
+
+    public static CompletableFuture<List<QuestionModel>> getQuestions(int themeId, int languageId, int difficultyId) {
+        return supply(() -> QueryDAO.getQuestions(themeId, languageId, difficultyId));
+    }
+
+    public static CompletableFuture<ProgressSnapshot> getProgressSnapshot(int userId) {
+        return supply(() -> QueryDAO.getProgressSnapshot(userId));
+    }
+
+    public static CompletableFuture<Boolean> isUsernameUnique(String username) {
+        return supply(() -> QueryDAO.isUsernameUnique(username));
+    }
+
+    /**
+     * Attende la fine delle operazioni in corso, da chiamare allo shutdown
+     * prima di chiudere il pool di connessioni.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+        try {
+            if (!EXECUTOR.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Operazioni asincrone ancora in corso allo shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
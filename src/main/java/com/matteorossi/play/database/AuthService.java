@@ -0,0 +1,187 @@
+package com.matteorossi.play.database;
+
+import com.matteorossi.play.models.SessionPrincipal;
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autenticazione di utenti e amministratori con una sola query e una sola verifica BCrypt.
+ * La query legge id, hash, flag di reset e ruolo da users e admins insieme; la verifica
+ * dell'hash gira su un pool di thread limitato, separato dai virtual thread di {@link AsyncDAO}.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Un solo round trip al database per login</li>
+ *   <li>Una sola verifica BCrypt; due solo se lo stesso nome esiste sia tra gli utenti sia tra gli admin</li>
+ *   <li>Al massimo {@code play.auth.threads} verifiche in parallelo e {@value #QUEUE_SIZE} in attesa,
+ *       oltre le quali il login viene rifiutato</li>
+ *   <li>Hash con costo diverso da {@code play.auth.bcryptCost} ricalcolati dopo un login riuscito,
+ *       senza rallentare la risposta</li>
+ * </ul>
+ *
+ * <p>Configurazione tramite proprietà di sistema:</p>
+ * <ul>
+ *   <li>{@code play.auth.bcryptCost} - costo di BCrypt per i nuovi hash (default {@value #DEFAULT_COST})</li>
+ *   <li>{@code play.auth.threads} - thread dedicati a BCrypt (default metà dei core, almeno uno)</li>
+ * </ul>
+ *
+ * @see SessionPrincipal Esito del login
+ */
+public class AuthService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+
+    public static final int DEFAULT_COST = 10;
+    private static final int QUEUE_SIZE = 32;
+
+    private static final int COST = Integer.getInteger("play.auth.bcryptCost", DEFAULT_COST);
+
+    private static final ThreadPoolExecutor HASHING = newHashingPool(
+            Integer.getInteger("play.auth.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+
+    private static final QueryMetrics.Operation AUTHENTICATE = QueryMetrics.operation("AuthService", "authenticate");
+    private static final QueryMetrics.Operation FIND_CREDENTIALS = QueryMetrics.operation("AuthService", "findCredentials");
+    private static final QueryMetrics.Operation VERIFY_PASSWORD = QueryMetrics.operation("AuthService", "verifyPassword");
+    private static final QueryMetrics.Operation REHASH = QueryMetrics.operation("AuthService", "rehash");
+
+    // Utente prima dell'admin, come nel controllo originale
+    private static final String SELECT_CREDENTIALS = """
+            SELECT id, password, isReset, 'USER' AS role FROM users WHERE username = ?
+            UNION ALL
+            SELECT id, password, 0 AS isReset, 'ADMIN' AS role FROM admins WHERE username = ?
+            ORDER BY role DESC
+            """;
+
+    /**
+     * Credenziali lette dal database per un nome utente.
+     */
+    record Credentials(int id, String hash, boolean reset, SessionPrincipal.Role role) {
+    }
+
+    private AuthService() {
+    }
+
+    private static ThreadPoolExecutor newHashingPool(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), Thread.ofPlatform().name("bcrypt-", 0).daemon().factory());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Verifica le credenziali. Il future restituisce il principal della sessione, oppure null se
+     * l'utente non esiste o la password è errata; termina con un errore se il database non risponde
+     * o se ci sono già troppi login in corso ({@link RejectedExecutionException}).
+     */
+    public static CompletableFuture<SessionPrincipal> authenticate(String username, String password) {
+        QueryMetrics.Timer timer = AUTHENTICATE.start();
+        return AsyncDAO.supply(() -> findCredentials(username))
+                .thenCompose(candidates -> submitVerify(username, password, candidates))
+                .whenComplete((principal, error) -> {
+                    timer.close();
+                    if (error != null) {
+                        AUTHENTICATE.failed(error);
+                        logger.error("Errore nel login di {}: {}", username, error.getMessage());
+                    }
+                });
+    }
+
+    // Hash di una nuova password con il costo configurato
+    public static String hashPassword(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(COST));
+    }
+
+    static List<Credentials> findCredentials(String username) throws SQLException {
+        try (QueryMetrics.Timer timer = FIND_CREDENTIALS.start()) {
+            return Rows.list(SELECT_CREDENTIALS, stmt -> {
+                stmt.setString(1, username);
+                stmt.setString(2, username);
+            }, RowMappers.CREDENTIALS);
+        } catch (SQLException e) {
+            throw FIND_CREDENTIALS.failed(e);
+        }
+    }
+
+    // Il rifiuto del pool pieno diventa l'errore del future
+    private static CompletableFuture<SessionPrincipal> submitVerify(String username, String password, List<Credentials> candidates) {
+        if (candidates.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(username, password, candidates), HASHING);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static SessionPrincipal verify(String username, String password, List<Credentials> candidates) {
+        for (Credentials credentials : candidates) {
+            if (checkPassword(password, credentials.hash())) {
+                if (costOf(credentials.hash()) != COST) {
+                    scheduleRehash(credentials, password);
+                }
+                return new SessionPrincipal(credentials.id(), username, credentials.role(), credentials.reset());
+            }
+        }
+        return null;
+    }
+
+    private static boolean checkPassword(String password, String hash) {
+        try (QueryMetrics.Timer timer = VERIFY_PASSWORD.start()) {
+            return hash != null && BCrypt.checkpw(password, hash);
+        } catch (IllegalArgumentException e) {
+            VERIFY_PASSWORD.failed(e);
+            logger.warn("Hash della password non valido: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // Costo contenuto nell'hash ($2a$10$...), -1 se il formato non è riconosciuto
+    static int costOf(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Ricalcola l'hash con il costo configurato dopo aver già risposto al login.
+     * L'aggiornamento avviene solo se l'hash nel database è ancora quello verificato;
+     * se il pool è pieno si riproverà al login successivo.
+     */
+    private static void scheduleRehash(Credentials credentials, String password) {
+        String table = credentials.role() == SessionPrincipal.Role.ADMIN ? "admins" : "users";
+        String query = "UPDATE " + table + " SET password = ? WHERE id = ? AND password = ?";
+        try {
+            HASHING.execute(() -> {
+                try (QueryMetrics.Timer timer = REHASH.start();
+                     Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setString(1, hashPassword(password));
+                    stmt.setInt(2, credentials.id());
+                    stmt.setString(3, credentials.hash());
+                    if (stmt.executeUpdate() > 0) {
+                        logger.info("Hash della password aggiornato al costo {} ({} {})", COST, table, credentials.id());
+                    }
+                } catch (SQLException e) {
+                    REHASH.failed(e);
+                    logger.error("Errore nell'aggiornamento dell'hash ({} {}): {}", table, credentials.id(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Aggiornamento dell'hash rimandato: pool BCrypt pieno");
+        }
+    }
+}
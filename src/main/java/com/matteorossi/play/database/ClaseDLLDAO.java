@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 /**
  * Classe per la gestione delle operazioni DDL (Data Definition Language) del database.
@@ -17,15 +18,313 @@ import java.sql.Statement;
  *   <li>Creazione dello schema del database con tutte le tabelle necessarie</li>
  *   <li>Eliminazione completa dello schema per ripristino iniziale</li>
  *   <li>Gestione delle relazioni tra tabelle tramite foreign key</li>
+ *   <li>Migrazioni versionate dello schema (indici e nuove strutture)</li>
  * </ul>
  *
  * @see DatabaseConnection Classe per la gestione della connessione al database
+ * @see SchemaMigrator Motore delle migrazioni
  */
 public class ClaseDLLDAO {
 
     // Gestione degli errori
     private static final Logger logger = LoggerFactory.getLogger(ClaseDLLDAO.class);
 
+    // Metriche per operazione, pubblicate su JMX da QueryMetrics
+    private static final QueryMetrics.Operation CREATE_TABLE_USER = QueryMetrics.operation("ClaseDLLDAO", "createTableUser");
+    private static final QueryMetrics.Operation CREATE_TABLE_ADMIN = QueryMetrics.operation("ClaseDLLDAO", "createTableAdmin");
+    private static final QueryMetrics.Operation CREATE_TABLE_LANGUAGES = QueryMetrics.operation("ClaseDLLDAO", "createTableLanguages");
+    private static final QueryMetrics.Operation CREATE_TABLE_THEMES = QueryMetrics.operation("ClaseDLLDAO", "createTableThemes");
+    private static final QueryMetrics.Operation CREATE_TABLE_DIFFICULTIES = QueryMetrics.operation("ClaseDLLDAO", "createTableDifficulties");
+    private static final QueryMetrics.Operation CREATE_TABLE_QUESTIONS = QueryMetrics.operation("ClaseDLLDAO", "createTableQuestions");
+    private static final QueryMetrics.Operation CREATE_TABLE_USER_PROGRESS = QueryMetrics.operation("ClaseDLLDAO", "createTableUserProgress");
+    private static final QueryMetrics.Operation USER_ANSWERS = QueryMetrics.operation("ClaseDLLDAO", "userAnswers");
+    private static final QueryMetrics.Operation DELETE_ALL_TABLES = QueryMetrics.operation("ClaseDLLDAO", "deleteAllTables");
+    private static final QueryMetrics.Operation GENERATE_DB = QueryMetrics.operation("ClaseDLLDAO", "generateDB");
+    private static final QueryMetrics.Operation MIGRATE_SCHEMA = QueryMetrics.operation("ClaseDLLDAO", "migrateSchema");
+    private static final QueryMetrics.Operation REBUILD_COMPLETION_COUNTERS = QueryMetrics.operation("ClaseDLLDAO", "rebuildCompletionCounters");
+
+    // DDL delle tabelle, eseguite singolarmente dai metodi createTable* o tutte insieme da generateDB
+    private static final String USERS_TABLE = """
+            CREATE TABLE IF NOT EXISTS users (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                username TEXT NOT NULL UNIQUE,
+                password TEXT NOT NULL,
+                first_name TEXT NOT NULL,
+                last_name TEXT NOT NULL,
+                telegram_id TEXT NOT NULL,
+                isReset BOOLEAN NOT NULL DEFAULT 0
+            );
+            """;
+
+    private static final String ADMINS_TABLE = """
+            CREATE TABLE IF NOT EXISTS admins (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                username TEXT NOT NULL UNIQUE,
+                password TEXT NOT NULL,
+                first_name TEXT NOT NULL,
+                last_name TEXT NOT NULL
+            );
+            """;
+
+    private static final String LANGUAGES_TABLE = """
+            CREATE TABLE IF NOT EXISTS languages (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                name TEXT NOT NULL UNIQUE
+            );
+            """;
+
+    private static final String THEMES_TABLE = """
+            CREATE TABLE IF NOT EXISTS themes (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                name TEXT NOT NULL UNIQUE
+            );
+            """;
+
+    private static final String DIFFICULTIES_TABLE = """
+            CREATE TABLE IF NOT EXISTS difficulties (
+            id INTEGER PRIMARY KEY AUTOINCREMENT,
+            name TEXT NOT NULL UNIQUE,
+            levelDifficulty INTEGER NOT NULL UNIQUE
+            );
+            """;
+
+    private static final String QUESTIONS_TABLE = """
+            CREATE TABLE IF NOT EXISTS questions (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                language_id INTEGER NOT NULL, -- Riferimento al linguaggio
+                theme_id INTEGER NOT NULL, -- Riferimento al tema
+                difficulty_id INTEGER NOT NULL, -- Riferimento alla difficoltà
+                question_type TEXT NOT NULL CHECK (question_type IN ('multiple_choice', 'code')), -- Tipo di domanda
+                question TEXT NOT NULL,
+                option_a TEXT, -- Solo per scelta multipla
+                option_b TEXT,
+                option_c TEXT,
+                option_d TEXT,
+                correct_option TEXT, -- Solo per scelta multipla
+                code_solution TEXT, -- Solo per domande con codice
+                FOREIGN KEY (language_id) REFERENCES languages (id),
+                FOREIGN KEY (theme_id) REFERENCES themes (id),
+                FOREIGN KEY (difficulty_id) REFERENCES difficulties (id)
+            );
+            """;
+
+    private static final String USER_PROGRESS_TABLE = """
+            CREATE TABLE IF NOT EXISTS user_progress (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                user_id INTEGER NOT NULL, -- Riferimento all'utente
+                language_id INTEGER NOT NULL, -- Riferimento al linguaggio
+                theme_id INTEGER NOT NULL, -- Riferimento alla categoria
+                difficulty_id INTEGER NOT NULL, -- Riferimento alla difficoltà
+                score INTEGER DEFAULT 0, -- Punteggio accumulato
+                FOREIGN KEY (user_id) REFERENCES users (id),
+                FOREIGN KEY (language_id) REFERENCES languages (id),
+                FOREIGN KEY (theme_id) REFERENCES themes (id),
+                FOREIGN KEY (difficulty_id) REFERENCES difficulties (id),
+                CONSTRAINT unique_progress UNIQUE (user_id, theme_id, language_id, difficulty_id)
+            );
+            """;
+
+    private static final String USER_ANSWERS_TABLE = """
+            CREATE TABLE IF NOT EXISTS user_answers (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                user_id INTEGER NOT NULL, -- Riferimento all'utente
+                question_id INTEGER NOT NULL, -- Riferimento alla domanda
+                is_correct BOOLEAN NOT NULL, -- Indica se la risposta è corretta
+                FOREIGN KEY (user_id) REFERENCES users (id),
+                FOREIGN KEY (question_id) REFERENCES questions (id),
+                CONSTRAINT unique_answer UNIQUE (user_id, question_id)
+            );
+            """;
+
+    // Tabelle nell'ordine di creazione: ognuna dopo quelle a cui fa riferimento
+    private static final List<String> TABLES = List.of(USERS_TABLE, ADMINS_TABLE, LANGUAGES_TABLE, THEMES_TABLE,
+            DIFFICULTIES_TABLE, QUESTIONS_TABLE, USER_PROGRESS_TABLE, USER_ANSWERS_TABLE);
+
+    // Ricalcolo completo dei totali di domande per linguaggio, tema e difficoltà
+    private static final String REBUILD_QUESTION_TOTALS = """
+            INSERT INTO question_totals (language_id, theme_id, difficulty_id, total)
+            SELECT language_id, theme_id, difficulty_id, COUNT(*)
+            FROM questions
+            GROUP BY language_id, theme_id, difficulty_id
+            """;
+
+    // Ricalcolo completo delle risposte corrette per utente, linguaggio, tema e difficoltà
+    private static final String REBUILD_USER_COMPLETION = """
+            INSERT INTO user_completion (user_id, language_id, theme_id, difficulty_id, correct)
+            SELECT ua.user_id, q.language_id, q.theme_id, q.difficulty_id, COUNT(*)
+            FROM user_answers ua
+            JOIN questions q ON q.id = ua.question_id
+            WHERE ua.is_correct = 1
+            GROUP BY ua.user_id, q.language_id, q.theme_id, q.difficulty_id
+            """;
+
+    /**
+     * Migrazioni dello schema in ordine di versione.
+     * Le nuove modifiche allo schema vanno aggiunte in coda con la versione successiva,
+     * senza modificare quelle già rilasciate.
+     */
+    static final List<SchemaMigrator.Migration> MIGRATIONS = List.of(
+            // QueryDAO.getQuestions e completamento per linguaggio
+            new SchemaMigrator.Migration(1, "Indice composito sulle domande per linguaggio, tema e difficoltà",
+                    "CREATE INDEX IF NOT EXISTS idx_questions_language_theme_difficulty ON questions (language_id, theme_id, difficulty_id)"),
+            // Join delle percentuali di completamento: copre user_id, question_id e is_correct
+            new SchemaMigrator.Migration(2, "Indice coprente sulle risposte degli utenti",
+                    "CREATE INDEX IF NOT EXISTS idx_user_answers_user_question_correct ON user_answers (user_id, question_id, is_correct)"),
+            // QueryDAO.getPlayerRanking: somma dei punteggi per utente senza leggere la tabella
+            new SchemaMigrator.Migration(3, "Indice coprente sui progressi per la classifica",
+                    "CREATE INDEX IF NOT EXISTS idx_user_progress_user_score ON user_progress (user_id, score)"),
+            // QueryDAO.commitQuizSession: l'UPSERT richiede l'unicità anche sui database creati
+            // prima del vincolo unique_progress; eventuali duplicati vengono fusi sommando i punteggi
+            new SchemaMigrator.Migration(4, "Unicità dei progressi per utente, tema, linguaggio e difficoltà",
+                    """
+                    UPDATE user_progress
+                    SET score = (SELECT SUM(p.score) FROM user_progress p
+                                 WHERE p.user_id = user_progress.user_id AND p.theme_id = user_progress.theme_id
+                                   AND p.language_id = user_progress.language_id AND p.difficulty_id = user_progress.difficulty_id)
+                    WHERE id IN (SELECT MIN(id) FROM user_progress
+                                 GROUP BY user_id, theme_id, language_id, difficulty_id HAVING COUNT(*) > 1)
+                    """,
+                    """
+                    DELETE FROM user_progress
+                    WHERE id NOT IN (SELECT MIN(id) FROM user_progress
+                                     GROUP BY user_id, theme_id, language_id, difficulty_id)
+                    """,
+                    "CREATE UNIQUE INDEX IF NOT EXISTS idx_user_progress_unique ON user_progress (user_id, theme_id, language_id, difficulty_id)"),
+            // Contatori materializzati per le percentuali di completamento: i trigger li aggiornano
+            // nella stessa transazione delle scritture su questions e user_answers
+            new SchemaMigrator.Migration(5, "Contatori materializzati di completamento",
+                    """
+                    CREATE TABLE IF NOT EXISTS question_totals (
+                        language_id INTEGER NOT NULL,
+                        theme_id INTEGER NOT NULL,
+                        difficulty_id INTEGER NOT NULL,
+                        total INTEGER NOT NULL DEFAULT 0, -- Domande presenti nel gruppo
+                        PRIMARY KEY (language_id, theme_id, difficulty_id)
+                    ) WITHOUT ROWID
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS user_completion (
+                        user_id INTEGER NOT NULL,
+                        language_id INTEGER NOT NULL,
+                        theme_id INTEGER NOT NULL,
+                        difficulty_id INTEGER NOT NULL,
+                        correct INTEGER NOT NULL DEFAULT 0, -- Domande del gruppo con risposta corretta
+                        PRIMARY KEY (user_id, language_id, theme_id, difficulty_id)
+                    ) WITHOUT ROWID
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_questions_totals_insert AFTER INSERT ON questions
+                    BEGIN
+                        INSERT INTO question_totals (language_id, theme_id, difficulty_id, total)
+                        VALUES (NEW.language_id, NEW.theme_id, NEW.difficulty_id, 1)
+                        ON CONFLICT(language_id, theme_id, difficulty_id) DO UPDATE SET total = total + 1;
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_questions_totals_delete AFTER DELETE ON questions
+                    BEGIN
+                        UPDATE question_totals SET total = total - 1
+                        WHERE language_id = OLD.language_id AND theme_id = OLD.theme_id AND difficulty_id = OLD.difficulty_id;
+                        UPDATE user_completion SET correct = correct - 1
+                        WHERE language_id = OLD.language_id AND theme_id = OLD.theme_id AND difficulty_id = OLD.difficulty_id
+                          AND user_id IN (SELECT user_id FROM user_answers WHERE question_id = OLD.id AND is_correct = 1);
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_user_answers_completion_insert AFTER INSERT ON user_answers
+                    WHEN NEW.is_correct = 1
+                    BEGIN
+                        INSERT INTO user_completion (user_id, language_id, theme_id, difficulty_id, correct)
+                        SELECT NEW.user_id, q.language_id, q.theme_id, q.difficulty_id, 1
+                        FROM questions q WHERE q.id = NEW.question_id
+                        ON CONFLICT(user_id, language_id, theme_id, difficulty_id) DO UPDATE SET correct = correct + 1;
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_user_answers_completion_correct AFTER UPDATE OF is_correct ON user_answers
+                    WHEN NEW.is_correct = 1 AND OLD.is_correct <> 1
+                    BEGIN
+                        INSERT INTO user_completion (user_id, language_id, theme_id, difficulty_id, correct)
+                        SELECT NEW.user_id, q.language_id, q.theme_id, q.difficulty_id, 1
+                        FROM questions q WHERE q.id = NEW.question_id
+                        ON CONFLICT(user_id, language_id, theme_id, difficulty_id) DO UPDATE SET correct = correct + 1;
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_user_answers_completion_wrong AFTER UPDATE OF is_correct ON user_answers
+                    WHEN OLD.is_correct = 1 AND NEW.is_correct <> 1
+                    BEGIN
+                        UPDATE user_completion SET correct = correct - 1
+                        WHERE user_id = OLD.user_id
+                          AND (language_id, theme_id, difficulty_id) =
+                              (SELECT q.language_id, q.theme_id, q.difficulty_id FROM questions q WHERE q.id = OLD.question_id);
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_user_answers_completion_delete AFTER DELETE ON user_answers
+                    WHEN OLD.is_correct = 1
+                    BEGIN
+                        UPDATE user_completion SET correct = correct - 1
+                        WHERE user_id = OLD.user_id
+                          AND (language_id, theme_id, difficulty_id) =
+                              (SELECT q.language_id, q.theme_id, q.difficulty_id FROM questions q WHERE q.id = OLD.question_id);
+                    END
+                    """,
+                    REBUILD_QUESTION_TOTALS,
+                    REBUILD_USER_COMPLETION),
+            // Totale dei punti per utente per la classifica, aggiornato dai trigger su user_progress
+            new SchemaMigrator.Migration(6, "Punteggi totali per la classifica",
+                    """
+                    CREATE TABLE IF NOT EXISTS user_scores (
+                        user_id INTEGER PRIMARY KEY, -- Riferimento all'utente
+                        total_score INTEGER NOT NULL DEFAULT 0 -- Somma dei punteggi in user_progress
+                    )
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_user_progress_scores_insert AFTER INSERT ON user_progress
+                    BEGIN
+                        INSERT INTO user_scores (user_id, total_score) VALUES (NEW.user_id, NEW.score)
+                        ON CONFLICT(user_id) DO UPDATE SET total_score = total_score + excluded.total_score;
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_user_progress_scores_update AFTER UPDATE OF score, user_id ON user_progress
+                    BEGIN
+                        UPDATE user_scores SET total_score = total_score - OLD.score WHERE user_id = OLD.user_id;
+                        INSERT INTO user_scores (user_id, total_score) VALUES (NEW.user_id, NEW.score)
+                        ON CONFLICT(user_id) DO UPDATE SET total_score = total_score + excluded.total_score;
+                    END
+                    """,
+                    """
+                    CREATE TRIGGER IF NOT EXISTS trg_user_progress_scores_delete AFTER DELETE ON user_progress
+                    BEGIN
+                        UPDATE user_scores SET total_score = total_score - OLD.score WHERE user_id = OLD.user_id;
+                    END
+                    """,
+                    """
+                    INSERT OR REPLACE INTO user_scores (user_id, total_score)
+                    SELECT user_id, COALESCE(SUM(score), 0) FROM user_progress GROUP BY user_id
+                    """),
+            // Notifiche Telegram scritte nella stessa transazione dei dati e consegnate da NotificationOutbox
+            new SchemaMigrator.Migration(7, "Outbox delle notifiche Telegram",
+                    """
+                    CREATE TABLE IF NOT EXISTS outbox (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT, -- Ordine di scrittura
+                        chat_id TEXT NOT NULL, -- Chat Telegram di destinazione
+                        message TEXT NOT NULL, -- Testo del messaggio
+                        status TEXT NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'SENT', 'FAILED')),
+                        attempts INTEGER NOT NULL DEFAULT 0, -- Tentativi di consegna fatti
+                        next_attempt_at INTEGER NOT NULL, -- Prossimo tentativo o fine della prenotazione (epoch ms)
+                        created_at INTEGER NOT NULL, -- Scrittura (epoch ms)
+                        sent_at INTEGER, -- Conferma di Telegram (epoch ms)
+                        last_error TEXT -- Errore dell'ultimo tentativo fallito
+                    )
+                    """,
+                    "CREATE INDEX IF NOT EXISTS idx_outbox_pending ON outbox(next_attempt_at, id) WHERE status = 'PENDING'")
+    );
+
+    private static final SchemaMigrator migrator = new SchemaMigrator(MIGRATIONS);
+
     /**
      * Crea la tabella 'users' con i campi:
      * <ul>
@@ -38,18 +337,7 @@ public class ClaseDLLDAO {
      * </ul>
      */
     public static void createTableUser() {
-        String query = """
-                CREATE TABLE IF NOT EXISTS users (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    username TEXT NOT NULL UNIQUE,
-                    password TEXT NOT NULL,
-                    first_name TEXT NOT NULL,
-                    last_name TEXT NOT NULL,
-                    telegram_id TEXT NOT NULL,
-                    isReset BOOLEAN NOT NULL DEFAULT 0
-                );
-                """;
-        executeQuery(query, "Utente");
+        executeQuery(USERS_TABLE, "Utente", CREATE_TABLE_USER);
     }
 
     /**
@@ -62,16 +350,7 @@ public class ClaseDLLDAO {
      * </ul>
      */
     public static void createTableAdmin() {
-        String query = """
-                CREATE TABLE IF NOT EXISTS admins (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    username TEXT NOT NULL UNIQUE,
-                    password TEXT NOT NULL,
-                    first_name TEXT NOT NULL,
-                    last_name TEXT NOT NULL
-                );
-                """;
-        executeQuery(query, "Admin");
+        executeQuery(ADMINS_TABLE, "Admin", CREATE_TABLE_ADMIN);
     }
 
     /**
@@ -82,13 +361,7 @@ public class ClaseDLLDAO {
      * </ul>
      */
     public static void createTableLanguages() {
-        String query = """
-                CREATE TABLE IF NOT EXISTS languages (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    name TEXT NOT NULL UNIQUE
-                );
-                """;
-        executeQuery(query, "Languages");
+        executeQuery(LANGUAGES_TABLE, "Languages", CREATE_TABLE_LANGUAGES);
     }
 
     /**
@@ -99,13 +372,7 @@ public class ClaseDLLDAO {
      * </ul>
      */
     public static void createTableThemes() {
-        String query = """
-                CREATE TABLE IF NOT EXISTS themes (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    name TEXT NOT NULL UNIQUE
-                );
-                """;
-        executeQuery(query, "Themes");
+        executeQuery(THEMES_TABLE, "Themes", CREATE_TABLE_THEMES);
     }
 
     /**
@@ -117,14 +384,7 @@ public class ClaseDLLDAO {
      * </ul>
      */
     public static void createTableDifficulties() {
-        String query = """
-                CREATE TABLE IF NOT EXISTS difficulties (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                name TEXT NOT NULL UNIQUE,
-                levelDifficulty INTEGER NOT NULL UNIQUE
-                );
-                """;
-        executeQuery(query, "Difficulties");
+        executeQuery(DIFFICULTIES_TABLE, "Difficulties", CREATE_TABLE_DIFFICULTIES);
     }
 
     /**
@@ -137,26 +397,7 @@ public class ClaseDLLDAO {
      * </ul>
      */
     public static void createTableQuestions() {
-        String query = """
-                CREATE TABLE IF NOT EXISTS questions (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    language_id INTEGER NOT NULL, -- Riferimento al linguaggio
-                    theme_id INTEGER NOT NULL, -- Riferimento al tema
-                    difficulty_id INTEGER NOT NULL, -- Riferimento alla difficoltà
-                    question_type TEXT NOT NULL CHECK (question_type IN ('multiple_choice', 'code')), -- Tipo di domanda
-                    question TEXT NOT NULL,
-                    option_a TEXT, -- Solo per scelta multipla
-                    option_b TEXT,
-                    option_c TEXT,
-                    option_d TEXT,
-                    correct_option TEXT, -- Solo per scelta multipla
-                    code_solution TEXT, -- Solo per domande con codice
-                    FOREIGN KEY (language_id) REFERENCES languages (id),
-                    FOREIGN KEY (theme_id) REFERENCES themes (id),
-                    FOREIGN KEY (difficulty_id) REFERENCES difficulties (id)
-                );
-                """;
-        executeQuery(query, "Questions");
+        executeQuery(QUESTIONS_TABLE, "Questions", CREATE_TABLE_QUESTIONS);
     }
 
     /**
@@ -169,22 +410,7 @@ public class ClaseDLLDAO {
      * </ul>
      */
     public static void createTableUserProgress() {
-        String query = """
-                CREATE TABLE IF NOT EXISTS user_progress (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    user_id INTEGER NOT NULL, -- Riferimento all'utente
-                    language_id INTEGER NOT NULL, -- Riferimento al linguaggio
-                    theme_id INTEGER NOT NULL, -- Riferimento alla categoria
-                    difficulty_id INTEGER NOT NULL, -- Riferimento alla difficoltà
-                    score INTEGER DEFAULT 0, -- Punteggio accumulato
-                    FOREIGN KEY (user_id) REFERENCES users (id),
-                    FOREIGN KEY (language_id) REFERENCES languages (id),
-                    FOREIGN KEY (theme_id) REFERENCES themes (id),
-                    FOREIGN KEY (difficulty_id) REFERENCES difficulties (id),
-                    CONSTRAINT unique_progress UNIQUE (user_id, theme_id, language_id, difficulty_id)
-                );
-                """;
-        executeQuery(query, "User Progress");
+        executeQuery(USER_PROGRESS_TABLE, "User Progress", CREATE_TABLE_USER_PROGRESS);
     }
 
     /**
@@ -195,18 +421,7 @@ public class ClaseDLLDAO {
      * </ul>
      */
     public static void userAnswers() {
-        String query = """
-                CREATE TABLE IF NOT EXISTS user_answers (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    user_id INTEGER NOT NULL, -- Riferimento all'utente
-                    question_id INTEGER NOT NULL, -- Riferimento alla domanda
-                    is_correct BOOLEAN NOT NULL, -- Indica se la risposta è corretta
-                    FOREIGN KEY (user_id) REFERENCES users (id),
-                    FOREIGN KEY (question_id) REFERENCES questions (id),
-                    CONSTRAINT unique_answer UNIQUE (user_id, question_id)
-                );
-                """;
-        executeQuery(query, "User Answers");
+        executeQuery(USER_ANSWERS_TABLE, "User Answers", USER_ANSWERS);
     }
 
 
@@ -219,13 +434,18 @@ public class ClaseDLLDAO {
      * </ol>
      */
     public static void deleteAllTables() {
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (QueryMetrics.Timer timer = DELETE_ALL_TABLES.start();
+             Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement()) {
 
             // Disattivo i vincoli per evitare errori durante l'eliminazione delle tabelle con chiavi esterne
             stmt.executeUpdate("PRAGMA foreign_keys = OFF;");
 
             // Elimino le tabelle in ordine
+            stmt.executeUpdate("DROP TABLE IF EXISTS outbox;");
+            stmt.executeUpdate("DROP TABLE IF EXISTS user_scores;");
+            stmt.executeUpdate("DROP TABLE IF EXISTS user_completion;");
+            stmt.executeUpdate("DROP TABLE IF EXISTS question_totals;");
             stmt.executeUpdate("DROP TABLE IF EXISTS user_progress;");
             stmt.executeUpdate("DROP TABLE IF EXISTS questions;");
             stmt.executeUpdate("DROP TABLE IF EXISTS difficulties;");
@@ -234,41 +454,120 @@ public class ClaseDLLDAO {
             stmt.executeUpdate("DROP TABLE IF EXISTS admins;");
             stmt.executeUpdate("DROP TABLE IF EXISTS users;");
 
+            // Le migrazioni andranno riapplicate alla prossima generazione
+            stmt.executeUpdate("PRAGMA user_version = 0;");
+
             // Riattivo i vincoli
             stmt.executeUpdate("PRAGMA foreign_keys = ON;");
 
-            System.out.println("Tutte le tabelle sono state eliminate con successo.");
+            ReferenceDataCache.getInstance().invalidate();
+            QuestionBucketCache.getInstance().invalidateAll();
+            Leaderboard.getInstance().invalidate();
+            logger.info("Tutte le tabelle sono state eliminate con successo");
         } catch (SQLException e) {
+            DELETE_ALL_TABLES.failed(e);
             logger.error("Errore durante l'eliminazione delle tabelle: {}", e.getMessage());
         }
     }
 
-    // Metodo per creare tutte le tabelle
+    /**
+     * Crea tutte le tabelle e applica le migrazioni usando una sola connessione.
+     * Le tabelle vengono create in un'unica transazione: o ci sono tutte o nessuna.
+     */
     public static void generateDB() {
-        try {
-            createTableUser();
-            createTableAdmin();
-            createTableLanguages();
-            createTableThemes();
-            createTableDifficulties();
-            createTableQuestions();
-            createTableUserProgress();
-            userAnswers();
-
-            System.out.println("Tutte le tabelle sono state create con successo.");
-        } catch (Exception e) {
-            logger.error("Errore durante la creazione delle tabelle: {}", e.getMessage());
+        try (QueryMetrics.Timer timer = GENERATE_DB.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            // Schema già aggiornato: nessuna DDL da eseguire all'avvio
+            if (migrator.isUpToDate(conn)) {
+                logger.info("Schema del database già aggiornato alla versione {}", migrator.getLatestVersion());
+                return;
+            }
+
+            createTables(conn);
+            logger.info("Tutte le tabelle sono state create con successo");
+
+            try (QueryMetrics.Timer migrationTimer = MIGRATE_SCHEMA.start()) {
+                int applied = migrator.migrate(conn);
+                logger.info("Migrazioni applicate: {} (versione schema {})", applied, migrator.getLatestVersion());
+            } catch (SQLException e) {
+                throw MIGRATE_SCHEMA.failed(e);
+            }
+        } catch (SQLException e) {
+            GENERATE_DB.failed(e);
+            logger.error("Errore durante la generazione dello schema: {}", e.getMessage());
+        }
+    }
+
+    // Esegue tutte le CREATE TABLE nella stessa transazione
+    private static void createTables(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : TABLES) {
+                stmt.executeUpdate(table);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Applica le migrazioni mancanti
+    public static void migrateSchema() {
+        try (QueryMetrics.Timer timer = MIGRATE_SCHEMA.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            int applied = migrator.migrate(conn);
+            logger.info("Migrazioni applicate: {} (versione schema {})", applied, migrator.getLatestVersion());
+        } catch (SQLException e) {
+            MIGRATE_SCHEMA.failed(e);
+            logger.error("Errore durante la migrazione dello schema: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ricalcola da zero i contatori di completamento a partire da questions e user_answers.
+     * Da usare per riparare i contatori dopo modifiche fatte fuori dall'applicazione.
+     *
+     * @return true se il ricalcolo è andato a buon fine
+     */
+    public static boolean rebuildCompletionCounters() {
+        try (QueryMetrics.Timer timer = REBUILD_COMPLETION_COUNTERS.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM question_totals");
+                stmt.executeUpdate("DELETE FROM user_completion");
+                stmt.executeUpdate(REBUILD_QUESTION_TOTALS);
+                stmt.executeUpdate(REBUILD_USER_COMPLETION);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            logger.info("Contatori di completamento ricalcolati con successo");
+            return true;
+        } catch (SQLException e) {
+            REBUILD_COMPLETION_COUNTERS.failed(e);
+            logger.error("Errore durante il ricalcolo dei contatori di completamento: {}", e.getMessage());
+            return false;
         }
     }
 
     // Metodo di utilità per eseguire le query di creazione delle tabelle
-    private static void executeQuery(String query, String tableName) {
-        try (Connection conn = DatabaseConnection.getConnection();
+    private static void executeQuery(String query, String tableName, QueryMetrics.Operation operation) {
+        try (QueryMetrics.Timer timer = operation.start();
+             Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement()) {
 
             stmt.executeUpdate(query);
             System.out.println("Table " + tableName + " created successfully.");
         } catch (SQLException e) {
+            operation.failed(e);
             logger.error("Errore nella creazione della tabella " + tableName + ": {}", e.getMessage());
         }
     }
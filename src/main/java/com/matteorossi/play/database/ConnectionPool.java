@@ -0,0 +1,316 @@
+package com.matteorossi.play.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool di connessioni SQLite a lunga durata.
+ * Sostituisce l'apertura di una nuova connessione tramite {@link DriverManager} ad ogni query:
+ * le connessioni fisiche vengono create una sola volta e riutilizzate.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Dimensione massima configurabile</li>
+ *   <li>Validazione della connessione al momento del prestito</li>
+ *   <li>PRAGMA applicati una sola volta alla creazione della connessione fisica</li>
+ *   <li>Cache dei PreparedStatement per ogni connessione fisica ({@link StatementCache})</li>
+ *   <li>Statistiche di utilizzo tramite {@link #getStats()}</li>
+ * </ul>
+ *
+ * <p>Le connessioni restituite da {@link #borrow()} sono proxy: la chiamata a {@code close()}
+ * restituisce la connessione al pool invece di chiuderla, quindi il codice esistente
+ * basato su try-with-resources continua a funzionare senza modifiche.</p>
+ *
+ * @see DatabaseConnection Punto di accesso al pool
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    // PRAGMA applicati ad ogni nuova connessione fisica
+    private static final List<String> CONNECTION_PRAGMAS = List.of(
+            "PRAGMA journal_mode = WAL",
+            "PRAGMA synchronous = NORMAL",
+            "PRAGMA busy_timeout = 5000",
+            "PRAGMA temp_store = MEMORY",
+            "PRAGMA cache_size = -8000"
+    );
+
+    // Secondi concessi a isValid() durante la validazione
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final String url;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+
+    private final LinkedBlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    // Statistiche
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    public ConnectionPool(String url, int maxSize, long borrowTimeoutMillis, int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("La dimensione del pool deve essere almeno 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Prende in prestito una connessione dal pool, creandone una nuova se necessario.
+     * La connessione va chiusa (con try-with-resources) per restituirla al pool.
+     *
+     * @return connessione valida e in modalità auto-commit
+     * @throws SQLException se il pool è chiuso, se scade il timeout o se la connessione non può essere creata
+     */
+    public Connection borrow() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Il pool di connessioni è chiuso");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timeout nell'attesa di una connessione libera (" + borrowTimeoutMillis + " ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attesa della connessione interrotta", e);
+        }
+
+        try {
+            PhysicalConnection physical = takeValidConnection();
+            borrowCount.incrementAndGet();
+            totalWaitNanos.addAndGet(System.nanoTime() - start);
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Estrae una connessione libera valida o ne crea una nuova
+    private PhysicalConnection takeValidConnection() throws SQLException {
+        PhysicalConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            if (isUsable(candidate.connection)) {
+                return candidate;
+            }
+            validationFailures.incrementAndGet();
+            discard(candidate);
+        }
+        return createConnection();
+    }
+
+    private boolean isUsable(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PhysicalConnection createConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement stmt = connection.createStatement()) {
+            for (String pragma : CONNECTION_PRAGMAS) {
+                stmt.execute(pragma);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        openConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        logger.debug("Nuova connessione SQLite creata ({} aperte)", openConnections.get());
+        return new PhysicalConnection(connection,
+                new StatementCache(connection, statementCacheSize, statementHits, statementMisses));
+    }
+
+    // Chiamato dal proxy quando il chiamante chiude la connessione
+    private void release(PhysicalConnection physical) {
+        try {
+            physical.statements.releaseAll();
+            if (closed.get() || physical.connection.isClosed()) {
+                discard(physical);
+                return;
+            }
+            // Una transazione lasciata aperta non deve passare al prossimo utilizzatore
+            if (!physical.connection.getAutoCommit()) {
+                physical.connection.rollback();
+                physical.connection.setAutoCommit(true);
+            }
+            idle.offerFirst(physical);
+        } catch (SQLException e) {
+            logger.warn("Connessione scartata durante la restituzione al pool: {}", e.getMessage());
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PhysicalConnection physical) {
+        physical.statements.closeAll();
+        try {
+            physical.connection.close();
+        } catch (SQLException e) {
+            logger.debug("Errore nella chiusura della connessione: {}", e.getMessage());
+        }
+        openConnections.decrementAndGet();
+    }
+
+    private Connection wrap(PhysicalConnection physical) {
+        PooledConnectionHandler handler = new PooledConnectionHandler(physical);
+        Connection proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                handler);
+        handler.proxy = proxy;
+        return proxy;
+    }
+
+    /**
+     * Restituisce un'istantanea delle statistiche del pool.
+     */
+    public PoolStats getStats() {
+        long borrows = borrowCount.get();
+        return new PoolStats(
+                maxSize,
+                openConnections.get(),
+                idle.size(),
+                maxSize - permits.availablePermits(),
+                borrows,
+                createdCount.get(),
+                validationFailures.get(),
+                timeoutCount.get(),
+                borrows == 0 ? 0 : totalWaitNanos.get() / borrows / 1_000,
+                statementHits.get(),
+                statementMisses.get());
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Chiude tutte le connessioni libere; quelle in uso vengono chiuse alla restituzione.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            PhysicalConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                discard(connection);
+            }
+            logger.info("Pool di connessioni chiuso: {}", getStats());
+        }
+    }
+
+    /**
+     * Statistiche del pool in un determinato istante.
+     *
+     * @param maxSize            dimensione massima del pool
+     * @param open               connessioni fisiche aperte
+     * @param idle               connessioni libere
+     * @param inUse              connessioni attualmente in prestito
+     * @param borrowCount        prestiti totali
+     * @param createdCount       connessioni fisiche create dall'avvio
+     * @param validationFailures connessioni scartate perché non valide
+     * @param timeouts           prestiti falliti per timeout
+     * @param avgWaitMicros      attesa media per un prestito, in microsecondi
+     * @param statementHits      PreparedStatement riutilizzati dalla cache
+     * @param statementMisses    PreparedStatement preparati da SQLite
+     */
+    public record PoolStats(int maxSize, int open, int idle, int inUse, long borrowCount, long createdCount,
+                            long validationFailures, long timeouts, long avgWaitMicros,
+                            long statementHits, long statementMisses) {
+
+        // Percentuale di statement serviti dalla cache
+        public double statementHitRate() {
+            long total = statementHits + statementMisses;
+            return total == 0 ? 0.0 : statementHits * 100.0 / total;
+        }
+    }
+
+    // Connessione fisica con la sua cache di statement
+    private record PhysicalConnection(Connection connection, StatementCache statements) {
+    }
+
+    // Proxy che intercetta close() e prepareStatement() sulla connessione fisica
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final PhysicalConnection physical;
+        private Connection proxy;
+        private boolean logicallyClosed = false;
+
+        private PooledConnectionHandler(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || physical.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical.connection + "]";
+                default:
+                    break;
+            }
+
+            if (logicallyClosed) {
+                throw new SQLException("Connessione già restituita al pool");
+            }
+
+            // Solo prepareStatement(String) passa dalla cache
+            if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+                return physical.statements.prepare(this.proxy, (String) args[0]);
+            }
+
+            try {
+                return method.invoke(physical.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
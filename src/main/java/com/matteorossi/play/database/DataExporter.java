@@ -0,0 +1,338 @@
+package com.matteorossi.play.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Esportazione in streaming delle tabelle {@code questions}, {@code user_answers} e {@code user_progress}.
+ * Le righe vengono lette da un cursore forward-only e scritte subito sul canale di uscita,
+ * quindi la memoria usata non dipende dalla dimensione della tabella.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Formati CSV (con intestazione) e JSON Lines</li>
+ *   <li>Scrittura bufferizzata, con compressione gzip opzionale</li>
+ *   <li>Callback di avanzamento ogni {@value #PROGRESS_INTERVAL} righe e alla fine</li>
+ *   <li>Lettura con un solo SELECT: l'esportazione vede un'istantanea coerente della tabella</li>
+ * </ul>
+ *
+ * @see QueryDAO#getAllQuestions() Lettura completa in memoria, da usare solo per elenchi piccoli
+ */
+public class DataExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExporter.class);
+
+    // Righe tra due chiamate della callback di avanzamento
+    public static final int PROGRESS_INTERVAL = 10_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Tabella esportabile con le sue colonne, nell'ordine della chiave primaria.
+     */
+    public enum Dataset {
+        QUESTIONS("questions", new Column[]{
+                Column.integer("id"), Column.integer("language_id"), Column.integer("theme_id"),
+                Column.integer("difficulty_id"), Column.text("question_type"), Column.text("question"),
+                Column.text("option_a"), Column.text("option_b"), Column.text("option_c"), Column.text("option_d"),
+                Column.text("correct_option"), Column.text("code_solution")}),
+        USER_ANSWERS("user_answers", new Column[]{
+                Column.integer("id"), Column.integer("user_id"), Column.integer("question_id"), Column.bool("is_correct")}),
+        USER_PROGRESS("user_progress", new Column[]{
+                Column.integer("id"), Column.integer("user_id"), Column.integer("language_id"),
+                Column.integer("theme_id"), Column.integer("difficulty_id"), Column.integer("score")});
+
+        private final String table;
+        private final Column[] columns;
+
+        Dataset(String table, Column[] columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+
+        private String selectQuery() {
+            StringBuilder query = new StringBuilder("SELECT ");
+            for (int i = 0; i < columns.length; i++) {
+                query.append(i == 0 ? "" : ", ").append(columns[i].name);
+            }
+            return query.append(" FROM ").append(table).append(" ORDER BY id").toString();
+        }
+
+        // Accetta il nome della tabella, ad esempio "user_answers"
+        public static Dataset fromName(String name) {
+            for (Dataset dataset : values()) {
+                if (dataset.table.equalsIgnoreCase(name) || dataset.name().equalsIgnoreCase(name)) {
+                    return dataset;
+                }
+            }
+            throw new IllegalArgumentException("Tabella non esportabile: " + name + " (questions, user_answers, user_progress)");
+        }
+    }
+
+    /**
+     * Formato del file di esportazione.
+     */
+    public enum Format {
+        CSV, JSONL;
+
+        // Deduce il formato dall'estensione, ignorando un eventuale .gz finale
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSONL;
+            }
+            throw new IllegalArgumentException("Formato non riconosciuto: " + fileName + " (usare .csv o .jsonl, con .gz opzionale)");
+        }
+    }
+
+    private enum Kind {INTEGER, TEXT, BOOLEAN}
+
+    private record Column(String name, Kind kind) {
+        static Column integer(String name) {
+            return new Column(name, Kind.INTEGER);
+        }
+
+        static Column text(String name) {
+            return new Column(name, Kind.TEXT);
+        }
+
+        static Column bool(String name) {
+            return new Column(name, Kind.BOOLEAN);
+        }
+    }
+
+    /**
+     * Esito dell'esportazione.
+     *
+     * @param dataset       tabella esportata
+     * @param rows          righe scritte
+     * @param elapsedMillis durata complessiva
+     */
+    public record ExportReport(Dataset dataset, long rows, long elapsedMillis) {
+
+        public double rowsPerSecond() {
+            return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT, "%s: %d righe esportate in %d ms (%.0f righe/s)",
+                    dataset.table, rows, elapsedMillis, rowsPerSecond());
+        }
+    }
+
+    private DataExporter() {
+    }
+
+    /**
+     * Esporta su file, deducendo formato e compressione dall'estensione
+     * (ad esempio {@code questions.jsonl.gz}).
+     */
+    public static ExportReport exportToFile(Dataset dataset, Path file, LongConsumer progress) throws IOException, SQLException {
+        String fileName = file.getFileName().toString();
+        Format format = Format.fromFileName(fileName);
+        boolean gzip = fileName.toLowerCase(Locale.ROOT).endsWith(".gz");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            return export(dataset, format, out, gzip, progress);
+        }
+    }
+
+    /**
+     * Esporta la tabella sul flusso indicato. Il flusso non viene chiuso.
+     *
+     * @param progress callback con il numero di righe scritte finora, può essere null
+     */
+    public static ExportReport export(Dataset dataset, Format format, OutputStream out, boolean gzip, LongConsumer progress)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        long rows = 0;
+
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(new NonClosingStream(out), BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(compressed != null ? compressed : new NonClosingStream(out), StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(dataset.selectQuery(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(1000);
+
+            if (format == Format.CSV) {
+                writeCsvHeader(writer, dataset.columns);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, rs, dataset.columns);
+                    } else {
+                        writeJsonRow(writer, rs, dataset.columns);
+                    }
+                    rows++;
+                    if (progress != null && rows % PROGRESS_INTERVAL == 0) {
+                        progress.accept(rows);
+                    }
+                }
+            }
+        } finally {
+            // Chiude writer e gzip (scrivendo il trailer) senza chiudere il flusso del chiamante
+            writer.close();
+        }
+
+        if (progress != null) {
+            progress.accept(rows);
+        }
+        ExportReport report = new ExportReport(dataset, rows, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Esportazione completata: {}", report.summary());
+        return report;
+    }
+
+    private static void writeCsvHeader(Writer writer, Column[] columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(columns[i].name);
+        }
+        writer.write('\n');
+    }
+
+    private static void writeCsvRow(Writer writer, ResultSet rs, Column[] columns) throws SQLException, IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = readValue(rs, i + 1, columns[i].kind);
+            if (value == null) {
+                continue;
+            }
+            if (columns[i].kind == Kind.TEXT) {
+                writeCsvText(writer, value);
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write('\n');
+    }
+
+    // Virgolette solo quando servono, raddoppiando quelle interne
+    private static void writeCsvText(Writer writer, String value) throws IOException {
+        boolean quote = value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeJsonRow(Writer writer, ResultSet rs, Column[] columns) throws SQLException, IOException {
+        writer.write('{');
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('"');
+            writer.write(columns[i].name);
+            writer.write("\":");
+            String value = readValue(rs, i + 1, columns[i].kind);
+            if (value == null) {
+                writer.write("null");
+            } else if (columns[i].kind == Kind.TEXT) {
+                writeJsonString(writer, value);
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("}\n");
+    }
+
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    // Valore della colonna come testo, null se nel database è NULL
+    private static String readValue(ResultSet rs, int index, Kind kind) throws SQLException {
+        switch (kind) {
+            case INTEGER -> {
+                long value = rs.getLong(index);
+                return rs.wasNull() ? null : Long.toString(value);
+            }
+            case BOOLEAN -> {
+                boolean value = rs.getBoolean(index);
+                return rs.wasNull() ? null : Boolean.toString(value);
+            }
+            default -> {
+                return rs.getString(index);
+            }
+        }
+    }
+
+    // Evita che la chiusura del writer chiuda il flusso passato dal chiamante
+    private static final class NonClosingStream extends OutputStream {
+        private final OutputStream delegate;
+
+        private NonClosingStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.flush();
+        }
+    }
+}
@@ -1,55 +1,114 @@
 package com.matteorossi.play.database;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Classe per la gestione della connessione al database SQLite.
- * Fornisce un metodo statico per ottenere una connessione al database,
+ * Fornisce un metodo statico per ottenere una connessione dal {@link ConnectionPool},
  * creando automaticamente il file e le directory necessari se non esistenti.
  *
  * <p>Caratteristiche principali:</p>
  * <ul>
- *   <li>Creazione automatica del file database se assente</li>
+ *   <li>Creazione automatica del file database se assente (una sola volta all'avvio)</li>
  *   <li>Gestione centralizzata della configurazione di connessione</li>
  *   <li>Supporto per il percorso relativo del database</li>
+ *   <li>Connessioni riutilizzate tramite pool</li>
  * </ul>
  *
- * @see DriverManager Classe JDBC per la gestione delle connessioni
+ * <p>Configurazione tramite proprietà di sistema:</p>
+ * <ul>
+ *   <li>{@code play.db.path} - percorso del file database (default {@code ~/.play-app/database.db})</li>
+ *   <li>{@code play.db.poolSize} - numero massimo di connessioni (default 4)</li>
+ *   <li>{@code play.db.borrowTimeoutMs} - attesa massima per una connessione libera (default 5000)</li>
+ *   <li>{@code play.db.statementCacheSize} - PreparedStatement in cache per connessione (default 64, 0 disattiva)</li>
+ * </ul>
+ *
+ * @see ConnectionPool Pool delle connessioni fisiche
  * @see Connection Interfaccia per le operazioni sul database
  */
 
 public class DatabaseConnection {
+    private static final String DEFAULT_APP_DIR = System.getProperty("user.home") + "/.play-app/";
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final long DEFAULT_BORROW_TIMEOUT_MS = 5000;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    private static volatile ConnectionPool pool;
+
+    // Il tempo di attesa della connessione è misurato in QueryMetrics.CONNECTION_ACQUISITION
     public static Connection getConnection() throws SQLException {
-        String userHome = System.getProperty("user.home");
-        String appDir = userHome + "/.play-app/";
-        String dbPath = appDir + "database.db";
+        try (QueryMetrics.Timer timer = QueryMetrics.CONNECTION_ACQUISITION.start()) {
+            return getPool().borrow();
+        } catch (SQLException e) {
+            throw QueryMetrics.CONNECTION_ACQUISITION.failed(e);
+        }
+    }
 
+    /**
+     * Inizializza il database: copia il file dal JAR se assente e crea il pool.
+     * Viene chiamato all'avvio; le chiamate successive non hanno effetto.
+     */
+    public static void init() throws SQLException {
+        getPool();
+    }
+
+    public static ConnectionPool getPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = pool;
+                if (current == null) {
+                    Path dbPath = getDatabasePath();
+                    bootstrapDatabaseFile(dbPath);
+                    current = new ConnectionPool("jdbc:sqlite:" + dbPath,
+                            Integer.getInteger("play.db.poolSize", DEFAULT_POOL_SIZE),
+                            Long.getLong("play.db.borrowTimeoutMs", DEFAULT_BORROW_TIMEOUT_MS),
+                            Integer.getInteger("play.db.statementCacheSize", DEFAULT_STATEMENT_CACHE_SIZE));
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public static Path getDatabasePath() {
+        return Paths.get(System.getProperty("play.db.path", DEFAULT_APP_DIR + "database.db"));
+    }
+
+    // Chiude il pool, usato allo shutdown
+    public static void shutdown() {
+        synchronized (DatabaseConnection.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
+    // Copia il database incluso nel JAR al primo avvio
+    private static void bootstrapDatabaseFile(Path dbPath) throws SQLException {
         try {
-            new File(appDir).mkdirs();
+            Path parent = dbPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
 
-            if (!new File(dbPath).exists()) {
+            if (!Files.exists(dbPath)) {
                 // Usa getResourceAsStream per accedere al file dentro il JAR
-                try (InputStream is = DatabaseConnection.class.getResourceAsStream("/data/database.db");
-                     OutputStream os = new FileOutputStream(dbPath)) {
-
+                try (InputStream is = DatabaseConnection.class.getResourceAsStream("/data/database.db")) {
                     if (is == null) {
                         throw new SQLException("Database non trovato nel JAR!");
                     }
-
-                    byte[] buffer = new byte[1024];
-                    int length;
-                    while ((length = is.read(buffer)) > 0) {
-                        os.write(buffer, 0, length);
-                    }
+                    Files.copy(is, dbPath);
                 }
             }
         } catch (IOException e) {
             throw new SQLException("Errore copia database: " + e.getMessage(), e);
         }
-
-        return DriverManager.getConnection("jdbc:sqlite:" + dbPath);
     }
 }
@@ -0,0 +1,465 @@
+package com.matteorossi.play.database;
+
+import com.matteorossi.play.utilitis.GlobalConfig;
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.LongConsumer;
+
+/**
+ * Generatore di dati sintetici su larga scala per lo schema di {@link ClaseDLLDAO}.
+ * A parità di {@link Spec} produce sempre lo stesso database, così benchmark, prove di carico
+ * e analisi degli indici possono girare su volumi realistici e confrontabili.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Quantità configurabili di utenti, domande e risposte, più linguaggi, temi e difficoltà</li>
+ *   <li>Distribuzione sbilanciata (Zipf): pochi utenti molto attivi e domande più popolari di altre</li>
+ *   <li>Probabilità di risposta corretta legata all'abilità dell'utente e alla difficoltà della domanda</li>
+ *   <li>Progressi e punteggi ricavati dalle risposte corrette, con {@value GlobalConfig#SCORE_QUESTIONS} punti ciascuna</li>
+ *   <li>Inserimento a blocchi di {@value #BATCH_SIZE} righe per transazione, con i trigger dei contatori attivi</li>
+ * </ul>
+ *
+ * <p>Da riga di comando, sul database indicato da {@code play.db.path}:</p>
+ * <pre>
+ * java -Dplay.db.path=grande.db -jar target/Play-1.0-SNAPSHOT.jar --generate-dataset \
+ *      --users 100000 --questions 50000 --answers 10000000 --seed 42 --skew 1.0
+ * </pre>
+ *
+ * @see DatabaseConnection Percorso del database
+ */
+public class DatasetGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    // Password di tutti gli utenti generati
+    public static final String DEFAULT_PASSWORD = "play";
+    public static final int BATCH_SIZE = 10_000;
+
+    private static final String[] CORRECT_OPTIONS = {"Corretta A", "Corretta B", "Corretta C", "Corretta D"};
+
+    /**
+     * Parametri della generazione.
+     *
+     * @param users        utenti da creare
+     * @param questions    domande da creare
+     * @param answers      righe di user_answers (al massimo users * questions)
+     * @param languages    linguaggi su cui distribuire le domande
+     * @param themes       temi su cui distribuire le domande
+     * @param difficulties livelli di difficoltà
+     * @param skew         esponente di Zipf per attività degli utenti e popolarità delle domande (0 = uniforme)
+     * @param seed         seme del generatore casuale
+     * @param password     password in chiaro di tutti gli utenti
+     */
+    public record Spec(int users, int questions, long answers, int languages, int themes, int difficulties,
+                       double skew, long seed, String password) {
+
+        public Spec {
+            if (users <= 0 || questions <= 0 || languages <= 0 || themes <= 0 || difficulties <= 0) {
+                throw new IllegalArgumentException("Utenti, domande, linguaggi, temi e difficoltà devono essere positivi");
+            }
+            if (answers < 0 || answers > (long) users * questions) {
+                throw new IllegalArgumentException("Le risposte devono essere tra 0 e utenti * domande: " + answers);
+            }
+            if (skew < 0) {
+                throw new IllegalArgumentException("L'esponente di Zipf non può essere negativo: " + skew);
+            }
+        }
+
+        // 100k utenti, 50k domande, 10M risposte
+        public static Spec defaults() {
+            return new Spec(100_000, 50_000, 10_000_000L, 5, 6, 4, 1.0, 42L, DEFAULT_PASSWORD);
+        }
+    }
+
+    /**
+     * Esito della generazione.
+     *
+     * @param users         utenti inseriti
+     * @param questions     domande inserite
+     * @param answers       risposte inserite
+     * @param progressRows  righe di user_progress inserite
+     * @param elapsedMillis durata complessiva
+     */
+    public record GenerationReport(int users, int questions, long answers, long progressRows, long elapsedMillis) {
+
+        public double rowsPerSecond() {
+            long rows = users + questions + answers + progressRows;
+            return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT, "%d utenti, %d domande, %d risposte, %d progressi generati in %d ms (%.0f righe/s)",
+                    users, questions, answers, progressRows, elapsedMillis, rowsPerSecond());
+        }
+    }
+
+    private DatasetGenerator() {
+    }
+
+    /**
+     * Costruisce i parametri da opzioni {@code --nome valore} (ad esempio {@code --users 1000 --seed 7}),
+     * partendo da {@link Spec#defaults()}.
+     *
+     * @throws IllegalArgumentException per opzioni sconosciute o valori non validi
+     */
+    public static Spec parseSpec(List<String> options) {
+        Spec defaults = Spec.defaults();
+        int users = defaults.users();
+        int questions = defaults.questions();
+        long answers = defaults.answers();
+        int languages = defaults.languages();
+        int themes = defaults.themes();
+        int difficulties = defaults.difficulties();
+        double skew = defaults.skew();
+        long seed = defaults.seed();
+        String password = defaults.password();
+
+        for (int i = 0; i < options.size(); i += 2) {
+            String option = options.get(i);
+            if (i + 1 >= options.size()) {
+                throw new IllegalArgumentException("Valore mancante per " + option);
+            }
+            String value = options.get(i + 1);
+            switch (option) {
+                case "--users" -> users = Integer.parseInt(value);
+                case "--questions" -> questions = Integer.parseInt(value);
+                case "--answers" -> answers = Long.parseLong(value);
+                case "--languages" -> languages = Integer.parseInt(value);
+                case "--themes" -> themes = Integer.parseInt(value);
+                case "--difficulties" -> difficulties = Integer.parseInt(value);
+                case "--skew" -> skew = Double.parseDouble(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--password" -> password = value;
+                default -> throw new IllegalArgumentException("Opzione sconosciuta: " + option);
+            }
+        }
+        return new Spec(users, questions, answers, languages, themes, difficulties, skew, seed, password);
+    }
+
+    /**
+     * Riempie il database con i dati descritti da {@code spec}. Lo schema deve esistere
+     * ({@link ClaseDLLDAO#generateDB()}) e le tabelle users e questions devono essere vuote;
+     * linguaggi, temi e difficoltà già presenti vengono riutilizzati.
+     *
+     * @param progress callback con il numero di risposte inserite finora, può essere null
+     * @throws IllegalStateException se il database contiene già utenti o domande
+     */
+    public static GenerationReport generate(Spec spec, LongConsumer progress) throws SQLException {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(spec.seed());
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            requireEmpty(conn, "users");
+            requireEmpty(conn, "questions");
+
+            // Durante il caricamento un crash costa solo la rigenerazione: niente fsync a ogni commit
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA synchronous = OFF");
+            }
+            conn.setAutoCommit(false);
+            try {
+                int[] languageIds = referenceIds(conn, "languages", "Linguaggio", spec.languages());
+                int[] themeIds = referenceIds(conn, "themes", "Tema", spec.themes());
+                int[] difficultyIds = difficultyIds(conn, spec.difficulties());
+                conn.commit();
+
+                int[] userIds = insertUsers(conn, spec);
+                logger.info("Utenti generati: {}", userIds.length);
+
+                int[] questionLevels = new int[spec.questions()];
+                int[] questionIds = insertQuestions(conn, spec, random, languageIds, themeIds, difficultyIds, questionLevels);
+                logger.info("Domande generate: {}", questionIds.length);
+
+                long answers = insertAnswers(conn, spec, random, userIds, questionIds, questionLevels, progress);
+                logger.info("Risposte generate: {}", answers);
+
+                long progressRows = insertProgress(conn);
+                conn.commit();
+                logger.info("Progressi generati: {}", progressRows);
+
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("ANALYZE");
+                }
+                conn.commit();
+
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                return new GenerationReport(userIds.length, questionIds.length, answers, progressRows, elapsedMillis);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+                // Valore impostato da ConnectionPool sulle connessioni fisiche
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA synchronous = NORMAL");
+                }
+            }
+        }
+    }
+
+    // Username dell'utente generato in posizione index (a partire da 1)
+    public static String username(int index) {
+        return "utente" + index;
+    }
+
+    private static void requireEmpty(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT EXISTS (SELECT 1 FROM " + table + ")")) {
+            if (rs.next() && rs.getBoolean(1)) {
+                throw new IllegalStateException("La tabella " + table + " non è vuota: la generazione richiede un database nuovo");
+            }
+        }
+    }
+
+    // Completa la tabella fino a count righe e restituisce i primi count id
+    private static int[] referenceIds(Connection conn, String table, String prefix, int count) throws SQLException {
+        int existing = count(conn, table);
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT OR IGNORE INTO " + table + " (name) VALUES (?)")) {
+            for (int i = existing + 1; i <= count; i++) {
+                stmt.setString(1, prefix + " " + i);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return ids(conn, "SELECT id FROM " + table + " ORDER BY id LIMIT " + count, count);
+    }
+
+    // Come referenceIds, ordinati per livello: la posizione è il livello usato per la probabilità di risposta
+    private static int[] difficultyIds(Connection conn, int count) throws SQLException {
+        int existing = count(conn, "difficulties");
+        String query = "INSERT OR IGNORE INTO difficulties (name, levelDifficulty) " +
+                "VALUES (?, (SELECT COALESCE(MAX(levelDifficulty), 0) + 1 FROM difficulties))";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = existing + 1; i <= count; i++) {
+                stmt.setString(1, "Livello " + i);
+                stmt.executeUpdate();
+            }
+        }
+        return ids(conn, "SELECT id FROM difficulties ORDER BY levelDifficulty LIMIT " + count, count);
+    }
+
+    private static int[] insertUsers(Connection conn, Spec spec) throws SQLException {
+        // Un solo hash per tutti: BCrypt su ogni utente richiederebbe ore
+        String hashedPassword = BCrypt.hashpw(spec.password(), BCrypt.gensalt());
+        String query = "INSERT INTO users (username, password, first_name, last_name, telegram_id) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 1; i <= spec.users(); i++) {
+                stmt.setString(1, username(i));
+                stmt.setString(2, hashedPassword);
+                stmt.setString(3, "Nome" + i);
+                stmt.setString(4, "Cognome" + i);
+                stmt.setString(5, "0");
+                addToBatch(conn, stmt, i);
+            }
+            flush(conn, stmt);
+        }
+        return ids(conn, "SELECT id FROM users ORDER BY id", spec.users());
+    }
+
+    private static int[] insertQuestions(Connection conn, Spec spec, SplittableRandom random, int[] languageIds,
+                                         int[] themeIds, int[] difficultyIds, int[] questionLevels) throws SQLException {
+        String query = """
+                INSERT INTO questions (language_id, theme_id, difficulty_id, question_type, question,
+                                       option_a, option_b, option_c, option_d, correct_option)
+                VALUES (?, ?, ?, 'multiple_choice', ?, ?, ?, ?, ?, ?)
+                """;
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < spec.questions(); i++) {
+                int level = random.nextInt(difficultyIds.length);
+                questionLevels[i] = level;
+                stmt.setInt(1, languageIds[random.nextInt(languageIds.length)]);
+                stmt.setInt(2, themeIds[random.nextInt(themeIds.length)]);
+                stmt.setInt(3, difficultyIds[level]);
+                stmt.setString(4, "Domanda generata numero " + (i + 1) + "?");
+                stmt.setString(5, "Risposta A " + (i + 1));
+                stmt.setString(6, "Risposta B " + (i + 1));
+                stmt.setString(7, "Risposta C " + (i + 1));
+                stmt.setString(8, "Risposta D " + (i + 1));
+                stmt.setString(9, CORRECT_OPTIONS[random.nextInt(CORRECT_OPTIONS.length)]);
+                addToBatch(conn, stmt, i + 1);
+            }
+            flush(conn, stmt);
+        }
+        return ids(conn, "SELECT id FROM questions ORDER BY id", spec.questions());
+    }
+
+    /**
+     * Risposte raggruppate per utente: il numero di risposte di ogni utente segue la distribuzione
+     * di Zipf, le domande scelte seguono la popolarità (sempre Zipf) senza ripetizioni per utente.
+     */
+    private static long insertAnswers(Connection conn, Spec spec, SplittableRandom random, int[] userIds, int[] questionIds,
+                                      int[] questionLevels, LongConsumer progress) throws SQLException {
+        int[] answersPerUser = answersPerUser(spec);
+        double[] popularity = cumulativeZipf(questionIds.length, spec.skew());
+        BitSet answered = new BitSet(questionIds.length);
+        String query = "INSERT INTO user_answers (user_id, question_id, is_correct) VALUES (?, ?, ?)";
+        long rows = 0;
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int u = 0; u < userIds.length; u++) {
+                // Abilità dell'utente: probabilità di rispondere bene alle domande più facili
+                double skill = 0.35 + 0.6 * random.nextDouble();
+                answered.clear();
+                for (int a = 0; a < answersPerUser[u]; a++) {
+                    int q = sample(popularity, random);
+                    // Domanda già risposta: si passa alla successiva libera
+                    q = answered.nextClearBit(q);
+                    if (q >= questionIds.length) {
+                        q = answered.nextClearBit(0);
+                    }
+                    answered.set(q);
+
+                    double correctProbability = skill * (1.0 - 0.5 * questionLevels[q] / Math.max(1, spec.difficulties() - 1));
+                    stmt.setInt(1, userIds[u]);
+                    stmt.setInt(2, questionIds[q]);
+                    stmt.setBoolean(3, random.nextDouble() < correctProbability);
+                    rows++;
+                    stmt.addBatch();
+                    if (rows % BATCH_SIZE == 0) {
+                        flush(conn, stmt);
+                        if (progress != null && rows % (BATCH_SIZE * 100L) == 0) {
+                            progress.accept(rows);
+                        }
+                    }
+                }
+            }
+            flush(conn, stmt);
+        }
+        if (progress != null && rows % (BATCH_SIZE * 100L) != 0) {
+            progress.accept(rows);
+        }
+        return rows;
+    }
+
+    // Un gruppo di progresso per ogni combinazione con almeno una risposta corretta; i trigger aggiornano user_scores
+    private static long insertProgress(Connection conn) throws SQLException {
+        String query = """
+                INSERT INTO user_progress (user_id, language_id, theme_id, difficulty_id, score)
+                SELECT ua.user_id, q.language_id, q.theme_id, q.difficulty_id, COUNT(*) * ?
+                FROM user_answers ua
+                JOIN questions q ON q.id = ua.question_id
+                WHERE ua.is_correct = 1
+                GROUP BY ua.user_id, q.language_id, q.theme_id, q.difficulty_id
+                """;
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, GlobalConfig.SCORE_QUESTIONS);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Ripartisce le risposte tra gli utenti in proporzione al peso di Zipf del loro indice.
+     * Nessun utente supera il numero di domande: l'eccedenza passa agli altri utenti.
+     */
+    static int[] answersPerUser(Spec spec) {
+        int users = spec.users();
+        double[] weights = new double[users];
+        for (int i = 0; i < users; i++) {
+            weights[i] = 1.0 / Math.pow(i + 1, spec.skew());
+        }
+
+        int[] counts = new int[users];
+        long remaining = spec.answers();
+        while (remaining > 0) {
+            double open = 0;
+            for (int i = 0; i < users; i++) {
+                if (counts[i] < spec.questions()) {
+                    open += weights[i];
+                }
+            }
+            long assigned = 0;
+            for (int i = 0; i < users; i++) {
+                if (counts[i] < spec.questions()) {
+                    long share = Math.min(spec.questions() - counts[i], (long) (remaining * weights[i] / open));
+                    counts[i] += (int) share;
+                    assigned += share;
+                }
+            }
+            // Resto più piccolo del numero di utenti: una risposta ciascuno partendo dai più attivi
+            for (int i = 0; i < users && assigned == 0 && remaining > 0; i++) {
+                if (counts[i] < spec.questions()) {
+                    counts[i]++;
+                    remaining--;
+                }
+            }
+            remaining -= assigned;
+        }
+        return counts;
+    }
+
+    // Distribuzione cumulativa di Zipf su n elementi: l'elemento 0 è il più probabile
+    static double[] cumulativeZipf(int n, double skew) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    // Ricerca binaria del primo elemento con probabilità cumulativa maggiore del valore estratto
+    static int sample(double[] cumulative, SplittableRandom random) {
+        double value = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static int count(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int[] ids(Connection conn, String query, int expected) throws SQLException {
+        int[] ids = new int[expected];
+        int n = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next() && n < expected) {
+                ids[n++] = rs.getInt(1);
+            }
+        }
+        if (n < expected) {
+            throw new SQLException("Attesi " + expected + " id, trovati " + n + " con: " + query);
+        }
+        return ids;
+    }
+
+    // Esegue e conferma il blocco ogni BATCH_SIZE righe
+    private static void addToBatch(Connection conn, PreparedStatement stmt, int row) throws SQLException {
+        stmt.addBatch();
+        if (row % BATCH_SIZE == 0) {
+            flush(conn, stmt);
+        }
+    }
+
+    private static void flush(Connection conn, PreparedStatement stmt) throws SQLException {
+        stmt.executeBatch();
+        conn.commit();
+    }
+}
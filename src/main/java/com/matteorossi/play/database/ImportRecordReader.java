@@ -0,0 +1,288 @@
+package com.matteorossi.play.database;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lettore in streaming dei file di importazione delle domande.
+ * Restituisce un record alla volta come mappa colonna → valore, senza caricare il file in memoria.
+ *
+ * <p>Formati supportati:</p>
+ * <ul>
+ *   <li>CSV con intestazione, separatore virgola, campi tra virgolette con {@code ""} come escape
+ *       e a capo ammessi dentro le virgolette</li>
+ *   <li>JSON Lines: un oggetto piatto per riga con valori stringa, numero, booleano o null</li>
+ * </ul>
+ *
+ * <p>I nomi delle colonne vengono normalizzati in minuscolo; le righe vuote vengono saltate.</p>
+ *
+ * @see QuestionImporter Uso da parte dell'importazione
+ */
+abstract class ImportRecordReader {
+
+    protected final BufferedReader reader;
+    // Riga del file in cui inizia l'ultimo record letto, per i messaggi di errore
+    protected int recordLine = 0;
+    protected int currentLine = 0;
+
+    protected ImportRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    static ImportRecordReader of(QuestionImporter.Format format, BufferedReader reader) {
+        return format == QuestionImporter.Format.CSV ? new Csv(reader) : new JsonLines(reader);
+    }
+
+    /**
+     * Legge il record successivo.
+     *
+     * @return il record oppure null a fine file
+     * @throws MalformedRecordException se il record non è interpretabile; la lettura può continuare
+     */
+    abstract Map<String, String> next() throws IOException;
+
+    int getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Record non interpretabile: viene scartato ma il file può essere letto fino in fondo.
+     */
+    static class MalformedRecordException extends IOException {
+        MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Csv extends ImportRecordReader {
+        private List<String> header;
+
+        private Csv(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        Map<String, String> next() throws IOException {
+            if (header == null) {
+                List<String> names = readFields();
+                if (names == null) {
+                    return null;
+                }
+                header = new ArrayList<>(names.size());
+                for (String name : names) {
+                    // Il BOM UTF-8 dei file salvati da Excel finirebbe nel nome della prima colonna
+                    header.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+                }
+            }
+
+            List<String> fields;
+            do {
+                fields = readFields();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+
+            if (fields.size() != header.size()) {
+                throw new MalformedRecordException("attese " + header.size() + " colonne, trovate " + fields.size());
+            }
+            Map<String, String> record = new HashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                record.put(header.get(i), fields.get(i));
+            }
+            return record;
+        }
+
+        // Legge i campi di un record, che può occupare più righe se ci sono a capo tra virgolette
+        private List<String> readFields() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            currentLine++;
+            recordLine = currentLine;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // A capo dentro un campo tra virgolette
+                    line = reader.readLine();
+                    if (line == null) {
+                        throw new MalformedRecordException("virgolette non chiuse");
+                    }
+                    currentLine++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static final class JsonLines extends ImportRecordReader {
+        private String line;
+        private int pos;
+
+        private JsonLines(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        Map<String, String> next() throws IOException {
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                currentLine++;
+            } while (line.isBlank());
+            recordLine = currentLine;
+            pos = 0;
+
+            Map<String, String> record = new HashMap<>();
+            expect('{');
+            skipSpaces();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    String key = readString();
+                    expect(':');
+                    record.put(key.toLowerCase(Locale.ROOT), readValue());
+                    skipSpaces();
+                    char c = take();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw new MalformedRecordException("atteso ',' o '}' alla colonna " + pos);
+                    }
+                }
+            }
+            skipSpaces();
+            if (pos != line.length()) {
+                throw new MalformedRecordException("caratteri dopo la fine dell'oggetto");
+            }
+            return record;
+        }
+
+        private String readValue() throws MalformedRecordException {
+            skipSpaces();
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw new MalformedRecordException("valori annidati non supportati");
+            }
+            int start = pos;
+            while (pos < line.length() && ",} \t".indexOf(line.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = line.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw new MalformedRecordException("valore non valido: " + literal);
+        }
+
+        private String readString() throws MalformedRecordException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = take();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = take();
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'n' -> value.append('\n');
+                    case 't' -> value.append('\t');
+                    case 'r' -> value.append('\r');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > line.length()) {
+                            throw new MalformedRecordException("sequenza \\u incompleta");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(line.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new MalformedRecordException("sequenza \\u non valida");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw new MalformedRecordException("escape non valido: \\" + escaped);
+                }
+            }
+        }
+
+        private void expect(char expected) throws MalformedRecordException {
+            skipSpaces();
+            if (take() != expected) {
+                throw new MalformedRecordException("atteso '" + expected + "' alla colonna " + pos);
+            }
+        }
+
+        private char peek() throws MalformedRecordException {
+            if (pos >= line.length()) {
+                throw new MalformedRecordException("riga troncata");
+            }
+            return line.charAt(pos);
+        }
+
+        private char take() throws MalformedRecordException {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void skipSpaces() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
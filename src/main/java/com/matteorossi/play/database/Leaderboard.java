@@ -0,0 +1,294 @@
+package com.matteorossi.play.database;
+
+import com.matteorossi.play.models.PlayerRankingModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Classifica dei giocatori mantenuta in memoria in modo incrementale.
+ * I totali per utente sono persistiti nella tabella {@code user_scores} (aggiornata dai trigger
+ * su {@code user_progress}); questa classe li carica una volta in un albero di statistiche d'ordine
+ * (treap con dimensione dei sottoalberi) e aggiorna solo l'utente interessato ad ogni scrittura.
+ *
+ * <p>Complessità delle operazioni principali:</p>
+ * <ul>
+ *   <li>Posizione di un utente: O(log n)</li>
+ *   <li>Primi K o pagina N di dimensione P: O(log n + P)</li>
+ *   <li>Aggiornamento del punteggio di un utente: O(log n)</li>
+ * </ul>
+ *
+ * <p>Ordinamento: punteggio decrescente, a parità di punteggio id utente crescente.</p>
+ *
+ * @see QueryDAO#forEachUserScore Caricamento iniziale dei totali
+ * @see PlayerRankingModel Modello dati per la classifica
+ */
+public class Leaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(Leaderboard.class);
+
+    private static final Leaderboard INSTANCE = new Leaderboard();
+
+    private final Map<Integer, Node> byUser = new HashMap<>();
+    private Node root;
+    private boolean loaded = false;
+
+    private Leaderboard() {
+    }
+
+    // Classifica già caricata con i totali indicati, senza accesso al database
+    Leaderboard(Collection<Entry> entries) {
+        entries.forEach(this::add);
+        loaded = true;
+    }
+
+    public static Leaderboard getInstance() {
+        return INSTANCE;
+    }
+
+    // Numero di giocatori in classifica
+    public synchronized int size() {
+        ensureLoaded();
+        return size(root);
+    }
+
+    public synchronized List<PlayerRankingModel> getTop(int k) {
+        return getPage(0, k);
+    }
+
+    /**
+     * Restituisce una pagina della classifica.
+     *
+     * @param page     indice della pagina, a partire da zero
+     * @param pageSize giocatori per pagina
+     */
+    public synchronized List<PlayerRankingModel> getPage(int page, int pageSize) {
+        ensureLoaded();
+        int from = page * pageSize;
+        int to = Math.min(from + pageSize, size(root));
+        List<PlayerRankingModel> result = new ArrayList<>(Math.max(0, to - from));
+        if (from < to) {
+            collect(root, from, to, 0, result);
+        }
+        return result;
+    }
+
+    /**
+     * Posizione dell'utente in classifica, a partire da 1.
+     *
+     * @return posizione oppure -1 se l'utente non è in classifica
+     */
+    public synchronized int getRank(int userId) {
+        ensureLoaded();
+        Node target = byUser.get(userId);
+        if (target == null) {
+            return -1;
+        }
+
+        int before = 0;
+        Node current = root;
+        while (current != null) {
+            int cmp = compare(target, current);
+            if (cmp == 0) {
+                return before + size(current.left) + 1;
+            }
+            if (cmp < 0) {
+                current = current.left;
+            } else {
+                before += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rilegge il totale dell'utente dopo una scrittura su {@code user_progress}.
+     * Se la classifica non è ancora stata caricata non fa nulla: verrà letta al primo utilizzo.
+     * Se la lettura fallisce la classifica viene scartata e ricaricata al prossimo accesso,
+     * invece di togliere l'utente come se non avesse punteggio.
+     */
+    public synchronized void onScoreChanged(int userId) {
+        if (!loaded) {
+            return;
+        }
+        try {
+            apply(userId, QueryDAO.getUserScore(userId));
+        } catch (SQLException e) {
+            logger.warn("Punteggio dell'utente {} non aggiornato, classifica da ricaricare: {}", userId, e.getMessage());
+            invalidate();
+        }
+    }
+
+    // Sostituisce il totale dell'utente; entry null lo toglie dalla classifica
+    synchronized void apply(int userId, Entry entry) {
+        Node existing = byUser.remove(userId);
+        if (existing != null) {
+            root = remove(root, existing);
+        }
+        if (entry != null) {
+            add(entry);
+        }
+    }
+
+    // Scarta la classifica in memoria, ad esempio dopo l'eliminazione di un utente
+    public synchronized void invalidate() {
+        root = null;
+        byUser.clear();
+        loaded = false;
+    }
+
+    // Carica i totali; dopo un errore scarta il caricamento parziale e riprova al prossimo accesso
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            QueryDAO.forEachUserScore(this::add);
+        } catch (SQLException e) {
+            logger.error("Errore nel caricamento della classifica: {}", e.getMessage());
+            invalidate();
+            return;
+        }
+        loaded = true;
+        logger.info("Classifica caricata: {} giocatori in {} ms", byUser.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void add(Entry entry) {
+        Node node = new Node(entry, ThreadLocalRandom.current().nextInt());
+        byUser.put(entry.userId(), node);
+        root = insert(root, node);
+    }
+
+    // Visita in ordine limitata all'intervallo [from, to), salta i sottoalberi esterni
+    private void collect(Node node, int from, int to, int offset, List<PlayerRankingModel> result) {
+        if (node == null || offset >= to || offset + node.size <= from) {
+            return;
+        }
+        int leftSize = size(node.left);
+        collect(node.left, from, to, offset, result);
+        int index = offset + leftSize;
+        if (index >= from && index < to) {
+            result.add(new PlayerRankingModel(index + 1, node.entry.username(), node.entry.totalScore()));
+        }
+        collect(node.right, from, to, index + 1, result);
+    }
+
+    // Operazioni del treap
+
+    private static int compare(Node a, Node b) {
+        int cmp = Integer.compare(b.entry.totalScore(), a.entry.totalScore());
+        return cmp != 0 ? cmp : Integer.compare(a.entry.userId(), b.entry.userId());
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static Node insert(Node tree, Node node) {
+        if (tree == null) {
+            return node;
+        }
+        if (node.priority > tree.priority) {
+            Node[] parts = split(tree, node);
+            node.left = parts[0];
+            node.right = parts[1];
+            update(node);
+            return node;
+        }
+        if (compare(node, tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        update(tree);
+        return tree;
+    }
+
+    private static Node remove(Node tree, Node node) {
+        if (tree == null) {
+            return null;
+        }
+        if (tree == node) {
+            return merge(tree.left, tree.right);
+        }
+        if (compare(node, tree) < 0) {
+            tree.left = remove(tree.left, node);
+        } else {
+            tree.right = remove(tree.right, node);
+        }
+        update(tree);
+        return tree;
+    }
+
+    // Divide l'albero in nodi che precedono e nodi che seguono la chiave
+    private static Node[] split(Node tree, Node key) {
+        if (tree == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(tree, key) < 0) {
+            Node[] parts = split(tree.right, key);
+            tree.right = parts[0];
+            update(tree);
+            parts[0] = tree;
+            return parts;
+        }
+        Node[] parts = split(tree.left, key);
+        tree.left = parts[1];
+        update(tree);
+        parts[1] = tree;
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    /**
+     * Totale dei punti di un utente.
+     *
+     * @param userId     id dell'utente
+     * @param username   nome visualizzato in classifica
+     * @param totalScore somma dei punteggi dell'utente
+     */
+    public record Entry(int userId, String username, int totalScore) {
+    }
+
+    private static final class Node {
+        private final Entry entry;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(Entry entry, int priority) {
+            this.entry = entry;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.matteorossi.play.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Outbox transazionale delle notifiche Telegram.
+ * Chi modifica i dati scrive la notifica nella tabella {@code outbox} con la stessa transazione
+ * ({@link #addForUser}); un thread di consegna legge le notifiche in attesa e le invia tramite il bot.
+ * Se la transazione fallisce non parte nessun messaggio, se l'invio fallisce il messaggio non va perso.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Consegna almeno una volta: una notifica è segnata come inviata solo dopo la conferma di Telegram</li>
+ *   <li>Notifiche lette a gruppi di {@value #BATCH_SIZE} e prenotate per {@value #LEASE_SECONDS} secondi:
+ *       se l'applicazione si chiude prima della conferma vengono inviate di nuovo</li>
+ *   <li>Notifiche della stessa chat consegnate nell'ordine di scrittura, anche dopo un errore</li>
+ *   <li>Stato per notifica: PENDING, SENT o FAILED, con tentativi, ultimo errore e istante di invio</li>
+ *   <li>Testo cancellato appena la notifica è SENT o FAILED: le password temporanee non restano nel database</li>
+ *   <li>Nuovi tentativi con attesa crescente, FAILED dopo {@value #MAX_ATTEMPTS} tentativi</li>
+ *   <li>Notifiche inviate cancellate dopo {@value #RETENTION_DAYS} giorni</li>
+ * </ul>
+ *
+ * @see QueryDAO#resetUserPassword(String) Reset della password con notifica
+ */
+public class NotificationOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutbox.class);
+
+    private static final int BATCH_SIZE = 50;
+    private static final long LEASE_SECONDS = 300;
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long FIRST_RETRY_MILLIS = 5_000;
+    private static final long MAX_RETRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long IDLE_POLL_MILLIS = 30_000;
+    private static final long RETENTION_DAYS = 7;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final QueryMetrics.Operation ADD = QueryMetrics.operation("NotificationOutbox", "add");
+    private static final QueryMetrics.Operation CLAIM = QueryMetrics.operation("NotificationOutbox", "claim");
+    private static final QueryMetrics.Operation RECORD_RESULTS = QueryMetrics.operation("NotificationOutbox", "recordResults");
+
+    private static final NotificationOutbox INSTANCE = new NotificationOutbox();
+
+    /**
+     * Invio di una notifica; il future termina quando il messaggio è stato consegnato.
+     */
+    @FunctionalInterface
+    public interface Delivery {
+        CompletableFuture<Void> deliver(long chatId, String message);
+    }
+
+    /**
+     * Notifica prenotata per la consegna.
+     *
+     * @param id       id nella tabella outbox
+     * @param chatId   chat Telegram di destinazione, come salvata in users.telegram_id
+     * @param message  testo del messaggio
+     * @param attempts tentativi fatti, compreso quello in corso
+     */
+    record Entry(long id, String chatId, String message, int attempts) {
+    }
+
+    private final Object signal = new Object();
+    private boolean signaled;
+    private volatile boolean running;
+    private Thread drainer;
+    private long lastPurgeMillis;
+
+    private NotificationOutbox() {
+    }
+
+    public static NotificationOutbox getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Scrive le notifiche per l'utente nella transazione della connessione indicata: verranno inviate
+     * solo se la transazione va a buon fine. La chat viene letta da users.telegram_id nella stessa
+     * istruzione. Dopo il commit conviene chiamare {@link #wakeUp()}.
+     *
+     * @return numero di notifiche scritte, 0 se l'utente non esiste o non ha una chat Telegram
+     */
+    public static int addForUser(Connection conn, String username, String... messages) throws SQLException {
+        String query = """
+                INSERT INTO outbox (chat_id, message, next_attempt_at, created_at)
+                SELECT telegram_id, ?, ?, ? FROM users WHERE username = ? AND TRIM(telegram_id) <> ''
+                """;
+        long now = System.currentTimeMillis();
+        try (QueryMetrics.Timer timer = ADD.start();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (String message : messages) {
+                stmt.setString(1, message);
+                stmt.setLong(2, now);
+                stmt.setLong(3, now);
+                stmt.setString(4, username);
+                stmt.addBatch();
+            }
+            int added = 0;
+            for (int count : stmt.executeBatch()) {
+                added += Math.max(count, 0);
+            }
+            return added;
+        } catch (SQLException e) {
+            throw ADD.failed(e);
+        }
+    }
+
+    /**
+     * Avvia il thread di consegna. Le chiamate successive non hanno effetto.
+     */
+    public synchronized void start(Delivery delivery) {
+        if (drainer != null) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(() -> drainLoop(delivery), "outbox-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    // Sveglia il thread di consegna, ad esempio subito dopo il commit di una nuova notifica
+    public void wakeUp() {
+        synchronized (signal) {
+            signaled = true;
+            signal.notifyAll();
+        }
+    }
+
+    public void shutdown() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = drainer;
+        }
+        if (thread != null) {
+            wakeUp();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void drainLoop(Delivery delivery) {
+        while (running) {
+            try {
+                // Un gruppo pieno fa pensare che ce ne siano altri: nessuna attesa
+                if (drainOnce(delivery) < BATCH_SIZE) {
+                    purgeSent();
+                    awaitSignal();
+                }
+            } catch (SQLException e) {
+                logger.error("Errore nella consegna delle notifiche: {}", e.getMessage());
+                awaitSignal();
+            } catch (RuntimeException e) {
+                // Il thread di consegna è uno solo: un errore inatteso non deve fermarlo
+                logger.error("Errore inatteso nella consegna delle notifiche", e);
+                awaitSignal();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void awaitSignal() {
+        synchronized (signal) {
+            try {
+                if (!signaled && running) {
+                    signal.wait(IDLE_POLL_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            signaled = false;
+        }
+    }
+
+    /**
+     * Prenota un gruppo di notifiche, le consegna e registra l'esito.
+     *
+     * @return numero di notifiche prenotate
+     */
+    int drainOnce(Delivery delivery) throws SQLException, InterruptedException {
+        List<Entry> batch = claim(System.currentTimeMillis());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Nella stessa chat una notifica parte solo dopo la consegna della precedente
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(batch.size());
+        Map<String, CompletableFuture<Void>> lastByChat = new HashMap<>();
+        for (Entry entry : batch) {
+            CompletableFuture<Void> previous = lastByChat.get(entry.chatId());
+            CompletableFuture<Void> result = previous == null ? deliver(delivery, entry)
+                    : previous.handle((ok, error) -> error == null ? deliver(delivery, entry)
+                            : CompletableFuture.<Void>failedFuture(new Deferred()))
+                    .thenCompose(Function.identity());
+            lastByChat.put(entry.chatId(), result);
+            deliveries.add(result);
+        }
+        // Le consegne ancora in corso allo scadere della prenotazione verranno ripetute
+        try {
+            CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new))
+                    .get(LEASE_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException | ExecutionException ignored) {
+            // esito letto notifica per notifica
+        }
+
+        List<Long> sent = new ArrayList<>();
+        List<Long> deferred = new ArrayList<>();
+        List<Map.Entry<Entry, Throwable>> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<Void> result = deliveries.get(i);
+            if (!result.isDone()) {
+                continue;
+            }
+            if (!result.isCompletedExceptionally()) {
+                sent.add(batch.get(i).id());
+            } else if (cause(result) instanceof Deferred) {
+                deferred.add(batch.get(i).id());
+            } else {
+                failed.add(Map.entry(batch.get(i), cause(result)));
+            }
+        }
+        recordResults(sent, deferred, failed);
+        return batch.size();
+    }
+
+    private static CompletableFuture<Void> deliver(Delivery delivery, Entry entry) {
+        try {
+            return delivery.deliver(Long.parseLong(entry.chatId().trim()), entry.message());
+        } catch (Throwable e) {
+            // Chat id non numerico o errore del bot (anche nell'inizializzazione): il tentativo fallisce e viene registrato
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Notifica non tentata perché la precedente della stessa chat non è stata consegnata
+    private static final class Deferred extends Exception {
+        Deferred() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static Throwable cause(CompletableFuture<Void> result) {
+        try {
+            result.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
+    // Legge le notifiche scadute e le prenota nella stessa transazione, contando il tentativo
+    List<Entry> claim(long now) throws SQLException {
+        String select = """
+                SELECT id, chat_id, message, attempts + 1 AS attempts FROM outbox
+                WHERE status = 'PENDING' AND next_attempt_at <= ?
+                  AND NOT EXISTS (SELECT 1 FROM outbox earlier
+                                  WHERE earlier.chat_id = outbox.chat_id AND earlier.status = 'PENDING'
+                                    AND earlier.id < outbox.id AND earlier.next_attempt_at > ?)
+                ORDER BY id LIMIT ?
+                """;
+        String lease = "UPDATE outbox SET attempts = attempts + 1, next_attempt_at = ? WHERE id = ?";
+
+        try (QueryMetrics.Timer timer = CLAIM.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(lease)) {
+                List<Entry> batch = Rows.list(conn, select, s -> {
+                    s.setLong(1, now);
+                    s.setLong(2, now);
+                    s.setInt(3, BATCH_SIZE);
+                }, RowMappers.OUTBOX_ENTRY);
+                for (Entry entry : batch) {
+                    stmt.setLong(1, now + TimeUnit.SECONDS.toMillis(LEASE_SECONDS));
+                    stmt.setLong(2, entry.id());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+                return batch;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw CLAIM.failed(e);
+        }
+    }
+
+    // Esito del gruppo in una transazione: inviate, rimandate, da ritentare o fallite definitivamente
+    private void recordResults(List<Long> sent, List<Long> deferred, List<Map.Entry<Entry, Throwable>> failed)
+            throws SQLException {
+        if (sent.isEmpty() && deferred.isEmpty() && failed.isEmpty()) {
+            return;
+        }
+        // Il testo può contenere una password temporanea: non resta nel database dopo l'esito finale
+        String markSent = "UPDATE outbox SET status = 'SENT', sent_at = ?, last_error = NULL, message = '' WHERE id = ?";
+        // Il tentativo non è stato fatto: la notifica torna in attesa dietro la precedente
+        String markDeferred = "UPDATE outbox SET attempts = attempts - 1, next_attempt_at = ? WHERE id = ?";
+        String markFailed = """
+                UPDATE outbox SET status = ?, next_attempt_at = ?, last_error = ?,
+                                  message = CASE WHEN ? THEN '' ELSE message END
+                WHERE id = ?
+                """;
+        long now = System.currentTimeMillis();
+
+        try (QueryMetrics.Timer timer = RECORD_RESULTS.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement sentStmt = conn.prepareStatement(markSent);
+                 PreparedStatement deferredStmt = conn.prepareStatement(markDeferred);
+                 PreparedStatement failedStmt = conn.prepareStatement(markFailed)) {
+                for (long id : sent) {
+                    sentStmt.setLong(1, now);
+                    sentStmt.setLong(2, id);
+                    sentStmt.addBatch();
+                }
+                for (long id : deferred) {
+                    deferredStmt.setLong(1, now);
+                    deferredStmt.setLong(2, id);
+                    deferredStmt.addBatch();
+                }
+                for (Map.Entry<Entry, Throwable> failure : failed) {
+                    Entry entry = failure.getKey();
+                    // Un chat id non numerico non diventerà valido con un nuovo tentativo
+                    boolean exhausted = entry.attempts() >= MAX_ATTEMPTS
+                            || failure.getValue() instanceof NumberFormatException;
+                    failedStmt.setString(1, exhausted ? "FAILED" : "PENDING");
+                    failedStmt.setLong(2, now + retryDelayMillis(entry.attempts()));
+                    failedStmt.setString(3, describe(failure.getValue()));
+                    failedStmt.setBoolean(4, exhausted);
+                    failedStmt.setLong(5, entry.id());
+                    failedStmt.addBatch();
+                    if (exhausted) {
+                        logger.error("Notifica {} per la chat {} non consegnata dopo {} tentativi: {}",
+                                entry.id(), entry.chatId(), entry.attempts(), describe(failure.getValue()));
+                    }
+                }
+                sentStmt.executeBatch();
+                deferredStmt.executeBatch();
+                failedStmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw RECORD_RESULTS.failed(e);
+        }
+        logger.debug("Notifiche inviate: {}, rimandate: {}, da ritentare o fallite: {}",
+                sent.size(), deferred.size(), failed.size());
+    }
+
+    // Attesa raddoppiata a ogni tentativo, fino a un'ora
+    static long retryDelayMillis(int attempts) {
+        return Math.min(MAX_RETRY_MILLIS, FIRST_RETRY_MILLIS << Math.min(attempts - 1, 20));
+    }
+
+    private static String describe(Throwable error) {
+        String text = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return text.length() > MAX_ERROR_LENGTH ? text.substring(0, MAX_ERROR_LENGTH) : text;
+    }
+
+    // Cancella le notifiche inviate da più di RETENTION_DAYS giorni, al massimo una volta l'ora
+    private void purgeSent() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPurgeMillis < TimeUnit.HOURS.toMillis(1)) {
+            return;
+        }
+        lastPurgeMillis = now;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM outbox WHERE status = 'SENT' AND sent_at < ?")) {
+            stmt.setLong(1, now - TimeUnit.DAYS.toMillis(RETENTION_DAYS));
+            int purged = stmt.executeUpdate();
+            if (purged > 0) {
+                logger.info("Notifiche inviate cancellate dall'outbox: {}", purged);
+            }
+        }
+    }
+}
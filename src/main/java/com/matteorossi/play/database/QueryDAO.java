@@ -1,19 +1,19 @@
 package com.matteorossi.play.database;
 
 import com.matteorossi.play.models.*;
-import com.matteorossi.play.telegram.TelegramBoot;
 import org.mindrot.jbcrypt.BCrypt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 /**
  * Classe DAO (Data Access Object) per la gestione di tutte le operazioni di database.
  * Fornisce metodi per:
@@ -24,36 +24,83 @@ import java.util.Map;
  *   <li>Operazioni statistiche e reportistica</li>
  * </ul>
  *
- * <p>Utilizza {@link BCrypt} per l'hashing delle password e {@link TelegramBoot} per le notifiche.</p>
+ * <p>Utilizza {@link BCrypt} per l'hashing delle password e {@link NotificationOutbox} per le notifiche.</p>
  *
  * @see DatabaseConnection Gestione connessioni al database
+ * @see Rows Esecuzione delle letture con i mapper precompilati di {@link RowMappers}
  * @see PlayerRankingModel Modello per i dati della classifica
  */
 public class QueryDAO {
     private static final Logger logger = LoggerFactory.getLogger(QueryDAO.class);
 
+    // Metriche per operazione (chiamate, errori, latenze), pubblicate su JMX da QueryMetrics
+    private static final QueryMetrics.Operation LOGIN_USER = metric("loginUser");
+    private static final QueryMetrics.Operation GET_ID_BY_USERNAME = metric("getIDByUsername");
+    private static final QueryMetrics.Operation IS_USERNAME_UNIQUE = metric("isUsernameUnique");
+    private static final QueryMetrics.Operation INSERT_USER = metric("insertuser");
+    private static final QueryMetrics.Operation DELETE_USER = metric("deleteUser");
+    private static final QueryMetrics.Operation LOGIN_ADMIN = metric("loginAdmin");
+    private static final QueryMetrics.Operation INSERT_ADMIN = metric("insertAdmin");
+    private static final QueryMetrics.Operation DELETE_ADMIN = metric("deleteAdmin");
+    private static final QueryMetrics.Operation GET_ADMIN = metric("getAdmin");
+    private static final QueryMetrics.Operation GET_ALL_USERS = metric("getAllUsers");
+    private static final QueryMetrics.Operation GET_ADMIN_BY_USERNAME = metric("getAdminByUsername");
+    private static final QueryMetrics.Operation GET_USER = metric("getUser");
+    private static final QueryMetrics.Operation UPDATE_IS_RESET = metric("updateIsReset");
+    private static final QueryMetrics.Operation RESET_USER_PASSWORD = metric("resetUserPassword");
+    private static final QueryMetrics.Operation GET_USER_PASSWORD = metric("getUserPassword");
+    private static final QueryMetrics.Operation UPDATE_PASSWORD = metric("updatePassword");
+    private static final QueryMetrics.Operation INSERT_PROGRAMMING_LANGUAGE = metric("insertProgrammingLanguage");
+    private static final QueryMetrics.Operation GET_LANGUAGES = metric("getLanguages");
+    private static final QueryMetrics.Operation DELETE_PROGGRAMMING_LANGUAGES = metric("deleteProggrammingLanguages");
+    private static final QueryMetrics.Operation GET_CATEGORIES = metric("getCategories");
+    private static final QueryMetrics.Operation GET_DIFFICULTY = metric("getDifficulty");
+    private static final QueryMetrics.Operation INSERT_THEME = metric("insertTheme");
+    private static final QueryMetrics.Operation GET_ALL_LEVEL_DIFFICULTIES = metric("getAllLevelDifficulties");
+    private static final QueryMetrics.Operation GET_LEVEL_DIFFICULTY_BY_ID = metric("getLevelDifficultyById");
+    private static final QueryMetrics.Operation GET_NEXT_DIFFICULTY_ID = metric("getNextDifficultyId");
+    private static final QueryMetrics.Operation DELETE_THEME = metric("deleteTheme");
+    private static final QueryMetrics.Operation INSERT_DIFFICULT = metric("insertDifficult");
+    private static final QueryMetrics.Operation DELETE_DIFFICULT = metric("deleteDifficult");
+    private static final QueryMetrics.Operation GET_LANGUAGES_ID_NAME = metric("getLanguagesIdName");
+    private static final QueryMetrics.Operation GET_THEM_ID_NAME = metric("getThemIdName");
+    private static final QueryMetrics.Operation GET_DIFFICULT_ID_NAME = metric("getDifficultIdName");
+    private static final QueryMetrics.Operation INSERT_QUESTION = metric("insertQuestion");
+    private static final QueryMetrics.Operation UPDATE_USER_ANSWER = metric("updateUserAnswer");
+    private static final QueryMetrics.Operation UPDATE_USER_ANSWERS = metric("updateUserAnswers");
+    private static final QueryMetrics.Operation GET_QUESTIONS = metric("getQuestions");
+    private static final QueryMetrics.Operation LOAD_QUESTIONS = metric("loadQuestions");
+    private static final QueryMetrics.Operation GET_OVERALL_COMPLETION_PERCENTAGE = metric("getOverallCompletionPercentage");
+    private static final QueryMetrics.Operation GET_OVERALL_COMPLETION_PERCENTAGE_FOR_ALL_THEMES = metric("getOverallCompletionPercentageForAllThemes");
+    private static final QueryMetrics.Operation GET_OVERALL_COMPLETION_PERCENTAGE_FOR_ALL_DIFFICULTIES = metric("getOverallCompletionPercentageForAllDifficulties");
+    private static final QueryMetrics.Operation GET_PROGRESS_SNAPSHOT = metric("getProgressSnapshot");
+    private static final QueryMetrics.Operation UPDATE_USER_PROGRESS = metric("updateUserProgress");
+    private static final QueryMetrics.Operation COMMIT_QUIZ_SESSION = metric("commitQuizSession");
+    private static final QueryMetrics.Operation GET_ALL_QUESTIONS = metric("getAllQuestions");
+    private static final QueryMetrics.Operation FOR_EACH_QUESTION = metric("forEachQuestion");
+    private static final QueryMetrics.Operation GET_QUESTION_SUMMARIES = metric("getQuestionSummaries");
+    private static final QueryMetrics.Operation GET_QUESTION_BY_ID = metric("getQuestionById");
+    private static final QueryMetrics.Operation DELETE_QUESTION = metric("deleteQuestion");
+    private static final QueryMetrics.Operation GET_PLAYER_RANKING = metric("getPlayerRanking");
+    private static final QueryMetrics.Operation GET_USER_SCORES = metric("getUserScores");
+    private static final QueryMetrics.Operation FOR_EACH_USER_SCORE = metric("forEachUserScore");
+    private static final QueryMetrics.Operation GET_USER_SCORE = metric("getUserScore");
+
+    private static QueryMetrics.Operation metric(String name) {
+        return QueryMetrics.operation("QueryDAO", name);
+    }
+
     //Query per il login del utente
     public static boolean loginUser(String username, String password) {
         String query = "SELECT password FROM users WHERE username = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            // Imposta il parametro della query
-            pstmt.setString(1, username);
-
-            // Esegui la query
-            ResultSet rs = pstmt.executeQuery();
-
+        try (QueryMetrics.Timer timer = LOGIN_USER.start()) {
             // Verifica se l'utente esiste e se la password è corretta
-            if (rs.next()) {
-                String storedHashedPassword  = rs.getString("password"); // PSW cifrata
-                return BCrypt.checkpw(password, storedHashedPassword );
-            } else {
-                return false; // L'utente non esiste
-            }
+            String storedHashedPassword = Rows.first(query, stmt -> stmt.setString(1, username), RowMappers.PASSWORD); // PSW cifrata
+            return storedHashedPassword != null && BCrypt.checkpw(password, storedHashedPassword);
 
         } catch (SQLException e) {
+            LOGIN_USER.failed(e);
             logger.error("Errore nel login del utente {}", e.getMessage());
             return false;
         }
@@ -61,42 +108,29 @@ public class QueryDAO {
 
     //QUery per ottenre l'id dal nome utente
     public static int getIDByUsername(String username) {
-        int id = -1;
         String query = "SELECT id FROM users WHERE username = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)){
-
-            pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                id = rs.getInt("id");
-            }
-
+        try (QueryMetrics.Timer timer = GET_ID_BY_USERNAME.start()) {
+            Integer id = Rows.first(query, stmt -> stmt.setString(1, username), RowMappers.ID);
+            return id != null ? id : -1;
         }catch (SQLException e){
+            GET_ID_BY_USERNAME.failed(e);
             logger.error(e.getMessage());
         }
 
-        return id;
+        return -1;
     }
 
     //Query per verificare se lo userName e univoco
     public static boolean isUsernameUnique(String username) {
-        String query = "SELECT COUNT(*) FROM users WHERE username = ?";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
+        String query = "SELECT COUNT(*) AS total FROM users WHERE username = ?";
 
-            // Controlla il risultato
-            if (rs.next()) {
-                int count = rs.getInt(1);
-                return count == 0; // Restituisce true se lo username è unico
-            }
-            return false;
+        try (QueryMetrics.Timer timer = IS_USERNAME_UNIQUE.start()) {
+            Integer count = Rows.first(query, stmt -> stmt.setString(1, username), RowMappers.COUNT);
+            return count != null && count == 0; // Restituisce true se lo username è unico
 
         } catch (SQLException e) {
+            IS_USERNAME_UNIQUE.failed(e);
             logger.error("Errore nella verifica dello username univoco: {}", e.getMessage());
             return false;
         }
@@ -106,12 +140,13 @@ public class QueryDAO {
 
     //Query per la registrazione del utente
     public static boolean insertuser(String username, String password, String firstname, String lastname, String telegramId) throws SQLException {
-        String hashingPassword = BCrypt.hashpw(password, BCrypt.gensalt());// cifro la psw
+        String hashingPassword = AuthService.hashPassword(password);// cifro la psw
 
         String query = "INSERT INTO users (username, password, first_name, last_name, telegram_id) VALUES (?, ?, ?, ?, ?)";
 
-        Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = INSERT_USER.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username);
             stmt.setString(2, hashingPassword);
@@ -121,6 +156,9 @@ public class QueryDAO {
 
             int rows = stmt.executeUpdate();
             return rows > 0;
+        } catch (SQLException e) {
+            throw INSERT_USER.failed(e);
+        }
     }
 
 
@@ -128,13 +166,21 @@ public class QueryDAO {
     public static boolean deleteUser(String username) throws SQLException {
         String query = "DELETE FROM users WHERE username = ?";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = DELETE_USER.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, username);
+            stmt.setString(1, username);
 
-        int rows = stmt.executeUpdate();
-        return rows > 0;
+            int rows = stmt.executeUpdate();
+            if (rows > 0) {
+                // L'utente non deve più comparire in classifica
+                Leaderboard.getInstance().invalidate();
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            throw DELETE_USER.failed(e);
+        }
     }
 
 
@@ -142,22 +188,13 @@ public class QueryDAO {
     public static boolean loginAdmin(String username, String password) {
         String query = "SELECT password FROM admins WHERE username = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, username);
-
-            ResultSet rs = pstmt.executeQuery();
-
+        try (QueryMetrics.Timer timer = LOGIN_ADMIN.start()) {
             // Verifica se l'admin esiste e se la password è corretta
-            if (rs.next()) {
-                String storedHashedPassword = rs.getString("password"); // Password cifrata
-                return BCrypt.checkpw(password, storedHashedPassword); //vero se esiste e la password e coretta
-            } else {
-                return false; // L'admin non esiste
-            }
+            String storedHashedPassword = Rows.first(query, stmt -> stmt.setString(1, username), RowMappers.PASSWORD); // Password cifrata
+            return storedHashedPassword != null && BCrypt.checkpw(password, storedHashedPassword); //vero se esiste e la password e coretta
 
         } catch (SQLException e) {
+            LOGIN_ADMIN.failed(e);
             logger.error("Errore nel login dell'admin {}", e.getMessage());
             return false;
         }
@@ -166,20 +203,24 @@ public class QueryDAO {
 
     //Query per registrare admin
     public static boolean insertAdmin(String username, String password, String firstname, String lastname) throws SQLException {
-        String hashingPassword = BCrypt.hashpw(password, BCrypt.gensalt());// cifro la psw
+        String hashingPassword = AuthService.hashPassword(password);// cifro la psw
 
         String query = "INSERT INTO admins (username, password, first_name, last_name) VALUES (?, ?, ?, ?)";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = INSERT_ADMIN.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, username);
-        stmt.setString(2, hashingPassword);
-        stmt.setString(3, firstname);
-        stmt.setString(4, lastname);
+            stmt.setString(1, username);
+            stmt.setString(2, hashingPassword);
+            stmt.setString(3, firstname);
+            stmt.setString(4, lastname);
 
-        int rows = stmt.executeUpdate();
-        return rows > 0;
+            int rows = stmt.executeUpdate();
+            return rows > 0;
+        } catch (SQLException e) {
+            throw INSERT_ADMIN.failed(e);
+        }
     }
 
 
@@ -187,79 +228,59 @@ public class QueryDAO {
     public static boolean deleteAdmin(String username) throws SQLException {
         String query = "DELETE FROM admins WHERE username = ?";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = DELETE_ADMIN.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, username);
+            stmt.setString(1, username);
 
-        int rows = stmt.executeUpdate();
-        return rows > 0;
+            int rows = stmt.executeUpdate();
+            return rows > 0;
+        } catch (SQLException e) {
+            throw DELETE_ADMIN.failed(e);
+        }
     }
 
 
     //Query per ottenere tutti gli admin
     public static List<AdminModel> getAdmin() {
-        List<AdminModel> admin = new ArrayList<>();
-        String query = "SELECT * FROM admins";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            //Aggiungo tutti gli utentei
-            while (rs.next()) {
-                admin.add(new AdminModel(
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getString("first_name"),
-                        rs.getString("last_name")));
-            }
+        String query = "SELECT username, password, first_name, last_name FROM admins";
+
+        try (QueryMetrics.Timer timer = GET_ADMIN.start()) {
+            return Rows.list(query, Rows.NO_PARAMS, RowMappers.ADMIN);
         } catch (SQLException e) {
+            GET_ADMIN.failed(e);
             e.printStackTrace();
         }
 
-        return admin;
+        return new ArrayList<>();
     }
 
     //Query per ottenere gli username e i telegramID degli user
     public static List<UserModel> getAllUsers() {
-        List<UserModel> users = new ArrayList<>();
         String query = "SELECT username, telegram_id FROM users";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            //Aggiungo tutti gli utentei
-            while (rs.next()) {
-                users.add(new UserModel(rs.getString("username"), rs.getString("telegram_id")));
-            }
+        try (QueryMetrics.Timer timer = GET_ALL_USERS.start()) {
+            return Rows.list(query, Rows.NO_PARAMS, RowMappers.USER);
         } catch (SQLException e) {
+            GET_ALL_USERS.failed(e);
             e.printStackTrace();
         }
-        return users;
+        return new ArrayList<>();
     }
 
     //Prendo un admin spcecifico dallo userName
     public static AdminModel getAdminByUsername(String username) {
-        String query = "SELECT * FROM admins WHERE username = ?";
+        String query = "SELECT username, password, first_name, last_name FROM admins WHERE username = ?";
         AdminModel admin = null;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)){
-
-            pstmt.setString(1, username);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    admin = new AdminModel(rs.getString("username"),rs.getString("password"),
-                            rs.getString("first_name"),rs.getString("last_name"));
-
-                    System.out.println("DB admin " + rs.getString("username"));
-                }
+        try (QueryMetrics.Timer timer = GET_ADMIN_BY_USERNAME.start()) {
+            admin = Rows.first(query, stmt -> stmt.setString(1, username), RowMappers.ADMIN);
+            if (admin != null) {
+                System.out.println("DB admin " + admin.getUsername());
             }
-
         }catch (SQLException e) {
+            GET_ADMIN_BY_USERNAME.failed(e);
             e.printStackTrace();
         }
 
@@ -271,20 +292,13 @@ public class QueryDAO {
         UserModel user = null;
         String query = "SELECT username, telegram_id, password, isReset FROM users WHERE username = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, username);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-
-                if (rs.next()) {
-                    user = new UserModel(rs.getString("username"), rs.getString("telegram_id"),
-                            rs.getString("password"),rs.getBoolean("isReset"));
-                    System.out.println("DB user " + rs.getString("username"));
-                }
+        try (QueryMetrics.Timer timer = GET_USER.start()) {
+            user = Rows.first(query, stmt -> stmt.setString(1, username), RowMappers.USER_CREDENTIALS);
+            if (user != null) {
+                System.out.println("DB user " + user.getUsername());
             }
         } catch (SQLException e) {
+            GET_USER.failed(e);
             e.printStackTrace();
         }
 
@@ -295,7 +309,8 @@ public class QueryDAO {
     public static boolean updateIsReset(String username, boolean isReset) {
         String query = "UPDATE users SET isReset = ? WHERE username = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (QueryMetrics.Timer timer = UPDATE_IS_RESET.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
 
             pstmt.setBoolean(1, isReset);
@@ -306,6 +321,7 @@ public class QueryDAO {
 
             return pstmt.executeUpdate() > 0; // Restituisce true se almeno una riga è stata aggiornata
         } catch (SQLException e) {
+            UPDATE_IS_RESET.failed(e);
             logger.error("Errore nell'aggiornamento dello stato di reset per {}: {}", username, e.getMessage());
             return false;
         }
@@ -313,25 +329,39 @@ public class QueryDAO {
 
 
     //Query per resettare la password del user con una casuale
+    //Password, flag di reset e notifiche Telegram nella stessa transazione: le notifiche partono solo dopo il commit
     public static boolean resetUserPassword(String username) {
         String tempPassword = generateTemporaryPassword();
-        String hashedPassword = BCrypt.hashpw(tempPassword, BCrypt.gensalt());
-        String query = "UPDATE users SET password = ? WHERE username = ?";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, hashedPassword);
-            pstmt.setString(2, username);
-
-            boolean success = pstmt.executeUpdate() > 0;
-            if (success) {
-                String message = "La tua password e stata resettata in " + tempPassword;
-                TelegramBoot.sendMessageOnce(Long.parseLong(getTleramIDByUsername(username)),message);
-                logger.info("Password temporanea per {}: {}", username, tempPassword);
+        String hashedPassword = AuthService.hashPassword(tempPassword);
+        String query = "UPDATE users SET password = ?, isReset = 1 WHERE username = ?";
+
+        try (QueryMetrics.Timer timer = RESET_USER_PASSWORD.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setString(1, hashedPassword);
+                pstmt.setString(2, username);
+
+                boolean success = pstmt.executeUpdate() > 0;
+                if (success) {
+                    NotificationOutbox.addForUser(conn, username,
+                            "La tua password e stata resettata in " + tempPassword,
+                            "Ciao " + username + " la tua password e stata resettata");
+                }
+                conn.commit();
+                if (success) {
+                    NotificationOutbox.getInstance().wakeUp();
+                    logger.info("Password di {} resettata, notifiche accodate nell'outbox", username);
+                }
+                return success;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-            return success;
         } catch (SQLException e) {
+            RESET_USER_PASSWORD.failed(e);
             logger.error("Errore nel reset della password per {}: {}", username, e.getMessage());
             return false;
         }
@@ -344,40 +374,14 @@ public class QueryDAO {
 
     }
 
-    private static String getTleramIDByUsername(String username) {
-        String telegramID = null;
-        String query = "SELECT telegram_id FROM users WHERE username = ?";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)){
-
-            pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                telegramID = rs.getString("telegram_id");
-            }
-
-        } catch (SQLException e) {
-            logger.error("Errore SQL per teleggram_id per {}: {}", username, e.getMessage());
-        }
-        return telegramID;
-    }
-
     //Query per prendere la PSW dal nome utente
     public static String getUserPassword(String username) {
         String query = "SELECT password FROM users WHERE username = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getString("password");
-            }
-
+        try (QueryMetrics.Timer timer = GET_USER_PASSWORD.start()) {
+            return Rows.first(query, stmt -> stmt.setString(1, username), RowMappers.PASSWORD);
         } catch (SQLException e) {
+            GET_USER_PASSWORD.failed(e);
             logger.error("Errore nel recupero della password per {}: {}", username, e.getMessage());
         }
         return null;
@@ -387,10 +391,11 @@ public class QueryDAO {
 
     //Query per reimpostare la password di un user specifico
     public static boolean updatePassword(String username, String newPassword) {
-        String hashingPassword = BCrypt.hashpw(newPassword, BCrypt.gensalt());
+        String hashingPassword = AuthService.hashPassword(newPassword);
         String query = "UPDATE users SET password = ? WHERE username = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (QueryMetrics.Timer timer = UPDATE_PASSWORD.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
 
             // Imposta i parametri della query
@@ -402,6 +407,7 @@ public class QueryDAO {
             return rowsAffected > 0; // Ritorna true se almeno una riga è stata aggiornata
 
         } catch (SQLException e) {
+            UPDATE_PASSWORD.failed(e);
             e.printStackTrace();
         }
 
@@ -413,33 +419,32 @@ public class QueryDAO {
     public static boolean insertProgrammingLanguage(String programmingLanguage) throws SQLException {
         String query = "INSERT INTO languages (name) VALUES (?)";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = INSERT_PROGRAMMING_LANGUAGE.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, programmingLanguage);
-        int rows = stmt.executeUpdate();
+            stmt.setString(1, programmingLanguage);
+            int rows = stmt.executeUpdate();
 
-        return rows > 0;
+            if (rows > 0) {
+                ReferenceDataCache.getInstance().invalidate();
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            throw INSERT_PROGRAMMING_LANGUAGE.failed(e);
+        }
     }
 
 
     //Query per estrarre tutti i linguaggi dal DB
     public static List<LanguagesModel> getLanguages() {
-        List<LanguagesModel> languages = new ArrayList<>();
-        String query = "SELECT * FROM languages";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            //Aggiungo tutti gli utentei
-            while (rs.next()) {
-                languages.add(new LanguagesModel(rs.getString("name")));
+        try (QueryMetrics.Timer timer = GET_LANGUAGES.start()) {
+            List<LanguagesModel> languages = new ArrayList<>();
+            for (ReferenceDataCache.NamedRow row : ReferenceDataCache.getInstance().get().getLanguages()) {
+                languages.add(new LanguagesModel(row.name()));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return languages;
         }
-        return languages;
     }
 
 
@@ -447,52 +452,42 @@ public class QueryDAO {
     public static boolean deleteProggrammingLanguages(String name) throws SQLException {
         String query = "DELETE FROM languages WHERE name = ?";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = DELETE_PROGGRAMMING_LANGUAGES.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, name);
+            stmt.setString(1, name);
 
-        int rows = stmt.executeUpdate();
-        return rows > 0;
+            int rows = stmt.executeUpdate();
+            if (rows > 0) {
+                ReferenceDataCache.getInstance().invalidate();
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            throw DELETE_PROGGRAMMING_LANGUAGES.failed(e);
+        }
     }
 
     //Query per recuperare tutte le categorie
     public static List<CategoryModel> getCategories(){
-        String query = "SELECT * FROM themes ";
-        List<CategoryModel> categories = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                categories.add(new CategoryModel(rs.getString("name")));
+        try (QueryMetrics.Timer timer = GET_CATEGORIES.start()) {
+            List<CategoryModel> categories = new ArrayList<>();
+            for (ReferenceDataCache.NamedRow row : ReferenceDataCache.getInstance().get().getThemes()) {
+                categories.add(new CategoryModel(row.name()));
             }
-        }catch (SQLException e) {
-            e.printStackTrace();
+            return categories;
         }
-
-        return categories;
     }
 
     //Query per recuperare tutte le difficolta
     public static List<DifficultyModel> getDifficulty() {
-        String query = "SELECT id, name FROM difficulties";
-        List<DifficultyModel> difficulties = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                difficulties.add(new DifficultyModel(id, name)); // Usa il costruttore corretto
+        try (QueryMetrics.Timer timer = GET_DIFFICULTY.start()) {
+            List<DifficultyModel> difficulties = new ArrayList<>();
+            for (ReferenceDataCache.DifficultyRow row : ReferenceDataCache.getInstance().get().getDifficulties()) {
+                difficulties.add(new DifficultyModel(row.id(), row.name()));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return difficulties;
         }
-        return difficulties;
     }
 
 
@@ -500,70 +495,48 @@ public class QueryDAO {
     public static boolean insertTheme(String themeName) throws SQLException {
         String query = "INSERT INTO themes (name) VALUES (?)";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = INSERT_THEME.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, themeName);
-        int rows = stmt.executeUpdate();
+            stmt.setString(1, themeName);
+            int rows = stmt.executeUpdate();
 
-        return rows > 0;
+            if (rows > 0) {
+                ReferenceDataCache.getInstance().invalidate();
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            throw INSERT_THEME.failed(e);
+        }
     }
 
 
     //Query per prendere le difficolta gia presenti
     public static List<Integer> getAllLevelDifficulties() {
-        List<Integer> levels = new ArrayList<>();
-        String query = "SELECT levelDifficulty FROM difficulties";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                levels.add(rs.getInt("levelDifficulty"));
+        try (QueryMetrics.Timer timer = GET_ALL_LEVEL_DIFFICULTIES.start()) {
+            List<Integer> levels = new ArrayList<>();
+            for (ReferenceDataCache.DifficultyRow row : ReferenceDataCache.getInstance().get().getDifficulties()) {
+                levels.add(row.level());
             }
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero dei livelli di difficoltà: " + e.getMessage());
+            return levels;
         }
-
-        return levels;
     }
 
 
     // Recupera il livello di difficoltà dato un difficultyId
     public static int getLevelDifficultyById(int difficultyId) {
-        String query = "SELECT levelDifficulty FROM difficulties WHERE id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, difficultyId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("levelDifficulty");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero del livello di difficoltà: " + e.getMessage());
+        try (QueryMetrics.Timer timer = GET_LEVEL_DIFFICULTY_BY_ID.start()) {
+            return ReferenceDataCache.getInstance().get().getLevel(difficultyId); // -1 se non esiste
         }
-        return -1; // Valore di default in caso di errore
     }
 
     // Trova l'ID della difficoltà con il livello di difficoltà immediatamente superiore
     public static Integer getNextDifficultyId(int currentLevelDifficulty) {
-        String query = "SELECT id FROM difficulties WHERE levelDifficulty > ? ORDER BY levelDifficulty ASC LIMIT 1";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, currentLevelDifficulty);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("id");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Errore durante il recupero della difficoltà successiva: " + e.getMessage());
+        try (QueryMetrics.Timer timer = GET_NEXT_DIFFICULTY_ID.start()) {
+            // Ricerca sulla scala delle difficoltà precalcolata, null se non esiste un livello superiore
+            return ReferenceDataCache.getInstance().get().getNextDifficultyId(currentLevelDifficulty);
         }
-        return null; // Nessuna difficoltà successiva trovata
     }
 
 
@@ -572,105 +545,99 @@ public class QueryDAO {
     public static boolean deleteTheme(String themeName) throws SQLException {
         String query = "DELETE FROM themes WHERE name = ?";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = DELETE_THEME.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, themeName);
-        int rows = stmt.executeUpdate();
+            stmt.setString(1, themeName);
+            int rows = stmt.executeUpdate();
 
-        return rows > 0;
+            if (rows > 0) {
+                ReferenceDataCache.getInstance().invalidate();
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            throw DELETE_THEME.failed(e);
+        }
     }
 
     //Query per inserire una difficlta
     public static boolean insertDifficult(String themeName, int levelDifficulty) throws SQLException {
         String query = "INSERT INTO difficulties (name,levelDifficulty) VALUES (?, ?)";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = INSERT_DIFFICULT.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, themeName);
-        stmt.setInt(2, levelDifficulty);
+            stmt.setString(1, themeName);
+            stmt.setInt(2, levelDifficulty);
 
-        int rows = stmt.executeUpdate();
+            int rows = stmt.executeUpdate();
 
-        return rows > 0;
+            if (rows > 0) {
+                ReferenceDataCache.getInstance().invalidate();
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            throw INSERT_DIFFICULT.failed(e);
+        }
     }
 
     //Query pe elimianre una difficlta
     public static boolean deleteDifficult(String themeName) throws SQLException {
         String query = "DELETE FROM difficulties WHERE name = ?";
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = DELETE_DIFFICULT.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setString(1, themeName);
-        int rows = stmt.executeUpdate();
+            stmt.setString(1, themeName);
+            int rows = stmt.executeUpdate();
 
-        return rows > 0;
+            if (rows > 0) {
+                ReferenceDataCache.getInstance().invalidate();
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            throw DELETE_DIFFICULT.failed(e);
+        }
     }
 
     //Query per prendere l'ID e il nome di un lingauggio di programamzione
     public static List<LanguagesModel> getLanguagesIdName() {
-        String query = "SELECT * FROM languages";
-        List<LanguagesModel> languages = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                languages.add(new LanguagesModel(id, name));
+        try (QueryMetrics.Timer timer = GET_LANGUAGES_ID_NAME.start()) {
+            List<LanguagesModel> languages = new ArrayList<>();
+            for (ReferenceDataCache.NamedRow row : ReferenceDataCache.getInstance().get().getLanguages()) {
+                languages.add(new LanguagesModel(row.id(), row.name()));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return languages;
         }
-        return languages;
     }
 
 
     //Query per prendere il nome e l'ID della categoria
     public static List<ThemsModel> getThemIdName() {
-        String query = "SELECT id, name FROM themes";
-        List<ThemsModel> thems = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                thems.add(new ThemsModel(id, name));
+        try (QueryMetrics.Timer timer = GET_THEM_ID_NAME.start()) {
+            List<ThemsModel> thems = new ArrayList<>();
+            for (ReferenceDataCache.NamedRow row : ReferenceDataCache.getInstance().get().getThemes()) {
+                thems.add(new ThemsModel(row.id(), row.name()));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return thems;
         }
-        return thems;
     }
 
     public static List<DifficultyModel> getDifficultIdName() {
-        String query = "SELECT id, name FROM difficulties";
-        List<DifficultyModel> thems = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                thems.add(new DifficultyModel(id, name));
+        try (QueryMetrics.Timer timer = GET_DIFFICULT_ID_NAME.start()) {
+            List<DifficultyModel> thems = new ArrayList<>();
+            for (ReferenceDataCache.DifficultyRow row : ReferenceDataCache.getInstance().get().getDifficulties()) {
+                thems.add(new DifficultyModel(row.id(), row.name()));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return thems;
         }
-        return thems;
     }
 
 
-    //Query per inserire una domanda
+    //Query per inserire una domanda (il trigger su questions aggiorna question_totals, la cache del gruppo viene invalidata)
     public static boolean insertQuestion(
             int languageId,
             int themeId,
@@ -700,54 +667,102 @@ public class QueryDAO {
         ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
     """;
 
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(query);
+        try (QueryMetrics.Timer timer = INSERT_QUESTION.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-        stmt.setInt(1, languageId);
-        stmt.setInt(2, themeId);
-        stmt.setInt(3, difficultyId);
-        stmt.setString(4, questionType);
-        stmt.setString(5, question);
-        stmt.setString(6, optionA);
-        stmt.setString(7, optionB);
-        stmt.setString(8, optionC);
-        stmt.setString(9, optionD);
-        stmt.setString(10, correctOption);
-        stmt.setString(11, codeSolution);
-
-        int rows = stmt.executeUpdate();
-
-        return rows > 0;
-    }
+            stmt.setInt(1, languageId);
+            stmt.setInt(2, themeId);
+            stmt.setInt(3, difficultyId);
+            stmt.setString(4, questionType);
+            stmt.setString(5, question);
+            stmt.setString(6, optionA);
+            stmt.setString(7, optionB);
+            stmt.setString(8, optionC);
+            stmt.setString(9, optionD);
+            stmt.setString(10, correctOption);
+            stmt.setString(11, codeSolution);
 
+            int rows = stmt.executeUpdate();
+            if (rows > 0) {
+                QuestionBucketCache.getInstance().invalidate(themeId, languageId, difficultyId);
+            }
 
-    //metodo per aggiornare la tabella userAnsware
-    public static void updateUserAnswer(int userId, int questionId, boolean isCorrect) {
-        String query = """
-                INSERT INTO user_answers (user_id, question_id, is_correct) 
-                VALUES (?, ?, ?) 
-                ON CONFLICT(user_id, question_id) 
-                DO UPDATE SET is_correct = excluded.is_correct
-                """;
+            return rows > 0;
+        } catch (SQLException e) {
+            throw INSERT_QUESTION.failed(e);
+        }
+    }
 
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+    //Upsert di una risposta: una sola riga per utente e domanda
+    private static final String UPSERT_USER_ANSWER = """
+            INSERT INTO user_answers (user_id, question_id, is_correct) 
+            VALUES (?, ?, ?) 
+            ON CONFLICT(user_id, question_id) 
+            DO UPDATE SET is_correct = excluded.is_correct
+            """;
+
+    //metodo per aggiornare la tabella userAnsware (i trigger su user_answers aggiornano user_completion)
+    public static void updateUserAnswer(int userId, int questionId, boolean isCorrect) {
+        try (QueryMetrics.Timer timer = UPDATE_USER_ANSWER.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_USER_ANSWER)) {
 
             stmt.setInt(1, userId);
             stmt.setInt(2, questionId);
             stmt.setBoolean(3, isCorrect);
 
             stmt.executeUpdate();
-            System.out.println("Risposta salvata nel database: " + " - Corretta? " + isCorrect);
+            logger.debug("Risposta salvata: utente {}, domanda {}, corretta {}", userId, questionId, isCorrect);
         } catch (SQLException e) {
+            UPDATE_USER_ANSWER.failed(e);
             e.printStackTrace();
         }
     }
 
 
+    //Scrive un gruppo di risposte in una sola transazione (group commit del journal)
+    public static void updateUserAnswers(Collection<UserAnswerModel> answers) throws SQLException {
+        if (answers.isEmpty()) {
+            return;
+        }
+
+        try (QueryMetrics.Timer timer = UPDATE_USER_ANSWERS.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(UPSERT_USER_ANSWER)) {
+                for (UserAnswerModel answer : answers) {
+                    stmt.setInt(1, answer.getUserId());
+                    stmt.setInt(2, answer.getQuestionId());
+                    stmt.setBoolean(3, answer.isCorrect());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw UPDATE_USER_ANSWERS.failed(e);
+        }
+    }
+
+
     //Query per ottenre tutte le domande di un certo linguaggio con una specifica difficiolta di una certa categoria
+    //Il gruppo viene letto da QuestionBucketCache; la lista restituita è una copia che il chiamante può mescolare
     public static List<QuestionModel> getQuestions(int themeId, int languageId, int difficultyId) {
+        try (QueryMetrics.Timer timer = GET_QUESTIONS.start()) {
+            return new ArrayList<>(QuestionBucketCache.getInstance().get(themeId, languageId, difficultyId));
+        }
+    }
+
+
+    //Lettura dal database di un gruppo di domande, usata dalla cache
+    static List<QuestionModel> loadQuestions(int themeId, int languageId, int difficultyId) {
         String query = """
             SELECT 
                 id, language_id, theme_id, difficulty_id, question_type, 
@@ -761,43 +776,23 @@ public class QueryDAO {
                 AND difficulty_id = ?;
             """;
 
-        List<QuestionModel> questions = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, themeId);
-            stmt.setInt(2, languageId);
-            stmt.setInt(3, difficultyId);
-
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                QuestionModel question = new QuestionModel(
-                        rs.getInt("id"),
-                        rs.getInt("language_id"),
-                        rs.getInt("theme_id"),
-                        rs.getInt("difficulty_id"),
-                        rs.getString("question_type"),
-                        rs.getString("question"),
-                        rs.getString("option_a"),
-                        rs.getString("option_b"),
-                        rs.getString("option_c"),
-                        rs.getString("option_d"),
-                        rs.getString("correct_option"),
-                        rs.getString("code_solution")
-                );
-                questions.add(question);
-            }
+        try (QueryMetrics.Timer timer = LOAD_QUESTIONS.start()) {
+            return Rows.list(query, stmt -> {
+                stmt.setInt(1, themeId);
+                stmt.setInt(2, languageId);
+                stmt.setInt(3, difficultyId);
+            }, RowMappers.QUESTION);
         } catch (SQLException e) {
+            LOAD_QUESTIONS.failed(e);
             e.printStackTrace();
         }
 
-        return questions;
+        return new ArrayList<>();
     }
 
 
     // Query per prendere la percentuale di completamento dei linguaggi
+    // Legge i contatori materializzati (question_totals e user_completion) invece di contare le risposte
     public static double getOverallCompletionPercentage(int languageId, int userId) {
         String query = """
         SELECT 
@@ -807,27 +802,22 @@ public class QueryDAO {
             END AS avg_completion_percentage
         FROM (
             SELECT 
-                COUNT(DISTINCT q.id) AS total_questions,
-                COUNT(DISTINCT CASE WHEN ua.is_correct = 1 THEN ua.question_id END) AS correct_answers
-            FROM languages l
-            JOIN questions q ON l.id = q.language_id
-            LEFT JOIN user_answers ua ON q.id = ua.question_id AND ua.user_id = ?
-            WHERE l.id = ?
+                COALESCE((SELECT SUM(total) FROM question_totals WHERE language_id = ?), 0) AS total_questions,
+                COALESCE((SELECT SUM(correct) FROM user_completion WHERE user_id = ? AND language_id = ?), 0) AS correct_answers
         ) AS counts;
     """;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, userId);
-            stmt.setInt(2, languageId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getDouble("avg_completion_percentage");
-                }
+        try (QueryMetrics.Timer timer = GET_OVERALL_COMPLETION_PERCENTAGE.start()) {
+            Double percentage = Rows.first(query, stmt -> {
+                stmt.setInt(1, languageId);
+                stmt.setInt(2, userId);
+                stmt.setInt(3, languageId);
+            }, RowMappers.COMPLETION_PERCENTAGE);
+            if (percentage != null) {
+                return percentage;
             }
         } catch (SQLException e) {
+            GET_OVERALL_COMPLETION_PERCENTAGE.failed(e);
             e.printStackTrace();
         }
         return 0.0; // Se non c'è un risultato, restituisci 0%
@@ -838,32 +828,23 @@ public class QueryDAO {
     public static Map<Integer, Double> getOverallCompletionPercentageForAllThemes(int userId) {
         String query = """
         SELECT 
-            q.theme_id,
+            t.theme_id,
             CASE 
-                WHEN COUNT(DISTINCT q.id) = 0 THEN 0
-                ELSE (COUNT(DISTINCT CASE WHEN ua.is_correct = 1 THEN ua.question_id END) * 100.0) 
-                     / COUNT(DISTINCT q.id)
+                WHEN t.total = 0 THEN 0
+                ELSE (COALESCE(c.correct, 0) * 100.0) / t.total
             END AS overall_completion_percentage
-        FROM questions q
-        LEFT JOIN user_answers ua ON q.id = ua.question_id AND ua.user_id = ?
-        GROUP BY q.theme_id;
+        FROM (SELECT theme_id, SUM(total) AS total FROM question_totals GROUP BY theme_id HAVING SUM(total) > 0) t
+        LEFT JOIN (SELECT theme_id, SUM(correct) AS correct FROM user_completion WHERE user_id = ? GROUP BY theme_id) c
+            ON c.theme_id = t.theme_id;
         """;
 
         Map<Integer, Double> completionPercentageMap = new HashMap<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, userId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int themeId = rs.getInt("theme_id");
-                    double completionPercentage = rs.getDouble("overall_completion_percentage");
-                    completionPercentageMap.put(themeId, completionPercentage);
-                }
-            }
+        try (QueryMetrics.Timer timer = GET_OVERALL_COMPLETION_PERCENTAGE_FOR_ALL_THEMES.start()) {
+            Rows.forEach(query, stmt -> stmt.setInt(1, userId), RowMappers.THEME_COMPLETION,
+                    entry -> completionPercentageMap.put(entry.getKey(), entry.getValue()));
         } catch (SQLException e) {
+            GET_OVERALL_COMPLETION_PERCENTAGE_FOR_ALL_THEMES.failed(e);
             e.printStackTrace();
         }
 
@@ -875,170 +856,317 @@ public class QueryDAO {
     public static Map<Integer, Double> getOverallCompletionPercentageForAllDifficulties(int userId) {
         String query = """
         SELECT 
-            q.difficulty_id,
+            t.difficulty_id,
             CASE 
-                WHEN COUNT(DISTINCT q.id) = 0 THEN 0
-                ELSE (COUNT(DISTINCT CASE WHEN ua.is_correct = 1 THEN ua.question_id END) * 100.0) 
-                     / COUNT(DISTINCT q.id)
+                WHEN t.total = 0 THEN 0
+                ELSE (COALESCE(c.correct, 0) * 100.0) / t.total
             END AS overall_completion_percentage
-        FROM questions q
-        LEFT JOIN user_answers ua ON q.id = ua.question_id AND ua.user_id = ?
-        GROUP BY q.difficulty_id;
+        FROM (SELECT difficulty_id, SUM(total) AS total FROM question_totals GROUP BY difficulty_id HAVING SUM(total) > 0) t
+        LEFT JOIN (SELECT difficulty_id, SUM(correct) AS correct FROM user_completion WHERE user_id = ? GROUP BY difficulty_id) c
+            ON c.difficulty_id = t.difficulty_id;
         """;
 
         Map<Integer, Double> completionPercentageMap = new HashMap<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, userId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int difficultyId = rs.getInt("difficulty_id");
-                    double completionPercentage = rs.getDouble("overall_completion_percentage");
-                    completionPercentageMap.put(difficultyId, completionPercentage);
-                }
-            }
+        try (QueryMetrics.Timer timer = GET_OVERALL_COMPLETION_PERCENTAGE_FOR_ALL_DIFFICULTIES.start()) {
+            Rows.forEach(query, stmt -> stmt.setInt(1, userId), RowMappers.DIFFICULTY_COMPLETION,
+                    entry -> completionPercentageMap.put(entry.getKey(), entry.getValue()));
         } catch (SQLException e) {
+            GET_OVERALL_COMPLETION_PERCENTAGE_FOR_ALL_DIFFICULTIES.failed(e);
             e.printStackTrace();
         }
 
         return completionPercentageMap;
     }
 
+    /**
+     * Calcola l'istantanea completa dei progressi dell'utente con una sola query sui contatori:
+     * ogni combinazione (linguaggio, tema, difficoltà) viene letta una volta e aggregata in memoria.
+     *
+     * @return istantanea dei progressi, vuota in caso di errore
+     */
+    public static ProgressSnapshot getProgressSnapshot(int userId) {
+        String query = """
+        SELECT 
+            t.language_id, t.theme_id, t.difficulty_id, t.total,
+            COALESCE(c.correct, 0) AS correct
+        FROM question_totals t
+        LEFT JOIN user_completion c
+            ON c.user_id = ?
+            AND c.language_id = t.language_id
+            AND c.theme_id = t.theme_id
+            AND c.difficulty_id = t.difficulty_id
+        WHERE t.total > 0;
+        """;
 
-    public static void updateUserProgress(int userId, int themeId, int languageId, int difficultyId, int additionalScore) {
-        String selectQuery = """
-        SELECT score FROM user_progress
-        WHERE user_id = ? AND theme_id = ? AND language_id = ? AND difficulty_id = ?;
-    """;
+        List<ProgressSnapshot.Cell> cells = new ArrayList<>();
 
-        String insertQuery = """
-        INSERT INTO user_progress (user_id, theme_id, language_id, difficulty_id, score)
-        VALUES (?, ?, ?, ?, ?);
-    """;
+        try (QueryMetrics.Timer timer = GET_PROGRESS_SNAPSHOT.start()) {
+            Rows.forEach(query, stmt -> stmt.setInt(1, userId), RowMappers.PROGRESS_CELL, cells::add);
+        } catch (SQLException e) {
+            GET_PROGRESS_SNAPSHOT.failed(e);
+            logger.error("Errore nel calcolo dei progressi dell'utente {}: {}", userId, e.getMessage());
+        }
 
-        String updateQuery = """
-        UPDATE user_progress
-        SET score = score + ?
-        WHERE user_id = ? AND theme_id = ? AND language_id = ? AND difficulty_id = ?;
-    """;
+        return ProgressSnapshot.fromCells(userId, cells);
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            // Controlla se esiste già un record per la combinazione specificata
-            try (PreparedStatement stmt = conn.prepareStatement(selectQuery)) {
-                stmt.setInt(1, userId);
-                stmt.setInt(2, themeId);
-                stmt.setInt(3, languageId);
-                stmt.setInt(4, difficultyId);
-                ResultSet rs = stmt.executeQuery();
-
-                if (rs.next()) {
-                    // Se esiste, esegui l'aggiornamento
-                    try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
-                        updateStmt.setInt(1, additionalScore);
-                        updateStmt.setInt(2, userId);
-                        updateStmt.setInt(3, themeId);
-                        updateStmt.setInt(4, languageId);
-                        updateStmt.setInt(5, difficultyId);
-                        updateStmt.executeUpdate();
-                        System.out.println("Punteggio aggiornato con successo!");
+    // Incremento del punteggio in una sola istruzione, sfrutta il vincolo unique_progress
+    private static final String UPSERT_USER_PROGRESS = """
+            INSERT INTO user_progress (user_id, theme_id, language_id, difficulty_id, score)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT(user_id, theme_id, language_id, difficulty_id)
+            DO UPDATE SET score = score + excluded.score
+            """;
+
+    //Query per aggiungere punti ai progressi dell'utente
+    public static void updateUserProgress(int userId, int themeId, int languageId, int difficultyId, int additionalScore) {
+        try (QueryMetrics.Timer timer = UPDATE_USER_PROGRESS.start();
+             Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_USER_PROGRESS)) {
+            bindUserProgress(stmt, userId, themeId, languageId, difficultyId, additionalScore);
+            stmt.executeUpdate();
+            logger.debug("Punteggio aggiornato: utente {}, +{} punti", userId, additionalScore);
+            Leaderboard.getInstance().onScoreChanged(userId);
+        } catch (SQLException e) {
+            UPDATE_USER_PROGRESS.failed(e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Salva in un'unica transazione tutte le risposte della sessione e l'incremento
+     * del punteggio in {@code user_progress}. Se una scrittura fallisce non viene salvato nulla.
+     *
+     * @param session sessione conclusa; con punteggio zero vengono salvate solo le risposte
+     * @throws SQLException se la transazione fallisce
+     */
+    public static void commitQuizSession(QuizSessionModel session) throws SQLException {
+        try (QueryMetrics.Timer timer = COMMIT_QUIZ_SESSION.start();
+             Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!session.getAnswers().isEmpty()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(UPSERT_USER_ANSWER)) {
+                        for (UserAnswerModel answer : session.getAnswers()) {
+                            stmt.setInt(1, answer.getUserId());
+                            stmt.setInt(2, answer.getQuestionId());
+                            stmt.setBoolean(3, answer.isCorrect());
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
                     }
-                } else {
-                    // Se non esiste, esegui l'inserimento
-                    try (PreparedStatement insertStmt = conn.prepareStatement(insertQuery)) {
-                        insertStmt.setInt(1, userId);
-                        insertStmt.setInt(2, themeId);
-                        insertStmt.setInt(3, languageId);
-                        insertStmt.setInt(4, difficultyId);
-                        insertStmt.setInt(5, additionalScore);
-                        insertStmt.executeUpdate();
-                        System.out.println("Nuovo punteggio inserito con successo!");
+                }
+
+                if (session.getScore() > 0) {
+                    try (PreparedStatement stmt = conn.prepareStatement(UPSERT_USER_PROGRESS)) {
+                        bindUserProgress(stmt, session.getUserId(), session.getThemeId(), session.getLanguageId(),
+                                session.getDifficultyId(), session.getScore());
+                        stmt.executeUpdate();
                     }
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw COMMIT_QUIZ_SESSION.failed(e);
+        }
+
+        if (session.getScore() > 0) {
+            Leaderboard.getInstance().onScoreChanged(session.getUserId());
         }
     }
 
-    // Ottieni tutte le domande
+    private static void bindUserProgress(PreparedStatement stmt, int userId, int themeId, int languageId,
+                                         int difficultyId, int score) throws SQLException {
+        stmt.setInt(1, userId);
+        stmt.setInt(2, themeId);
+        stmt.setInt(3, languageId);
+        stmt.setInt(4, difficultyId);
+        stmt.setInt(5, score);
+    }
+
+    //Query per leggere tutte le domande con il nome del linguaggio
+    private static final String SELECT_ALL_QUESTIONS = """
+        SELECT q.id, q.question, l.name AS language_name, q.language_id, q.theme_id, q.difficulty_id,
+               q.question_type, q.option_a, q.option_b, q.option_c, q.option_d, q.correct_option, q.code_solution
+        FROM questions q
+        JOIN languages l ON q.language_id = l.id;
+        """;
+
+    // Ottieni tutte le domande (per banche grandi usare forEachQuestion o DataExporter, che non le tengono in memoria)
     public static List<QuestionModel> getAllQuestions() {
         List<QuestionModel> questions = new ArrayList<>();
-        String query = "SELECT q.id, q.question, l.name AS language_name, q.language_id, q.theme_id, q.difficulty_id, q.question_type, q.option_a, q.option_b, q.option_c, q.option_d, q.correct_option, q.code_solution " +
-                "FROM questions q " +
-                "JOIN languages l ON q.language_id = l.id;";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                QuestionModel question = new QuestionModel(
-                        rs.getInt("id"),
-                        rs.getInt("language_id"),
-                        rs.getInt("theme_id"),
-                        rs.getInt("difficulty_id"),
-                        rs.getString("question_type"),
-                        rs.getString("question"),
-                        rs.getString("option_a"),
-                        rs.getString("option_b"),
-                        rs.getString("option_c"),
-                        rs.getString("option_d"),
-                        rs.getString("correct_option"),
-                        rs.getString("code_solution"),
-                        rs.getString("language_name") // Mappa language_name
-                );
-                questions.add(question);
-            }
+
+        try (QueryMetrics.Timer timer = GET_ALL_QUESTIONS.start()) {
+            Rows.forEach(SELECT_ALL_QUESTIONS, Rows.NO_PARAMS, RowMappers.QUESTION_WITH_LANGUAGE, questions::add);
         } catch (SQLException e) {
+            GET_ALL_QUESTIONS.failed(e);
             e.printStackTrace();
         }
 
         return questions;
     }
 
-    // Elimina una domanda per ID
+    /**
+     * Consegna tutte le domande al consumer una alla volta, mentre vengono lette dal cursore,
+     * senza costruire la lista completa in memoria.
+     *
+     * @return numero di domande lette
+     * @throws SQLException se la lettura fallisce; le domande già consegnate restano al consumer
+     */
+    public static long forEachQuestion(Consumer<? super QuestionModel> consumer) throws SQLException {
+        try (QueryMetrics.Timer timer = FOR_EACH_QUESTION.start()) {
+            return Rows.forEach(SELECT_ALL_QUESTIONS, Rows.NO_PARAMS, RowMappers.QUESTION_WITH_LANGUAGE, consumer);
+        } catch (SQLException e) {
+            throw FOR_EACH_QUESTION.failed(e);
+        }
+    }
+
+    // Caratteri del testo della domanda inclusi nell'anteprima
+    private static final int QUESTION_PREVIEW_LENGTH = 120;
+
+    /**
+     * Legge una pagina di domande con paginazione keyset sull'id: la query parte dalla
+     * chiave primaria successiva all'ultima già letta, quindi il costo non dipende dalla pagina.
+     *
+     * @param afterId ultimo id della pagina precedente (0 per la prima pagina)
+     * @param limit   numero massimo di domande da leggere
+     * @return riepiloghi ordinati per id crescente
+     * @throws SQLException se la lettura fallisce, per non confondere l'errore con la fine delle domande
+     */
+    public static List<QuestionSummaryModel> getQuestionSummaries(int afterId, int limit) throws SQLException {
+        List<QuestionSummaryModel> summaries = new ArrayList<>(limit);
+        String query = """
+        SELECT q.id, substr(q.question, 1, ?) AS preview, l.name AS language_name
+        FROM questions q
+        JOIN languages l ON q.language_id = l.id
+        WHERE q.id > ?
+        ORDER BY q.id
+        LIMIT ?;
+        """;
+
+        try (QueryMetrics.Timer timer = GET_QUESTION_SUMMARIES.start()) {
+            Rows.forEach(query, pstmt -> {
+                pstmt.setInt(1, QUESTION_PREVIEW_LENGTH);
+                pstmt.setInt(2, afterId);
+                pstmt.setInt(3, limit);
+            }, RowMappers.QUESTION_SUMMARY, summaries::add);
+        } catch (SQLException e) {
+            throw GET_QUESTION_SUMMARIES.failed(e);
+        }
+
+        return summaries;
+    }
+
+    //Query per leggere una domanda completa, null se non esiste
+    public static QuestionModel getQuestionById(int questionId) {
+        String query = """
+        SELECT q.id, q.question, l.name AS language_name, q.language_id, q.theme_id, q.difficulty_id,
+               q.question_type, q.option_a, q.option_b, q.option_c, q.option_d, q.correct_option, q.code_solution
+        FROM questions q
+        JOIN languages l ON q.language_id = l.id
+        WHERE q.id = ?;
+        """;
+
+        try (QueryMetrics.Timer timer = GET_QUESTION_BY_ID.start()) {
+            return Rows.first(query, pstmt -> pstmt.setInt(1, questionId), RowMappers.QUESTION_WITH_LANGUAGE);
+        } catch (SQLException e) {
+            GET_QUESTION_BY_ID.failed(e);
+            logger.error("Errore nella lettura della domanda {}: {}", questionId, e.getMessage());
+        }
+
+        return null;
+    }
+
+    // Elimina una domanda per ID (il trigger su questions aggiorna i contatori di completamento)
     public static boolean deleteQuestion(int questionId) throws SQLException {
         String query = "DELETE FROM questions WHERE id = ?;";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (QueryMetrics.Timer timer = DELETE_QUESTION.start();
+             Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
 
             pstmt.setInt(1, questionId);
-            return pstmt.executeUpdate() > 0;
+            boolean deleted = pstmt.executeUpdate() > 0;
+            if (deleted) {
+                QuestionBucketCache.getInstance().invalidateQuestion(questionId);
+            }
+            return deleted;
+        } catch (SQLException e) {
+            throw DELETE_QUESTION.failed(e);
         }
     }
 
 
-    //query per avere la calssifica di tutti i giocatori
+    //query per avere la calssifica di tutti i giocatori (totali già calcolati in user_scores)
+    //Per la schermata della classifica usare Leaderboard, che legge solo la pagina visibile
     public static List<PlayerRankingModel> getPlayerRanking() {
-        List<PlayerRankingModel> rankingList = new ArrayList<>();
         String query = """
-        SELECT u.username, SUM(up.score) AS total_score
-        FROM user_progress up
-        JOIN users u ON up.user_id = u.id
-        GROUP BY u.username
-        ORDER BY total_score DESC;
+        SELECT u.username, s.total_score
+        FROM user_scores s
+        JOIN users u ON s.user_id = u.id
+        ORDER BY s.total_score DESC, s.user_id;
         """;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
+        try (QueryMetrics.Timer timer = GET_PLAYER_RANKING.start()) {
+            // Le posizioni vengono assegnate dal mapper nell'ordine delle righe
+            return Rows.list(query, Rows.NO_PARAMS, RowMappers.PLAYER_RANKING);
+        } catch (SQLException e) {
+            GET_PLAYER_RANKING.failed(e);
+            e.printStackTrace();
+        }
 
-            int position = 1;
-            while (rs.next()) {
-                String username = rs.getString("username");
-                int totalScore = rs.getInt("total_score");
-                rankingList.add(new PlayerRankingModel(position++, username, totalScore));
-            }
+        return new ArrayList<>();
+    }
 
+    //Query per i totali di tutti i giocatori
+    private static final String SELECT_USER_SCORES = """
+        SELECT s.user_id, u.username, s.total_score
+        FROM user_scores s
+        JOIN users u ON s.user_id = u.id;
+        """;
+
+    //Query per caricare i totali di tutti i giocatori in una lista
+    public static List<Leaderboard.Entry> getUserScores() throws SQLException {
+        try (QueryMetrics.Timer timer = GET_USER_SCORES.start()) {
+            List<Leaderboard.Entry> scores = new ArrayList<>();
+            forEachUserScore(scores::add);
+            return scores;
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw GET_USER_SCORES.failed(e);
+        }
+    }
+
+    //Consegna i totali uno alla volta, usato da Leaderboard per caricare l'albero senza lista intermedia.
+    //In caso di errore il consumer può aver già ricevuto una parte dei totali: l'eccezione va propagata
+    public static long forEachUserScore(Consumer<? super Leaderboard.Entry> consumer) throws SQLException {
+        try (QueryMetrics.Timer timer = FOR_EACH_USER_SCORE.start()) {
+            return Rows.forEach(SELECT_USER_SCORES, Rows.NO_PARAMS, RowMappers.SCORE_ENTRY, consumer);
+        } catch (SQLException e) {
+            throw FOR_EACH_USER_SCORE.failed(e);
         }
+    }
 
-        return rankingList;
+    //Query per il totale di un singolo giocatore, null se non è in classifica.
+    //Un errore di lettura viene propagato per non confonderlo con un utente senza punteggio
+    public static Leaderboard.Entry getUserScore(int userId) throws SQLException {
+        String query = """
+        SELECT s.user_id, u.username, s.total_score
+        FROM user_scores s
+        JOIN users u ON s.user_id = u.id
+        WHERE s.user_id = ?;
+        """;
+
+        try (QueryMetrics.Timer timer = GET_USER_SCORE.start()) {
+            return Rows.first(query, pstmt -> pstmt.setInt(1, userId), RowMappers.SCORE_ENTRY);
+        } catch (SQLException e) {
+            throw GET_USER_SCORE.failed(e);
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,323 @@
+package com.matteorossi.play.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metriche di latenza e throughput per ogni operazione di {@link QueryDAO} e {@link ClaseDLLDAO},
+ * più il tempo di acquisizione delle connessioni dal pool.
+ * Ogni operazione è pubblicata come MXBean con nome
+ * {@code com.matteorossi.play:type=QueryMetrics,dao=<classe>,name=<metodo>},
+ * il riepilogo ordinato per tempo totale come {@code com.matteorossi.play:type=QueryMetrics,name=Summary}.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Chiamate, errori, tempo totale e chiamate al secondo dall'ultimo azzeramento</li>
+ *   <li>Latenze p50, p99 e massima da un {@link LatencyHistogram} senza lock</li>
+ *   <li>Registrazione sempre attiva; la pubblicazione JMX avviene con {@link #registerMBeans()}</li>
+ * </ul>
+ *
+ * <p>Uso tipico in un metodo DAO:</p>
+ * <pre>{@code
+ * try (QueryMetrics.Timer timer = GET_USER.start()) {
+ *     ...
+ * } catch (SQLException e) {
+ *     GET_USER.failed(e);
+ * }
+ * }</pre>
+ *
+ * <p>La pubblicazione si disattiva con la proprietà di sistema {@code play.metrics.jmx=false}.</p>
+ *
+ * @see LatencyHistogram Istogramma delle latenze
+ */
+public final class QueryMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+
+    private static final String DOMAIN = "com.matteorossi.play";
+
+    private static final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private static volatile boolean registered = false;
+
+    // Tempo di attesa per ottenere una connessione dal pool
+    public static final Operation CONNECTION_ACQUISITION = operation("ConnectionPool", "acquire");
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Restituisce l'operazione con il nome indicato, creandola alla prima richiesta.
+     * Da salvare in una costante: la ricerca avviene una volta sola.
+     */
+    public static Operation operation(String dao, String name) {
+        return operations.computeIfAbsent(dao + "." + name, key -> {
+            Operation operation = new Operation(dao, name);
+            if (registered) {
+                register(operation);
+            }
+            return operation;
+        });
+    }
+
+    /**
+     * Pubblica sul server JMX della piattaforma tutte le operazioni note e quelle create in seguito.
+     * Le chiamate successive non hanno effetto.
+     */
+    public static synchronized void registerMBeans() {
+        if (registered || !jmxEnabled()) {
+            return;
+        }
+        registered = true;
+        registerMBean(new Summary(), "type=QueryMetrics,name=Summary");
+        for (Operation operation : operations.values()) {
+            register(operation);
+        }
+        logger.info("Metriche del database pubblicate su JMX: {} operazioni", operations.size());
+    }
+
+    /**
+     * Pubblica un MXBean sul server JMX della piattaforma con nome {@code com.matteorossi.play:<properties>},
+     * salvo {@code play.metrics.jmx=false}. Un nome già registrato viene lasciato com'è.
+     *
+     * @param mbean      oggetto che implementa un'interfaccia MXBean
+     * @param properties chiavi del nome, ad esempio {@code type=TelegramDispatcher}
+     */
+    public static void registerMBean(Object mbean, String properties) {
+        if (!jmxEnabled()) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException e) {
+            logger.warn("MXBean {} non pubblicato su JMX: {}", properties, e.getMessage());
+        }
+    }
+
+    private static boolean jmxEnabled() {
+        return Boolean.parseBoolean(System.getProperty("play.metrics.jmx", "true"));
+    }
+
+    private static void register(Operation operation) {
+        registerMBean(operation, "type=QueryMetrics,dao=" + operation.dao + ",name=" + operation.name);
+    }
+
+    // Operazioni ordinate per tempo totale decrescente: la prima è quella che pesa di più
+    public static List<Operation> getOperations() {
+        List<Operation> sorted = new ArrayList<>(operations.values());
+        sorted.sort(Comparator.comparingLong(Operation::totalNanos).reversed()
+                .thenComparing(Operation::getOperation));
+        return sorted;
+    }
+
+    // Tabella testuale con una riga per operazione già chiamata
+    public static String report() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, "%-55s %9s %7s %10s %10s %10s %10s%n",
+                "operazione", "chiamate", "errori", "tot ms", "p50 us", "p99 us", "max us"));
+        for (Operation operation : getOperations()) {
+            if (operation.getCalls() == 0) {
+                continue;
+            }
+            report.append(String.format(Locale.ROOT, "%-55s %9d %7d %10d %10d %10d %10d%n",
+                    operation.getOperation(), operation.getCalls(), operation.getErrors(), operation.getTotalMillis(),
+                    operation.getP50Micros(), operation.getP99Micros(), operation.getMaxMicros()));
+        }
+        return report.toString();
+    }
+
+    public static void resetAll() {
+        for (Operation operation : operations.values()) {
+            operation.reset();
+        }
+    }
+
+    /**
+     * Attributi JMX di una singola operazione. Le latenze sono in microsecondi.
+     */
+    public interface OperationMXBean {
+        String getOperation();
+
+        long getCalls();
+
+        long getErrors();
+
+        long getTotalMillis();
+
+        double getCallsPerSecond();
+
+        long getMeanMicros();
+
+        long getP50Micros();
+
+        long getP99Micros();
+
+        long getMaxMicros();
+
+        void reset();
+    }
+
+    /**
+     * Riepilogo JMX di tutte le operazioni.
+     */
+    public interface SummaryMXBean {
+        // Nomi delle operazioni ordinati per tempo totale decrescente
+        List<String> getOperationsByTotalTime();
+
+        String getReport();
+
+        void resetAll();
+    }
+
+    /**
+     * Contatori e istogramma di un'operazione.
+     */
+    public static final class Operation implements OperationMXBean {
+        private final String dao;
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private volatile long resetAtNanos = System.nanoTime();
+
+        private Operation(String dao, String name) {
+            this.dao = dao;
+            this.name = name;
+        }
+
+        // Avvia la misura: va chiusa con try-with-resources
+        public Timer start() {
+            return new Timer(this, System.nanoTime());
+        }
+
+        /**
+         * Conta un errore dell'operazione e restituisce l'eccezione, così nei metodi che la
+         * rilanciano basta scrivere {@code throw OPERATION.failed(e)}.
+         */
+        public <E extends Throwable> E failed(E error) {
+            errors.increment();
+            return error;
+        }
+
+        // Registra una durata misurata altrove, ad esempio il tempo di attesa in una coda
+        public void record(long nanos) {
+            calls.increment();
+            totalNanos.add(nanos);
+            histogram.record(nanos);
+        }
+
+        long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        @Override
+        public String getOperation() {
+            return dao + "." + name;
+        }
+
+        @Override
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public long getTotalMillis() {
+            return totalNanos.sum() / 1_000_000;
+        }
+
+        @Override
+        public double getCallsPerSecond() {
+            long elapsed = System.nanoTime() - resetAtNanos;
+            return elapsed <= 0 ? 0 : calls.sum() * 1_000_000_000.0 / elapsed;
+        }
+
+        @Override
+        public long getMeanMicros() {
+            long count = calls.sum();
+            return count == 0 ? 0 : totalNanos.sum() / count / 1_000;
+        }
+
+        @Override
+        public long getP50Micros() {
+            return histogram.percentile(0.50) / 1_000;
+        }
+
+        @Override
+        public long getP99Micros() {
+            return histogram.percentile(0.99) / 1_000;
+        }
+
+        @Override
+        public long getMaxMicros() {
+            return histogram.getMax() / 1_000;
+        }
+
+        @Override
+        public void reset() {
+            calls.reset();
+            errors.reset();
+            totalNanos.reset();
+            histogram.reset();
+            resetAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Misura in corso: alla chiusura registra la durata, anche se il metodo termina con un'eccezione.
+     */
+    public static final class Timer implements AutoCloseable {
+        private final Operation operation;
+        private final long startNanos;
+
+        private Timer(Operation operation, long startNanos) {
+            this.operation = operation;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            operation.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static final class Summary implements SummaryMXBean {
+        @Override
+        public List<String> getOperationsByTotalTime() {
+            List<String> names = new ArrayList<>();
+            for (Operation operation : getOperations()) {
+                names.add(operation.getOperation());
+            }
+            return names;
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void resetAll() {
+            QueryMetrics.resetAll();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.matteorossi.play.database;
+
+import com.matteorossi.play.models.QuestionModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache LRU dei gruppi di domande per tema, linguaggio e difficoltà.
+ * Ogni avvio di un test legge un intero gruppo: tenerlo in memoria evita di rileggere
+ * le stesse domande e permette di caricare in anticipo il livello successivo.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Ordine di accesso LRU con limite sul numero totale di domande in memoria</li>
+ *   <li>Invalidazione del gruppo interessato dopo l'inserimento o l'eliminazione di una domanda</li>
+ *   <li>Caricamento anticipato in background tramite {@link #prefetch(int, int, int)}</li>
+ *   <li>Statistiche di utilizzo tramite {@link #getStats()}</li>
+ * </ul>
+ *
+ * <p>Configurazione: {@code play.cache.maxQuestions} (default {@value #DEFAULT_MAX_QUESTIONS}).</p>
+ *
+ * @see QueryDAO#getQuestions(int, int, int) Lettura tramite la cache
+ */
+public class QuestionBucketCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionBucketCache.class);
+
+    private static final int DEFAULT_MAX_QUESTIONS = 5000;
+
+    private static final QuestionBucketCache INSTANCE = new QuestionBucketCache(
+            Integer.getInteger("play.cache.maxQuestions", DEFAULT_MAX_QUESTIONS));
+
+    private final int maxQuestions;
+    // accessOrder = true: il primo elemento è quello usato meno di recente
+    private final LinkedHashMap<BucketKey, List<QuestionModel>> buckets = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<BucketKey> prefetching = new HashSet<>();
+    private int cachedQuestions = 0;
+    // Incrementata ad ogni invalidazione: un caricamento iniziato prima non viene memorizzato
+    private long generation = 0;
+
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "question-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Statistiche
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong prefetches = new AtomicLong();
+
+    private QuestionBucketCache(int maxQuestions) {
+        this.maxQuestions = Math.max(1, maxQuestions);
+    }
+
+    public static QuestionBucketCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Restituisce il gruppo di domande, leggendolo dal database se non è in cache.
+     * La lista restituita è immutabile e condivisa: chi deve modificarla ne fa una copia.
+     */
+    public List<QuestionModel> get(int themeId, int languageId, int difficultyId) {
+        BucketKey key = new BucketKey(themeId, languageId, difficultyId);
+        long expectedGeneration;
+        synchronized (this) {
+            List<QuestionModel> bucket = buckets.get(key);
+            if (bucket != null) {
+                hits.incrementAndGet();
+                return bucket;
+            }
+            expectedGeneration = generation;
+        }
+
+        misses.incrementAndGet();
+        List<QuestionModel> loaded = List.copyOf(QueryDAO.loadQuestions(themeId, languageId, difficultyId));
+        store(key, loaded, expectedGeneration);
+        return loaded;
+    }
+
+    /**
+     * Carica il gruppo in background se non è già in cache o in caricamento.
+     * Non blocca il chiamante: pensato per il livello successivo mentre l'utente risponde.
+     */
+    public void prefetch(int themeId, int languageId, int difficultyId) {
+        BucketKey key = new BucketKey(themeId, languageId, difficultyId);
+        long expectedGeneration;
+        synchronized (this) {
+            if (buckets.containsKey(key) || !prefetching.add(key)) {
+                return;
+            }
+            expectedGeneration = generation;
+        }
+
+        try {
+            prefetcher.execute(() -> {
+                try {
+                    List<QuestionModel> loaded = List.copyOf(QueryDAO.loadQuestions(themeId, languageId, difficultyId));
+                    store(key, loaded, expectedGeneration);
+                    prefetches.incrementAndGet();
+                } finally {
+                    synchronized (this) {
+                        prefetching.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                prefetching.remove(key);
+            }
+            logger.warn("Caricamento anticipato non avviato: {}", e.getMessage());
+        }
+    }
+
+    // Da chiamare dopo l'inserimento di una domanda nel gruppo indicato
+    public synchronized void invalidate(int themeId, int languageId, int difficultyId) {
+        generation++;
+        remove(new BucketKey(themeId, languageId, difficultyId));
+    }
+
+    // Da chiamare dopo l'eliminazione di una domanda: scarta il gruppo che la contiene
+    public synchronized void invalidateQuestion(int questionId) {
+        generation++;
+        Iterator<Map.Entry<BucketKey, List<QuestionModel>>> iterator = buckets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            List<QuestionModel> bucket = iterator.next().getValue();
+            if (bucket.stream().anyMatch(question -> question.getId() == questionId)) {
+                cachedQuestions -= bucket.size();
+                iterator.remove();
+            }
+        }
+    }
+
+    // Svuota la cache, ad esempio dopo la cancellazione delle tabelle
+    public synchronized void invalidateAll() {
+        generation++;
+        buckets.clear();
+        cachedQuestions = 0;
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(buckets.size(), cachedQuestions, hits.get(), misses.get(), evictions.get(), prefetches.get());
+    }
+
+    private synchronized void store(BucketKey key, List<QuestionModel> bucket, long expectedGeneration) {
+        if (generation != expectedGeneration) {
+            // Invalidata durante il caricamento: i dati potrebbero essere già vecchi
+            return;
+        }
+        remove(key);
+        buckets.put(key, bucket);
+        cachedQuestions += bucket.size();
+
+        // Espulsione per dimensione: si scartano i gruppi usati meno di recente, tranne l'ultimo inserito
+        Iterator<Map.Entry<BucketKey, List<QuestionModel>>> iterator = buckets.entrySet().iterator();
+        while (cachedQuestions > maxQuestions && buckets.size() > 1) {
+            Map.Entry<BucketKey, List<QuestionModel>> eldest = iterator.next();
+            cachedQuestions -= eldest.getValue().size();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(BucketKey key) {
+        List<QuestionModel> removed = buckets.remove(key);
+        if (removed != null) {
+            cachedQuestions -= removed.size();
+        }
+    }
+
+    private record BucketKey(int themeId, int languageId, int difficultyId) {
+    }
+
+    /**
+     * Statistiche della cache.
+     *
+     * @param buckets   gruppi in memoria
+     * @param questions domande in memoria
+     * @param hits      letture servite dalla cache
+     * @param misses    letture che hanno richiesto il database
+     * @param evictions gruppi scartati per superamento del limite
+     * @param prefetches gruppi caricati in anticipo
+     */
+    public record CacheStats(int buckets, int questions, long hits, long misses, long evictions, long prefetches) {
+
+        // Percentuale di letture servite dalla cache
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : hits * 100.0 / total;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.matteorossi.play.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Importazione massiva di domande da file CSV o JSON Lines.
+ * Il file viene letto in streaming, ogni riga viene validata e le righe valide vengono
+ * inserite a blocchi con {@code addBatch}/{@code executeBatch}, una transazione per blocco.
+ *
+ * <p>Colonne attese (i nomi di linguaggio, tema e difficoltà devono esistere già):</p>
+ * <ul>
+ *   <li>{@code language}, {@code theme}, {@code difficulty}: nomi, senza distinzione tra maiuscole e minuscole</li>
+ *   <li>{@code question_type}: {@code multiple_choice} oppure {@code code}</li>
+ *   <li>{@code question}: testo della domanda</li>
+ *   <li>{@code option_a} … {@code option_d}, {@code correct_option} (A, B, C, D o "Corretta X"): solo scelta multipla</li>
+ *   <li>{@code code_solution}: solo domande con codice</li>
+ * </ul>
+ *
+ * <p>Le righe scartate non interrompono l'importazione e vengono elencate nel {@link ImportReport}
+ * insieme alle righe al secondo.</p>
+ *
+ * @see ImportRecordReader Lettura dei formati supportati
+ * @see QueryDAO#insertQuestion Inserimento di una singola domanda
+ */
+public class QuestionImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionImporter.class);
+
+    // Righe inserite per transazione
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    // Scarti conservati nel report (il conteggio resta completo)
+    private static final int MAX_REPORTED_REJECTS = 100;
+
+    //Query per l'inserimento a blocchi, stessa forma di QueryDAO.insertQuestion
+    private static final String INSERT_QUESTION = """
+            INSERT INTO questions (
+                language_id, theme_id, difficulty_id, question_type, question,
+                option_a, option_b, option_c, option_d, correct_option, code_solution
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    /**
+     * Formato del file di importazione.
+     */
+    public enum Format {
+        CSV, JSONL;
+
+        // Deduce il formato dall'estensione: .csv oppure .jsonl/.ndjson/.json
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+                return JSONL;
+            }
+            throw new IllegalArgumentException("Formato non riconosciuto: " + fileName + " (usare .csv o .jsonl)");
+        }
+    }
+
+    private final int chunkSize;
+    // Lookup nome → id costruite una volta per importazione dall'istantanea dei dati di riferimento
+    private final Map<String, Integer> languageIds = new HashMap<>();
+    private final Map<String, Integer> themeIds = new HashMap<>();
+    private final Map<String, Integer> difficultyIds = new HashMap<>();
+
+    public QuestionImporter() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public QuestionImporter(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // Importa un file deducendo il formato dall'estensione
+    public ImportReport importFile(Path file) throws IOException, SQLException {
+        return importFile(file, Format.fromFileName(file.getFileName().toString()));
+    }
+
+    public ImportReport importFile(Path file, Format format) throws IOException, SQLException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, format);
+        }
+    }
+
+    /**
+     * Importa le domande lette dal reader.
+     * Gli errori di lettura del file e di accesso al database interrompono l'importazione;
+     * i blocchi già confermati restano nel database.
+     */
+    public ImportReport importFrom(BufferedReader input, Format format) throws IOException, SQLException {
+        long start = System.nanoTime();
+        loadLookups(ReferenceDataCache.getInstance().get());
+
+        ImportRecordReader reader = ImportRecordReader.of(format, input);
+        List<Reject> rejects = new ArrayList<>();
+        int rowsRead = 0;
+        int inserted = 0;
+        int rejected = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_QUESTION)) {
+            conn.setAutoCommit(false);
+            try {
+                List<Integer> chunkLines = new ArrayList<>(chunkSize);
+                while (true) {
+                    Map<String, String> record;
+                    try {
+                        record = reader.next();
+                    } catch (ImportRecordReader.MalformedRecordException e) {
+                        rowsRead++;
+                        rejected++;
+                        addReject(rejects, reader.getRecordLine(), e.getMessage());
+                        continue;
+                    }
+                    if (record == null) {
+                        break;
+                    }
+                    rowsRead++;
+
+                    String error = bind(stmt, record);
+                    if (error != null) {
+                        rejected++;
+                        addReject(rejects, reader.getRecordLine(), error);
+                        continue;
+                    }
+                    stmt.addBatch();
+                    chunkLines.add(reader.getRecordLine());
+
+                    if (chunkLines.size() == chunkSize) {
+                        int written = flushChunk(conn, stmt, chunkLines, rejects);
+                        inserted += written;
+                        rejected += chunkLines.size() - written;
+                        chunkLines.clear();
+                    }
+                }
+                if (!chunkLines.isEmpty()) {
+                    int written = flushChunk(conn, stmt, chunkLines, rejects);
+                    inserted += written;
+                    rejected += chunkLines.size() - written;
+                }
+            } catch (IOException | SQLException e) {
+                // Annulla solo il blocco in corso: quelli precedenti sono già confermati
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            if (inserted > 0) {
+                // Le domande nuove devono comparire nei gruppi già in cache
+                QuestionBucketCache.getInstance().invalidateAll();
+            }
+        }
+
+        ImportReport report = new ImportReport(rowsRead, inserted, rejected, List.copyOf(rejects),
+                (System.nanoTime() - start) / 1_000_000);
+        logger.info("Importazione completata: {}", report.summary());
+        return report;
+    }
+
+    // Esegue e conferma il blocco; se fallisce lo annulla e scarta tutte le sue righe
+    private int flushChunk(Connection conn, PreparedStatement stmt, List<Integer> chunkLines, List<Reject> rejects) throws SQLException {
+        try {
+            stmt.executeBatch();
+            conn.commit();
+            return chunkLines.size();
+        } catch (SQLException e) {
+            conn.rollback();
+            stmt.clearBatch();
+            logger.warn("Blocco di {} righe annullato: {}", chunkLines.size(), e.getMessage());
+            for (int line : chunkLines) {
+                addReject(rejects, line, "blocco annullato: " + e.getMessage());
+            }
+            return 0;
+        }
+    }
+
+    void loadLookups(ReferenceDataCache.Snapshot snapshot) {
+        languageIds.clear();
+        themeIds.clear();
+        difficultyIds.clear();
+        for (ReferenceDataCache.NamedRow row : snapshot.getLanguages()) {
+            languageIds.put(normalize(row.name()), row.id());
+        }
+        for (ReferenceDataCache.NamedRow row : snapshot.getThemes()) {
+            themeIds.put(normalize(row.name()), row.id());
+        }
+        for (ReferenceDataCache.DifficultyRow row : snapshot.getDifficulties()) {
+            difficultyIds.put(normalize(row.name()), row.id());
+        }
+    }
+
+    /**
+     * Valida il record e ne imposta i parametri nello statement.
+     *
+     * @return null se il record è valido, altrimenti il motivo dello scarto
+     */
+    String bind(PreparedStatement stmt, Map<String, String> record) throws SQLException {
+        Integer languageId = languageIds.get(normalize(record.get("language")));
+        if (languageId == null) {
+            return "linguaggio sconosciuto: " + record.get("language");
+        }
+        Integer themeId = themeIds.get(normalize(record.get("theme")));
+        if (themeId == null) {
+            return "tema sconosciuto: " + record.get("theme");
+        }
+        Integer difficultyId = difficultyIds.get(normalize(record.get("difficulty")));
+        if (difficultyId == null) {
+            return "difficoltà sconosciuta: " + record.get("difficulty");
+        }
+
+        String question = trimToNull(record.get("question"));
+        if (question == null) {
+            return "testo della domanda mancante";
+        }
+
+        String questionType = normalize(record.get("question_type"));
+        String optionA = null, optionB = null, optionC = null, optionD = null, correctOption = null, codeSolution = null;
+        if (questionType.equals("multiple_choice")) {
+            optionA = trimToNull(record.get("option_a"));
+            optionB = trimToNull(record.get("option_b"));
+            optionC = trimToNull(record.get("option_c"));
+            optionD = trimToNull(record.get("option_d"));
+            if (optionA == null || optionB == null || optionC == null || optionD == null) {
+                return "tutte le opzioni A-D sono obbligatorie";
+            }
+            correctOption = normalizeCorrectOption(record.get("correct_option"));
+            if (correctOption == null) {
+                return "risposta corretta non valida: " + record.get("correct_option");
+            }
+        } else if (questionType.equals("code")) {
+            codeSolution = trimToNull(record.get("code_solution"));
+            if (codeSolution == null) {
+                return "soluzione mancante per la domanda con codice";
+            }
+        } else {
+            return "tipo di domanda non valido: " + record.get("question_type");
+        }
+
+        stmt.setInt(1, languageId);
+        stmt.setInt(2, themeId);
+        stmt.setInt(3, difficultyId);
+        stmt.setString(4, questionType);
+        stmt.setString(5, question);
+        stmt.setString(6, optionA);
+        stmt.setString(7, optionB);
+        stmt.setString(8, optionC);
+        stmt.setString(9, optionD);
+        stmt.setString(10, correctOption);
+        stmt.setString(11, codeSolution);
+        return null;
+    }
+
+    // La risposta corretta viene salvata come il testo delle checkbox ("Corretta A"), letto da GenerateQuestionsController
+    static String normalizeCorrectOption(String value) {
+        String compact = normalize(value).replace(" ", "");
+        if (compact.startsWith("corretta")) {
+            compact = compact.substring("corretta".length());
+        }
+        if (compact.length() == 1 && compact.charAt(0) >= 'a' && compact.charAt(0) <= 'd') {
+            return "Corretta " + Character.toUpperCase(compact.charAt(0));
+        }
+        return null;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static void addReject(List<Reject> rejects, int line, String reason) {
+        if (rejects.size() < MAX_REPORTED_REJECTS) {
+            rejects.add(new Reject(line, reason));
+        }
+    }
+
+    /**
+     * Riga scartata.
+     *
+     * @param line   riga del file in cui inizia il record
+     * @param reason motivo dello scarto
+     */
+    public record Reject(int line, String reason) {
+    }
+
+    /**
+     * Esito dell'importazione.
+     *
+     * @param rowsRead      record letti dal file
+     * @param inserted      domande inserite
+     * @param rejected      record scartati
+     * @param rejects       primi record scartati con il motivo
+     * @param elapsedMillis durata complessiva
+     */
+    public record ImportReport(int rowsRead, int inserted, int rejected, List<Reject> rejects, long elapsedMillis) {
+
+        public double rowsPerSecond() {
+            return elapsedMillis == 0 ? rowsRead : rowsRead * 1000.0 / elapsedMillis;
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT, "%d righe lette, %d inserite, %d scartate in %d ms (%.0f righe/s)",
+                    rowsRead, inserted, rejected, elapsedMillis, rowsPerSecond());
+        }
+    }
+}
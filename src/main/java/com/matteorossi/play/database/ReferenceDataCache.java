@@ -0,0 +1,203 @@
+package com.matteorossi.play.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cache dei dati di riferimento: linguaggi, temi e difficoltà.
+ * Queste tabelle cambiano solo dall'area amministrativa, quindi vengono lette una volta
+ * in un'istantanea immutabile che viene sostituita in modo atomico dopo ogni modifica.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Istantanea immutabile condivisa tra i thread senza lock</li>
+ *   <li>Scala delle difficoltà precalcolata per trovare il livello successivo</li>
+ *   <li>Invalidazione dai metodi di inserimento ed eliminazione di {@link QueryDAO}</li>
+ *   <li>Statistiche di hit rate tramite {@link #getStats()}</li>
+ * </ul>
+ *
+ * @see QueryDAO Metodi di lettura che usano la cache
+ */
+public class ReferenceDataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache();
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    // Incrementata ad ogni invalidazione: un caricamento iniziato prima non viene pubblicato
+    private final AtomicLong generation = new AtomicLong();
+
+    // Statistiche
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+
+    private ReferenceDataCache() {
+    }
+
+    public static ReferenceDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Restituisce l'istantanea corrente, caricandola dal database se necessario.
+     * In caso di errore restituisce un'istantanea vuota che non viene memorizzata.
+     */
+    public Snapshot get() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+
+        misses.incrementAndGet();
+        long expectedGeneration = generation.get();
+        Snapshot loaded;
+        try {
+            loaded = load();
+        } catch (SQLException e) {
+            loadFailures.incrementAndGet();
+            logger.error("Errore nel caricamento dei dati di riferimento: {}", e.getMessage());
+            return Snapshot.EMPTY;
+        }
+
+        if (current.compareAndSet(null, loaded) && generation.get() != expectedGeneration) {
+            // Invalidata durante il caricamento: i dati potrebbero essere già vecchi
+            current.compareAndSet(loaded, null);
+        }
+        return loaded;
+    }
+
+    // Da chiamare dopo ogni modifica a languages, themes o difficulties
+    public void invalidate() {
+        generation.incrementAndGet();
+        current.set(null);
+        invalidations.incrementAndGet();
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), invalidations.get(), loadFailures.get());
+    }
+
+    // Legge le tre tabelle con una sola connessione
+    private Snapshot load() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            List<NamedRow> languages = Rows.list(conn, "SELECT id, name FROM languages ORDER BY id",
+                    Rows.NO_PARAMS, RowMappers.NAMED_ROW);
+            List<NamedRow> themes = Rows.list(conn, "SELECT id, name FROM themes ORDER BY id",
+                    Rows.NO_PARAMS, RowMappers.NAMED_ROW);
+            List<DifficultyRow> difficulties = Rows.list(conn, "SELECT id, name, levelDifficulty FROM difficulties ORDER BY id",
+                    Rows.NO_PARAMS, RowMappers.DIFFICULTY_ROW);
+            return new Snapshot(languages, themes, difficulties);
+        }
+    }
+
+    /**
+     * Riga con id e nome di un linguaggio o di un tema.
+     */
+    public record NamedRow(int id, String name) {
+    }
+
+    /**
+     * Riga di una difficoltà con il suo livello.
+     */
+    public record DifficultyRow(int id, String name, int level) {
+    }
+
+    /**
+     * Istantanea immutabile dei dati di riferimento.
+     */
+    public static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(List.of(), List.of(), List.of());
+
+        private final List<NamedRow> languages;
+        private final List<NamedRow> themes;
+        private final List<DifficultyRow> difficulties;
+        private final Map<Integer, Integer> levelById;
+        // Scala delle difficoltà ordinata per livello (a parità di livello per id)
+        private final int[] ladderLevels;
+        private final int[] ladderIds;
+
+        Snapshot(List<NamedRow> languages, List<NamedRow> themes, List<DifficultyRow> difficulties) {
+            this.languages = List.copyOf(languages);
+            this.themes = List.copyOf(themes);
+            this.difficulties = List.copyOf(difficulties);
+
+            Map<Integer, Integer> levels = new HashMap<>();
+            for (DifficultyRow difficulty : difficulties) {
+                levels.put(difficulty.id(), difficulty.level());
+            }
+            this.levelById = Map.copyOf(levels);
+
+            List<DifficultyRow> ladder = new ArrayList<>(difficulties);
+            ladder.sort(Comparator.comparingInt(DifficultyRow::level).thenComparingInt(DifficultyRow::id));
+            this.ladderLevels = ladder.stream().mapToInt(DifficultyRow::level).toArray();
+            this.ladderIds = ladder.stream().mapToInt(DifficultyRow::id).toArray();
+        }
+
+        public List<NamedRow> getLanguages() {
+            return languages;
+        }
+
+        public List<NamedRow> getThemes() {
+            return themes;
+        }
+
+        public List<DifficultyRow> getDifficulties() {
+            return difficulties;
+        }
+
+        // Livello della difficoltà, -1 se non esiste
+        public int getLevel(int difficultyId) {
+            return levelById.getOrDefault(difficultyId, -1);
+        }
+
+        /**
+         * Id della prima difficoltà con livello strettamente maggiore, tramite ricerca binaria sulla scala.
+         *
+         * @return id della difficoltà successiva oppure null se il livello è già il massimo
+         */
+        public Integer getNextDifficultyId(int currentLevel) {
+            int index = Arrays.binarySearch(ladderLevels, currentLevel + 1);
+            if (index < 0) {
+                index = -index - 1;
+            } else {
+                // Con livelli duplicati la ricerca può fermarsi su uno qualsiasi: torno al primo
+                while (index > 0 && ladderLevels[index - 1] == ladderLevels[index]) {
+                    index--;
+                }
+            }
+            return index < ladderIds.length ? ladderIds[index] : null;
+        }
+    }
+
+    /**
+     * Statistiche della cache.
+     *
+     * @param hits          letture servite dall'istantanea
+     * @param misses        letture che hanno richiesto il caricamento dal database
+     * @param invalidations invalidazioni dovute a modifiche amministrative
+     * @param loadFailures  caricamenti falliti
+     */
+    public record CacheStats(long hits, long misses, long invalidations, long loadFailures) {
+
+        // Percentuale di letture servite dalla cache
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : hits * 100.0 / total;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.matteorossi.play.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Conversione delle righe di un {@link ResultSet} in oggetti, scritta a mano e senza riflessione.
+ * La conversione avviene in due fasi: {@link #bind(ResultSet)} risolve una sola volta gli indici
+ * delle colonne per nome, la {@link Row} restituita legge poi ogni riga per indice.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Istanze senza stato, precompilate come costanti in {@link RowMappers}</li>
+ *   <li>Nessuna ricerca per nome della colonna dentro il ciclo delle righe</li>
+ *   <li>Stato per singolo ResultSet (ad esempio la posizione in classifica) confinato nella {@link Row}</li>
+ * </ul>
+ *
+ * @see Rows Esecuzione delle query con i mapper
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+
+    /**
+     * Risolve le colonne usate dal mapper. Chiamato una volta per ResultSet, prima della prima riga.
+     */
+    Row<T> bind(ResultSet rs) throws SQLException;
+
+    /**
+     * Lettura della riga corrente con gli indici già risolti.
+     */
+    @FunctionalInterface
+    interface Row<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+}
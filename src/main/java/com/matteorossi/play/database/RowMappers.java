@@ -0,0 +1,216 @@
+package com.matteorossi.play.database;
+
+import com.matteorossi.play.models.*;
+
+import java.util.Map;
+
+/**
+ * Mapper precompilati per tutte le letture di {@link QueryDAO} e dei dati di riferimento.
+ * Ogni costante viene creata una volta sola e condivisa da tutte le query che leggono
+ * le stesse colonne, così la conversione delle righe segue un unico percorso.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Modelli completi: domande, utenti, admin, riepiloghi e celle dei progressi</li>
+ *   <li>Valori singoli (id, password, conteggi) letti per indice</li>
+ *   <li>Coppie id → percentuale per le percentuali di completamento</li>
+ * </ul>
+ *
+ * @see RowMapper Contratto dei mapper
+ */
+final class RowMappers {
+
+    // Domanda senza il nome del linguaggio (gruppi di domande della cache)
+    static final RowMapper<QuestionModel> QUESTION = rs -> {
+        int id = rs.findColumn("id");
+        int languageId = rs.findColumn("language_id");
+        int themeId = rs.findColumn("theme_id");
+        int difficultyId = rs.findColumn("difficulty_id");
+        int questionType = rs.findColumn("question_type");
+        int question = rs.findColumn("question");
+        int optionA = rs.findColumn("option_a");
+        int optionB = rs.findColumn("option_b");
+        int optionC = rs.findColumn("option_c");
+        int optionD = rs.findColumn("option_d");
+        int correctOption = rs.findColumn("correct_option");
+        int codeSolution = rs.findColumn("code_solution");
+        return row -> new QuestionModel(
+                row.getInt(id),
+                row.getInt(languageId),
+                row.getInt(themeId),
+                row.getInt(difficultyId),
+                row.getString(questionType),
+                row.getString(question),
+                row.getString(optionA),
+                row.getString(optionB),
+                row.getString(optionC),
+                row.getString(optionD),
+                row.getString(correctOption),
+                row.getString(codeSolution));
+    };
+
+    // Domanda con il nome del linguaggio (colonna language_name dalla JOIN con languages)
+    static final RowMapper<QuestionModel> QUESTION_WITH_LANGUAGE = rs -> {
+        int id = rs.findColumn("id");
+        int languageId = rs.findColumn("language_id");
+        int themeId = rs.findColumn("theme_id");
+        int difficultyId = rs.findColumn("difficulty_id");
+        int questionType = rs.findColumn("question_type");
+        int question = rs.findColumn("question");
+        int optionA = rs.findColumn("option_a");
+        int optionB = rs.findColumn("option_b");
+        int optionC = rs.findColumn("option_c");
+        int optionD = rs.findColumn("option_d");
+        int correctOption = rs.findColumn("correct_option");
+        int codeSolution = rs.findColumn("code_solution");
+        int languageName = rs.findColumn("language_name");
+        return row -> new QuestionModel(
+                row.getInt(id),
+                row.getInt(languageId),
+                row.getInt(themeId),
+                row.getInt(difficultyId),
+                row.getString(questionType),
+                row.getString(question),
+                row.getString(optionA),
+                row.getString(optionB),
+                row.getString(optionC),
+                row.getString(optionD),
+                row.getString(correctOption),
+                row.getString(codeSolution),
+                row.getString(languageName));
+    };
+
+    static final RowMapper<QuestionSummaryModel> QUESTION_SUMMARY = rs -> {
+        int id = rs.findColumn("id");
+        int preview = rs.findColumn("preview");
+        int languageName = rs.findColumn("language_name");
+        return row -> new QuestionSummaryModel(row.getInt(id), row.getString(preview), row.getString(languageName));
+    };
+
+    static final RowMapper<AdminModel> ADMIN = rs -> {
+        int username = rs.findColumn("username");
+        int password = rs.findColumn("password");
+        int firstName = rs.findColumn("first_name");
+        int lastName = rs.findColumn("last_name");
+        return row -> new AdminModel(row.getString(username), row.getString(password),
+                row.getString(firstName), row.getString(lastName));
+    };
+
+    // Solo username e telegram_id, per l'elenco degli utenti
+    static final RowMapper<UserModel> USER = rs -> {
+        int username = rs.findColumn("username");
+        int telegramId = rs.findColumn("telegram_id");
+        return row -> new UserModel(row.getString(username), row.getString(telegramId));
+    };
+
+    // Utente con password cifrata e stato di reset
+    static final RowMapper<UserModel> USER_CREDENTIALS = rs -> {
+        int username = rs.findColumn("username");
+        int telegramId = rs.findColumn("telegram_id");
+        int password = rs.findColumn("password");
+        int isReset = rs.findColumn("isReset");
+        return row -> new UserModel(row.getString(username), row.getString(telegramId),
+                row.getString(password), row.getBoolean(isReset));
+    };
+
+    static final RowMapper<ProgressSnapshot.Cell> PROGRESS_CELL = rs -> {
+        int languageId = rs.findColumn("language_id");
+        int themeId = rs.findColumn("theme_id");
+        int difficultyId = rs.findColumn("difficulty_id");
+        int total = rs.findColumn("total");
+        int correct = rs.findColumn("correct");
+        return row -> new ProgressSnapshot.Cell(row.getInt(languageId), row.getInt(themeId), row.getInt(difficultyId),
+                row.getLong(total), row.getLong(correct));
+    };
+
+    static final RowMapper<Leaderboard.Entry> SCORE_ENTRY = rs -> {
+        int userId = rs.findColumn("user_id");
+        int username = rs.findColumn("username");
+        int totalScore = rs.findColumn("total_score");
+        return row -> new Leaderboard.Entry(row.getInt(userId), row.getString(username), row.getInt(totalScore));
+    };
+
+    // La posizione dipende dall'ordine delle righe: il contatore vive nella Row del singolo ResultSet
+    static final RowMapper<PlayerRankingModel> PLAYER_RANKING = rs -> {
+        int username = rs.findColumn("username");
+        int totalScore = rs.findColumn("total_score");
+        int[] position = {1};
+        return row -> new PlayerRankingModel(position[0]++, row.getString(username), row.getInt(totalScore));
+    };
+
+    // Notifica dell'outbox prenotata per la consegna, con il tentativo in corso già contato
+    static final RowMapper<NotificationOutbox.Entry> OUTBOX_ENTRY = rs -> {
+        int id = rs.findColumn("id");
+        int chatId = rs.findColumn("chat_id");
+        int message = rs.findColumn("message");
+        int attempts = rs.findColumn("attempts");
+        return row -> new NotificationOutbox.Entry(row.getLong(id), row.getString(chatId), row.getString(message),
+                row.getInt(attempts));
+    };
+
+    static final RowMapper<ReferenceDataCache.NamedRow> NAMED_ROW = rs -> {
+        int id = rs.findColumn("id");
+        int name = rs.findColumn("name");
+        return row -> new ReferenceDataCache.NamedRow(row.getInt(id), row.getString(name));
+    };
+
+    static final RowMapper<ReferenceDataCache.DifficultyRow> DIFFICULTY_ROW = rs -> {
+        int id = rs.findColumn("id");
+        int name = rs.findColumn("name");
+        int level = rs.findColumn("levelDifficulty");
+        return row -> new ReferenceDataCache.DifficultyRow(row.getInt(id), row.getString(name), row.getInt(level));
+    };
+
+    // Percentuale di completamento per tema o per difficoltà
+    static final RowMapper<Map.Entry<Integer, Double>> THEME_COMPLETION =
+            completion("theme_id", "overall_completion_percentage");
+    static final RowMapper<Map.Entry<Integer, Double>> DIFFICULTY_COMPLETION =
+            completion("difficulty_id", "overall_completion_percentage");
+
+    // Valori singoli
+    static final RowMapper<Integer> ID = integer("id");
+    static final RowMapper<Integer> COUNT = integer("total");
+    static final RowMapper<AuthService.Credentials> CREDENTIALS = rs -> {
+        int id = rs.findColumn("id");
+        int password = rs.findColumn("password");
+        int isReset = rs.findColumn("isReset");
+        int role = rs.findColumn("role");
+        return row -> new AuthService.Credentials(row.getInt(id), row.getString(password), row.getBoolean(isReset),
+                SessionPrincipal.Role.valueOf(row.getString(role)));
+    };
+
+    static final RowMapper<String> PASSWORD = string("password");
+    static final RowMapper<Double> COMPLETION_PERCENTAGE = decimal("avg_completion_percentage");
+
+    private RowMappers() {
+    }
+
+    private static RowMapper<Integer> integer(String column) {
+        return rs -> {
+            int index = rs.findColumn(column);
+            return row -> row.getInt(index);
+        };
+    }
+
+    private static RowMapper<String> string(String column) {
+        return rs -> {
+            int index = rs.findColumn(column);
+            return row -> row.getString(index);
+        };
+    }
+
+    private static RowMapper<Double> decimal(String column) {
+        return rs -> {
+            int index = rs.findColumn(column);
+            return row -> row.getDouble(index);
+        };
+    }
+
+    private static RowMapper<Map.Entry<Integer, Double>> completion(String idColumn, String percentageColumn) {
+        return rs -> {
+            int id = rs.findColumn(idColumn);
+            int percentage = rs.findColumn(percentageColumn);
+            return row -> Map.entry(row.getInt(id), row.getDouble(percentage));
+        };
+    }
+}
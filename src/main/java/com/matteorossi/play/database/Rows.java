@@ -0,0 +1,100 @@
+package com.matteorossi.play.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Percorso comune di esecuzione delle query di lettura: prepara lo statement (dalla cache
+ * della connessione), imposta i parametri e converte le righe con un {@link RowMapper}.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>{@link #list}: tutte le righe in una lista</li>
+ *   <li>{@link #first}: la prima riga, null se il risultato è vuoto</li>
+ *   <li>{@link #forEach}: righe consegnate una alla volta a un consumer, senza lista intermedia</li>
+ *   <li>Varianti con connessione esplicita per più letture sulla stessa connessione</li>
+ * </ul>
+ *
+ * <p>Le {@link SQLException} vengono propagate: la gestione degli errori resta ai metodi di {@link QueryDAO}.</p>
+ *
+ * @see RowMappers Mapper precompilati
+ */
+final class Rows {
+
+    /**
+     * Impostazione dei parametri dello statement.
+     */
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    // Query senza parametri
+    static final Binder NO_PARAMS = stmt -> {
+    };
+
+    private Rows() {
+    }
+
+    static <T> List<T> list(String query, Binder binder, RowMapper<T> mapper) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return list(conn, query, binder, mapper);
+        }
+    }
+
+    static <T> List<T> list(Connection conn, String query, Binder binder, RowMapper<T> mapper) throws SQLException {
+        List<T> result = new ArrayList<>();
+        forEach(conn, query, binder, mapper, result::add);
+        return result;
+    }
+
+    static <T> T first(String query, Binder binder, RowMapper<T> mapper) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapper.bind(rs).map(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Consegna le righe al consumer man mano che vengono lette.
+     *
+     * @return numero di righe lette
+     */
+    static <T> long forEach(String query, Binder binder, RowMapper<T> mapper, Consumer<? super T> consumer) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return forEach(conn, query, binder, mapper, consumer);
+        }
+    }
+
+    static <T> long forEach(Connection conn, String query, Binder binder, RowMapper<T> mapper,
+                            Consumer<? super T> consumer) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return map(rs, mapper, consumer);
+            }
+        }
+    }
+
+    // Gli indici delle colonne vengono risolti solo se c'è almeno una riga
+    static <T> long map(ResultSet rs, RowMapper<T> mapper, Consumer<? super T> consumer) throws SQLException {
+        if (!rs.next()) {
+            return 0;
+        }
+        RowMapper.Row<T> row = mapper.bind(rs);
+        long count = 0;
+        do {
+            consumer.accept(row.map(rs));
+            count++;
+        } while (rs.next());
+        return count;
+    }
+}
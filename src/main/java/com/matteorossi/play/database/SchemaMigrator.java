@@ -0,0 +1,123 @@
+package com.matteorossi.play.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Motore delle migrazioni dello schema basato su {@code PRAGMA user_version}.
+ * Ogni migrazione ha un numero di versione crescente e viene applicata in una propria
+ * transazione insieme all'aggiornamento di {@code user_version}: se fallisce, il database
+ * resta alla versione precedente.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Migrazioni applicate in ordine di versione</li>
+ *   <li>Una transazione per migrazione</li>
+ *   <li>Nessun lavoro all'avvio se lo schema è già aggiornato</li>
+ * </ul>
+ *
+ * @see ClaseDLLDAO Elenco delle migrazioni dello schema
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(List<Migration> migrations) {
+        List<Migration> sorted = new ArrayList<>(migrations);
+        sorted.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).version() == sorted.get(i - 1).version()) {
+                throw new IllegalArgumentException("Versione di migrazione duplicata: " + sorted.get(i).version());
+            }
+        }
+        this.migrations = List.copyOf(sorted);
+    }
+
+    // Ultima versione conosciuta dello schema
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+    }
+
+    public static int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    public boolean isUpToDate(Connection conn) throws SQLException {
+        return getCurrentVersion(conn) >= getLatestVersion();
+    }
+
+    /**
+     * Applica tutte le migrazioni con versione maggiore di quella corrente.
+     *
+     * @return numero di migrazioni applicate
+     * @throws SQLException se una migrazione fallisce (le precedenti restano applicate)
+     */
+    public int migrate(Connection conn) throws SQLException {
+        int current = getCurrentVersion(conn);
+        if (current >= getLatestVersion()) {
+            logger.info("Schema già aggiornato alla versione {}", current);
+            return 0;
+        }
+
+        int applied = 0;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            for (Migration migration : migrations) {
+                if (migration.version() <= current) {
+                    continue;
+                }
+
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : migration.statements()) {
+                        stmt.executeUpdate(sql);
+                    }
+                    // user_version fa parte della stessa transazione
+                    stmt.executeUpdate("PRAGMA user_version = " + migration.version());
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Migrazione " + migration.version() + " (" + migration.description()
+                            + ") fallita: " + e.getMessage(), e);
+                }
+
+                applied++;
+                logger.info("Migrazione {} applicata: {}", migration.version(), migration.description());
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        // Aggiorna le statistiche del planner per i nuovi indici
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA optimize");
+        }
+        return applied;
+    }
+
+    /**
+     * Singola migrazione dello schema.
+     *
+     * @param version     versione raggiunta dopo la migrazione (maggiore di zero)
+     * @param description descrizione leggibile per i log
+     * @param statements  istruzioni SQL eseguite in ordine
+     */
+    public record Migration(int version, String description, List<String> statements) {
+        public Migration(int version, String description, String... statements) {
+            this(version, description, List.of(statements));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.matteorossi.play.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache dei {@link PreparedStatement} legata ad una singola connessione fisica del pool.
+ * Le query di {@link QueryDAO} sono testi costanti: riutilizzando lo statement già
+ * preparato SQLite salta il parsing e la pianificazione ad ogni chiamata.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Chiave della cache: il testo SQL</li>
+ *   <li>Politica LRU con dimensione massima configurabile</li>
+ *   <li>La {@code close()} del chiamante pulisce i parametri invece di chiudere lo statement</li>
+ *   <li>Contatori di hit e miss condivisi con il {@link ConnectionPool}</li>
+ * </ul>
+ *
+ * <p>Non è thread-safe: una connessione fisica viene usata da un solo thread alla volta.</p>
+ */
+class StatementCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Restituisce lo statement per la query, preparandolo solo al primo utilizzo.
+     *
+     * @param owner connessione proxy da restituire con {@code getConnection()}
+     * @param sql   testo della query
+     */
+    PreparedStatement prepare(Connection owner, String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            return cached.borrow(owner);
+        }
+
+        misses.incrementAndGet();
+        PreparedStatement statement = physical.prepareStatement(sql);
+
+        // Lo stesso SQL già in uso sulla connessione: statement temporaneo non in cache
+        if (cached != null || maxSize == 0) {
+            return statement;
+        }
+
+        CachedStatement created = new CachedStatement(statement);
+        statements.put(sql, created);
+        evictIfNeeded();
+        return created.borrow(owner);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, CachedStatement>> iterator = statements.entrySet().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement eldest = iterator.next().getValue();
+            iterator.remove();
+            eldest.evicted = true;
+            if (!eldest.inUse) {
+                eldest.closePhysical();
+            }
+        }
+    }
+
+    // Chiamato quando la connessione torna al pool: nessuno statement può restare in uso
+    void releaseAll() {
+        for (CachedStatement cached : new ArrayList<>(statements.values())) {
+            if (cached.inUse) {
+                cached.giveBack();
+            }
+        }
+    }
+
+    // Chiude tutti gli statement, usato quando la connessione fisica viene scartata
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    // Statement fisico in cache con lo stato del prestito corrente
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private final List<ResultSet> openResults = new ArrayList<>(1);
+        private boolean inUse;
+        private int generation;
+        private boolean evicted;
+        private boolean batched;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private PreparedStatement borrow(Connection owner) {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new Lease(this, owner));
+        }
+
+        // Riporta lo statement in cache pronto per il prossimo utilizzo
+        private void giveBack() {
+            for (ResultSet rs : openResults) {
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    logger.debug("Errore nella chiusura del ResultSet: {}", e.getMessage());
+                }
+            }
+            openResults.clear();
+            try {
+                statement.clearParameters();
+                if (batched) {
+                    statement.clearBatch();
+                    batched = false;
+                }
+            } catch (SQLException e) {
+                evicted = true;
+            }
+            inUse = false;
+            generation++;
+            if (evicted) {
+                closePhysical();
+            }
+        }
+
+        private void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug("Errore nella chiusura dello statement: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Vista dello statement valida fino alla close() del chiamante
+    private static final class Lease implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection owner;
+        private final int generation;
+        private boolean closed;
+
+        private Lease(CachedStatement cached, Connection owner) {
+            this.cached = cached;
+            this.owner = owner;
+            this.generation = cached.generation;
+        }
+
+        // Lo statement può essere stato recuperato dalla cache alla restituzione della connessione
+        private boolean isReleased() {
+            return closed || generation != cached.generation;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!isReleased()) {
+                        cached.giveBack();
+                    }
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return isReleased() || cached.statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.statement + "]";
+                default:
+                    break;
+            }
+
+            if (isReleased()) {
+                throw new SQLException("Statement già chiuso");
+            }
+            if ("addBatch".equals(method.getName())) {
+                cached.batched = true;
+            }
+
+            Object result;
+            try {
+                result = method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet rs) {
+                cached.openResults.add(rs);
+            }
+            return result;
+        }
+    }
+}
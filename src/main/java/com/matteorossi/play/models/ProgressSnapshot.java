@@ -0,0 +1,129 @@
+package com.matteorossi.play.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Istantanea immutabile dei progressi di un utente.
+ * Contiene le percentuali di completamento per ogni linguaggio, tema e difficoltà e per ogni
+ * combinazione (linguaggio, tema, difficoltà), calcolate con un solo passaggio sui contatori.
+ *
+ * <p>Campi principali:</p>
+ * <ul>
+ *   <li>Identificativo dell'utente</li>
+ *   <li>Percentuali aggregate per linguaggio, tema e difficoltà</li>
+ *   <li>Cubo completo delle percentuali per combinazione</li>
+ * </ul>
+ *
+ * @see com.matteorossi.play.database.QueryDAO#getProgressSnapshot(int) Calcolo dell'istantanea
+ * @see com.matteorossi.play.utilitis.ProgressCache Istantanea della sessione corrente
+ */
+public final class ProgressSnapshot {
+    private final int userId;
+    private final Map<Integer, Double> languages;
+    private final Map<Integer, Double> themes;
+    private final Map<Integer, Double> difficulties;
+    private final Map<Bucket, Double> cube;
+
+    private ProgressSnapshot(int userId, Map<Integer, Double> languages, Map<Integer, Double> themes,
+                             Map<Integer, Double> difficulties, Map<Bucket, Double> cube) {
+        this.userId = userId;
+        this.languages = Collections.unmodifiableMap(languages);
+        this.themes = Collections.unmodifiableMap(themes);
+        this.difficulties = Collections.unmodifiableMap(difficulties);
+        this.cube = Collections.unmodifiableMap(cube);
+    }
+
+    /**
+     * Costruisce l'istantanea a partire dai contatori di ogni combinazione.
+     *
+     * @param userId utente a cui si riferiscono i contatori
+     * @param cells  domande totali e risposte corrette per combinazione (solo combinazioni con domande)
+     */
+    public static ProgressSnapshot fromCells(int userId, List<Cell> cells) {
+        Map<Integer, long[]> languageCounts = new HashMap<>();
+        Map<Integer, long[]> themeCounts = new HashMap<>();
+        Map<Integer, long[]> difficultyCounts = new HashMap<>();
+        Map<Bucket, Double> cube = new HashMap<>();
+
+        for (Cell cell : cells) {
+            add(languageCounts, cell.languageId(), cell);
+            add(themeCounts, cell.themeId(), cell);
+            add(difficultyCounts, cell.difficultyId(), cell);
+            cube.put(new Bucket(cell.languageId(), cell.themeId(), cell.difficultyId()),
+                    percentage(cell.correct(), cell.total()));
+        }
+
+        return new ProgressSnapshot(userId, toPercentages(languageCounts), toPercentages(themeCounts),
+                toPercentages(difficultyCounts), cube);
+    }
+
+    private static void add(Map<Integer, long[]> counts, int key, Cell cell) {
+        long[] pair = counts.computeIfAbsent(key, k -> new long[2]);
+        pair[0] += cell.correct();
+        pair[1] += cell.total();
+    }
+
+    private static Map<Integer, Double> toPercentages(Map<Integer, long[]> counts) {
+        Map<Integer, Double> percentages = new HashMap<>();
+        counts.forEach((key, pair) -> percentages.put(key, percentage(pair[0], pair[1])));
+        return percentages;
+    }
+
+    private static double percentage(long correct, long total) {
+        return total == 0 ? 0.0 : (correct * 100.0) / total;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public double getLanguageCompletion(int languageId) {
+        return languages.getOrDefault(languageId, 0.0);
+    }
+
+    public double getThemeCompletion(int themeId) {
+        return themes.getOrDefault(themeId, 0.0);
+    }
+
+    public double getDifficultyCompletion(int difficultyId) {
+        return difficulties.getOrDefault(difficultyId, 0.0);
+    }
+
+    public double getCompletion(int languageId, int themeId, int difficultyId) {
+        return cube.getOrDefault(new Bucket(languageId, themeId, difficultyId), 0.0);
+    }
+
+    public Map<Integer, Double> getLanguageCompletions() {
+        return languages;
+    }
+
+    public Map<Integer, Double> getThemeCompletions() {
+        return themes;
+    }
+
+    public Map<Integer, Double> getDifficultyCompletions() {
+        return difficulties;
+    }
+
+    @Override
+    public String toString() {
+        return "User " + userId + " - Languages: " + languages + " - Themes: " + themes
+                + " - Difficulties: " + difficulties;
+    }
+
+    /**
+     * Contatori di una combinazione (linguaggio, tema, difficoltà).
+     *
+     * @param total   domande presenti nella combinazione
+     * @param correct domande a cui l'utente ha risposto correttamente
+     */
+    public record Cell(int languageId, int themeId, int difficultyId, long total, long correct) {
+    }
+
+    // Chiave del cubo delle percentuali
+    private record Bucket(int languageId, int themeId, int difficultyId) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.matteorossi.play.models;
+
+/**
+ * Modello dati leggero per una riga della lista delle domande nell'area amministrativa.
+ * Contiene solo un'anteprima del testo: la domanda completa, le opzioni e la soluzione
+ * vengono lette quando servono.
+ *
+ * <p>Campi principali:</p>
+ * <ul>
+ *   <li>Identificativo della domanda (chiave della paginazione)</li>
+ *   <li>Anteprima del testo della domanda</li>
+ *   <li>Nome del linguaggio associato</li>
+ * </ul>
+ *
+ * @see com.matteorossi.play.database.QueryDAO#getQuestionSummaries(int, int) Lettura di una pagina
+ * @see com.matteorossi.play.database.QueryDAO#getQuestionById(int) Lettura della domanda completa
+ */
+public class QuestionSummaryModel {
+    private final int id;
+    private final String preview;
+    private final String languageName;
+
+    public QuestionSummaryModel(int id, String preview, String languageName) {
+        this.id = id;
+        this.preview = preview;
+        this.languageName = languageName;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    public String getLanguageName() {
+        return languageName;
+    }
+
+    @Override
+    public String toString() {
+        return "Question " + id + " - " + languageName + " - " + preview;
+    }
+}
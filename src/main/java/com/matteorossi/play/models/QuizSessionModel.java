@@ -0,0 +1,66 @@
+package com.matteorossi.play.models;
+
+import java.util.List;
+
+/**
+ * Modello dati per una sessione di test conclusa.
+ * Raccoglie le risposte date dall'utente e il punteggio da aggiungere ai progressi,
+ * in modo da poterli salvare in un'unica transazione.
+ *
+ * <p>Campi principali:</p>
+ * <ul>
+ *   <li>Identificativi di utente, tema, linguaggio e difficoltà</li>
+ *   <li>Risposte date durante la sessione</li>
+ *   <li>Punteggio guadagnato (zero se non va aggiornato il progresso)</li>
+ * </ul>
+ *
+ * @see com.matteorossi.play.database.QueryDAO#commitQuizSession(QuizSessionModel) Salvataggio della sessione
+ */
+public final class QuizSessionModel {
+    private final int userId;
+    private final int themeId;
+    private final int languageId;
+    private final int difficultyId;
+    private final List<UserAnswerModel> answers;
+    private final int score;
+
+    public QuizSessionModel(int userId, int themeId, int languageId, int difficultyId,
+                            List<UserAnswerModel> answers, int score) {
+        this.userId = userId;
+        this.themeId = themeId;
+        this.languageId = languageId;
+        this.difficultyId = difficultyId;
+        this.answers = List.copyOf(answers);
+        this.score = score;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getThemeId() {
+        return themeId;
+    }
+
+    public int getLanguageId() {
+        return languageId;
+    }
+
+    public int getDifficultyId() {
+        return difficultyId;
+    }
+
+    public List<UserAnswerModel> getAnswers() {
+        return answers;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "User " + userId + " - Theme " + themeId + " - Language " + languageId
+                + " - Difficulty " + difficultyId + " - Answers: " + answers.size() + " - Score: " + score;
+    }
+}
@@ -0,0 +1,27 @@
+package com.matteorossi.play.models;
+
+/**
+ * Identità autenticata di una sessione, prodotta dal login.
+ *
+ * <p>Campi principali:</p>
+ * <ul>
+ *   <li>Identificativo nella tabella del ruolo (users o admins)</li>
+ *   <li>Nome utente usato per il login</li>
+ *   <li>Ruolo: utente o amministratore</li>
+ *   <li>Richiesta di reimpostare la password dopo un reset</li>
+ * </ul>
+ *
+ * @param id            id dell'utente o dell'amministratore
+ * @param username      nome utente
+ * @param role          ruolo
+ * @param resetRequired true se la password è temporanea e va reimpostata
+ * @see com.matteorossi.play.database.AuthService Autenticazione
+ */
+public record SessionPrincipal(int id, String username, Role role, boolean resetRequired) {
+
+    public enum Role {USER, ADMIN}
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+}
@@ -0,0 +1,43 @@
+package com.matteorossi.play.models;
+
+/**
+ * Modello dati per una singola risposta data da un utente ad una domanda.
+ * Corrisponde ad una riga della tabella {@code user_answers}.
+ *
+ * <p>Campi principali:</p>
+ * <ul>
+ *   <li>Identificativo dell'utente</li>
+ *   <li>Identificativo della domanda</li>
+ *   <li>Esito della risposta</li>
+ * </ul>
+ *
+ * @see com.matteorossi.play.database.AnswerJournal Scrittura asincrona delle risposte
+ */
+public final class UserAnswerModel {
+    private final int userId;
+    private final int questionId;
+    private final boolean correct;
+
+    public UserAnswerModel(int userId, int questionId, boolean correct) {
+        this.userId = userId;
+        this.questionId = questionId;
+        this.correct = correct;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getQuestionId() {
+        return questionId;
+    }
+
+    public boolean isCorrect() {
+        return correct;
+    }
+
+    @Override
+    public String toString() {
+        return "User " + userId + " - Question " + questionId + " - Correct: " + correct;
+    }
+}
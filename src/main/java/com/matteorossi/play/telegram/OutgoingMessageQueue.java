@@ -0,0 +1,274 @@
+package com.matteorossi.play.telegram;
+
+import com.matteorossi.play.database.QueryMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coda dei messaggi in uscita verso Telegram. {@link #enqueue} non attende mai l'API:
+ * l'invio avviene in background rispettando i limiti di Telegram, con nuovi tentativi in caso di errore.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Token bucket globale ({@code play.telegram.globalPerSecond}, default {@value #DEFAULT_GLOBAL_PER_SECOND}
+ *       messaggi al secondo) e per chat ({@code play.telegram.chatPerSecond}, default {@value #DEFAULT_CHAT_PER_SECOND})</li>
+ *   <li>Messaggi della stessa chat inviati uno alla volta e nell'ordine di accodamento</li>
+ *   <li>Un messaggio identico a uno ancora in coda per la stessa chat non viene accodato di nuovo</li>
+ *   <li>Al massimo {@code play.telegram.sendQueue} messaggi in coda (default {@value #DEFAULT_CAPACITY}):
+ *       oltre, {@link #enqueue} restituisce false</li>
+ *   <li>Errore 429: nuovo tentativo dopo il {@code retry_after} indicato da Telegram; altri errori:
+ *       fino a {@value #MAX_ATTEMPTS} tentativi con attesa crescente, poi il messaggio viene scartato</li>
+ *   <li>{@link #send} restituisce un future completato alla consegna, per chi deve sapere se il messaggio è arrivato</li>
+ * </ul>
+ *
+ * <p>I messaggi in coda non sopravvivono alla chiusura dell'applicazione.</p>
+ *
+ * @see TokenBucket Limite di frequenza
+ * @see TelegramBoot#enqueueMessage(long, String) Accodamento dall'applicazione
+ */
+public class OutgoingMessageQueue implements OutgoingMessageQueueMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutgoingMessageQueue.class);
+
+    private static final double DEFAULT_GLOBAL_PER_SECOND = 30;
+    private static final double DEFAULT_CHAT_PER_SECOND = 1;
+    private static final int DEFAULT_CAPACITY = 1000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long FIRST_BACKOFF_MILLIS = 1000;
+
+    private static final QueryMetrics.Operation SEND = QueryMetrics.operation("TelegramBoot", "sendMessage");
+
+    /**
+     * Invio effettivo di un messaggio, tipicamente {@code execute(SendMessage)}.
+     */
+    @FunctionalInterface
+    public interface Sender {
+        void send(OutgoingMessage message) throws TelegramApiException;
+    }
+
+    /**
+     * Messaggio da inviare; due messaggi uguali per la stessa chat vengono accorpati.
+     *
+     * @param chatId   chat di destinazione
+     * @param text     testo del messaggio
+     * @param markdown true se il testo usa la formattazione Markdown
+     */
+    public record OutgoingMessage(long chatId, String text, boolean markdown) {
+    }
+
+    // Messaggi di una chat e relativo limite; busy finché un invio è programmato o in corso
+    private static final class Lane {
+        final ArrayDeque<OutgoingMessage> pending = new ArrayDeque<>();
+        final TokenBucket bucket;
+        int attempts;
+        boolean busy;
+
+        Lane(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private final Sender sender;
+    private final double chatPerSecond;
+    private final int capacity;
+
+    // Stato protetto dal monitor di questa istanza
+    private final Map<Long, Lane> lanes = new HashMap<>();
+    // Messaggi in coda con il future della consegna, condiviso dai messaggi accorpati
+    private final Map<OutgoingMessage, CompletableFuture<Void>> queued = new HashMap<>();
+    private final TokenBucket global;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("telegram-send-scheduler").daemon().factory());
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("telegram-send-", 0).factory());
+
+    // Statistiche, protette dal monitor
+    private long sent;
+    private long coalesced;
+    private long rejected;
+    private long retried;
+    private long failed;
+
+    public OutgoingMessageQueue(Sender sender) {
+        this(sender, Double.parseDouble(System.getProperty("play.telegram.globalPerSecond", String.valueOf(DEFAULT_GLOBAL_PER_SECOND))),
+                Double.parseDouble(System.getProperty("play.telegram.chatPerSecond", String.valueOf(DEFAULT_CHAT_PER_SECOND))),
+                Integer.getInteger("play.telegram.sendQueue", DEFAULT_CAPACITY));
+    }
+
+    OutgoingMessageQueue(Sender sender, double globalPerSecond, double chatPerSecond, int capacity) {
+        this.sender = sender;
+        this.chatPerSecond = chatPerSecond;
+        this.capacity = capacity;
+        this.global = new TokenBucket(globalPerSecond, globalPerSecond, System.nanoTime());
+    }
+
+    /**
+     * Accoda il messaggio senza attendere l'invio.
+     *
+     * @return false se la coda è piena; true se il messaggio è stato accodato o era già in coda
+     */
+    public boolean enqueue(OutgoingMessage message) {
+        return !send(message).isCompletedExceptionally();
+    }
+
+    /**
+     * Accoda il messaggio senza attendere l'invio. Il future termina quando Telegram ha accettato
+     * il messaggio, oppure con un errore se la coda è piena o i tentativi sono esauriti.
+     */
+    public synchronized CompletableFuture<Void> send(OutgoingMessage message) {
+        CompletableFuture<Void> delivery = queued.get(message);
+        if (delivery != null) {
+            coalesced++;
+            return delivery;
+        }
+        if (queued.size() >= capacity) {
+            rejected++;
+            logger.warn("Messaggio per la chat {} scartato: {} messaggi in coda", message.chatId(), capacity);
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Coda dei messaggi in uscita piena"));
+        }
+        delivery = new CompletableFuture<>();
+        queued.put(message, delivery);
+        Lane lane = lanes.computeIfAbsent(message.chatId(),
+                id -> new Lane(new TokenBucket(chatPerSecond, 1, System.nanoTime())));
+        lane.pending.add(message);
+        if (!lane.busy) {
+            lane.busy = true;
+            schedule(lane, 0);
+        }
+        return delivery;
+    }
+
+    private void schedule(Lane lane, long delayNanos) {
+        scheduler.schedule(() -> attempt(lane), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Sul thread dello scheduler: invia se entrambi i limiti lo consentono, altrimenti riprova quando lo faranno
+    private synchronized void attempt(Lane lane) {
+        long now = System.nanoTime();
+        long wait = Math.max(global.nanosUntilToken(now), lane.bucket.nanosUntilToken(now));
+        if (wait > 0) {
+            schedule(lane, wait);
+            return;
+        }
+        global.take();
+        lane.bucket.take();
+        OutgoingMessage message = lane.pending.peek();
+        senders.execute(() -> deliver(lane, message));
+    }
+
+    private void deliver(Lane lane, OutgoingMessage message) {
+        try (QueryMetrics.Timer timer = SEND.start()) {
+            sender.send(message);
+            completed(lane, message, null);
+        } catch (TelegramApiRequestException e) {
+            SEND.failed(e);
+            Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+            if (retryAfter != null) {
+                logger.warn("Limite di Telegram raggiunto per la chat {}: nuovo tentativo tra {} s", message.chatId(), retryAfter);
+                retry(lane, TimeUnit.SECONDS.toNanos(retryAfter));
+            } else {
+                failedAttempt(lane, message, e);
+            }
+        } catch (TelegramApiException | RuntimeException e) {
+            SEND.failed(e);
+            failedAttempt(lane, message, e);
+        }
+    }
+
+    private synchronized void failedAttempt(Lane lane, OutgoingMessage message, Exception error) {
+        if (++lane.attempts >= MAX_ATTEMPTS) {
+            logger.error("Messaggio per la chat {} scartato dopo {} tentativi: {}", message.chatId(), lane.attempts, error.getMessage());
+            completed(lane, message, error);
+            return;
+        }
+        long backoff = TimeUnit.MILLISECONDS.toNanos(FIRST_BACKOFF_MILLIS << (lane.attempts - 1));
+        logger.warn("Invio alla chat {} non riuscito (tentativo {}): {}", message.chatId(), lane.attempts, error.getMessage());
+        retry(lane, backoff);
+    }
+
+    // Il messaggio resta in testa alla coda della chat, così l'ordine non cambia
+    private synchronized void retry(Lane lane, long delayNanos) {
+        retried++;
+        schedule(lane, delayNanos);
+    }
+
+    // error null se il messaggio è stato consegnato
+    private synchronized void completed(Lane lane, OutgoingMessage message, Exception error) {
+        lane.pending.poll();
+        lane.attempts = 0;
+        CompletableFuture<Void> delivery = queued.remove(message);
+        if (error == null) {
+            sent++;
+            delivery.complete(null);
+        } else {
+            failed++;
+            delivery.completeExceptionally(error);
+        }
+        if (!lane.pending.isEmpty()) {
+            schedule(lane, 0);
+            return;
+        }
+        lane.busy = false;
+        // Il limite della chat va ricordato finché il bucket non torna pieno
+        scheduler.schedule(() -> removeIfIdle(message.chatId(), lane), lane.bucket.refillNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void removeIfIdle(long chatId, Lane lane) {
+        if (!lane.busy && lanes.get(chatId) == lane) {
+            lanes.remove(chatId);
+        }
+    }
+
+    // Pubblica gli attributi su JMX, salvo play.metrics.jmx=false
+    public void registerMBean() {
+        QueryMetrics.registerMBean(this, "type=TelegramOutgoingQueue");
+    }
+
+    @Override
+    public synchronized int getPending() {
+        return queued.size();
+    }
+
+    @Override
+    public synchronized int getActiveChats() {
+        return lanes.size();
+    }
+
+    @Override
+    public synchronized long getSent() {
+        return sent;
+    }
+
+    @Override
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    @Override
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public synchronized long getRetried() {
+        return retried;
+    }
+
+    @Override
+    public synchronized long getFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,25 @@
+package com.matteorossi.play.telegram;
+
+/**
+ * Attributi JMX di {@link OutgoingMessageQueue}.
+ */
+public interface OutgoingMessageQueueMXBean {
+    // Messaggi in coda, compresi quelli in attesa di un nuovo tentativo
+    int getPending();
+
+    // Chat con messaggi in coda o con un limite di frequenza ancora attivo
+    int getActiveChats();
+
+    long getSent();
+
+    // Messaggi identici a uno già in coda, non accodati di nuovo
+    long getCoalesced();
+
+    // Messaggi rifiutati perché la coda era piena
+    long getRejected();
+
+    long getRetried();
+
+    // Messaggi scartati dopo l'ultimo tentativo
+    long getFailed();
+}
@@ -14,6 +14,7 @@ import org.telegram.telegrambots.meta.api.objects.commands.BotCommand;
 import org.telegram.telegrambots.meta.api.objects.commands.scope.BotCommandScopeDefault;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -21,11 +22,16 @@ import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class TelegramBoot extends TelegramLongPollingBot {
 
     private static final Logger logger = LoggerFactory.getLogger(TelegramBoot.class);
     private static TelegramBoot botInstance;
+    private static final OutgoingMessageQueue outgoing = new OutgoingMessageQueue(TelegramBoot::deliver);
+    private final UpdateDispatcher dispatcher = new UpdateDispatcher(this::handleUpdate);
     private static final String COMMAND_RESET = "/reset";
     private static final String COMMAND_ID = "/id";
     private static final String COMMAND_HELP = "/help";
@@ -36,6 +42,14 @@ public class TelegramBoot extends TelegramLongPollingBot {
     private static final String RESET_MESSAGE = "✅ L'amministratore ha ricevuto la tua richiesta.\n🔐 La tua password verrà resettata a breve.";
 
     // Configurazione
+    private static final String POLLING_MODE = "polling";
+    private static final String WEBHOOK_MODE = "webhook";
+    private static final String DEFAULT_WEBHOOK_HOST = "127.0.0.1";
+    private static final String DEFAULT_WEBHOOK_PORT = "8088";
+    private static final String DEFAULT_WEBHOOK_PATH = "/telegram/webhook";
+    private static volatile WebhookServer webhookServer;
+    private static volatile BotSession pollingSession;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
     private static final Properties config = new Properties();
     private static final String CONFIG_DIR = System.getProperty("user.home") + "/.play-app/";
     private static final String CONFIG_FILE = "telegram.properties";
@@ -87,6 +101,10 @@ public class TelegramBoot extends TelegramLongPollingBot {
             while ((line = reader.readLine()) != null) {
                 if (line.startsWith("token =")) {
                     config.put("TELEGRAM_BOT_TOKEN", line.split("=")[1].trim());
+                } else if (line.contains("=") && !line.startsWith("#")) {
+                    // Altre impostazioni, ad esempio mode = webhook
+                    int separator = line.indexOf('=');
+                    config.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
                 }
             }
         }
@@ -108,8 +126,18 @@ public class TelegramBoot extends TelegramLongPollingBot {
         return config.getProperty("TELEGRAM_BOT_TOKEN");
     }
 
+    // Il thread di polling accoda soltanto: la gestione avviene nel dispatcher, in ordine per chat
     @Override
     public void onUpdateReceived(Update update) {
+        dispatcher.submit(update);
+    }
+
+    // Stesso percorso per il webhook: false se il dispatcher ha scartato l'aggiornamento
+    boolean dispatch(Update update) {
+        return dispatcher.submit(update);
+    }
+
+    private void handleUpdate(Update update) {
         if (update.hasMessage() && update.getMessage().hasText()) {
             String messageText = update.getMessage().getText();
             long chatId = update.getMessage().getChatId();
@@ -150,28 +178,28 @@ public class TelegramBoot extends TelegramLongPollingBot {
         }
     }
 
+    // Risposta ai comandi, con formattazione Markdown
     private void sendSimpleMessage(long chatId, String text) {
-        SendMessage message = new SendMessage();
-        message.setChatId(String.valueOf(chatId));
-        message.setText(text);
-        message.enableMarkdown(true);
-
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            logger.error("Errore durante l'invio del messaggio: {}", e.getMessage());
-        }
+        outgoing.enqueue(new OutgoingMessageQueue.OutgoingMessage(chatId, text, true));
     }
 
+    /**
+     * Avvia il bot in modalità long polling (default) o webhook, secondo l'impostazione {@code mode}
+     * di telegram.properties o la proprietà di sistema {@code play.telegram.mode}.
+     */
     public static void initBoot() {
         try {
-            if (botInstance == null) {
-                botInstance = new TelegramBoot();
-            }
+            instance();
 
-            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            botsApi.registerBot(botInstance);
+            if (WEBHOOK_MODE.equalsIgnoreCase(setting("mode", POLLING_MODE))) {
+                startWebhook();
+            } else {
+                TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+                pollingSession = botsApi.registerBot(botInstance);
+            }
             botInstance.registerBotCommands();
+            botInstance.dispatcher.registerMBean();
+            outgoing.registerMBean();
             logger.info("Bot avviato correttamente");
 
         } catch (TelegramApiException e) {
@@ -179,18 +207,99 @@ public class TelegramBoot extends TelegramLongPollingBot {
         }
     }
 
-    public static void sendMessageOnce(long chatId, String messageText) {
+    /**
+     * Modalità webhook: server locale e, se è indicato {@code webhook.url}, registrazione
+     * dell'URL pubblico presso Telegram. Senza {@code webhook.secret} viene generato un segreto casuale.
+     */
+    private static void startWebhook() throws TelegramApiException {
+        String secret = setting("webhook.secret", null);
+        if (secret == null || secret.isEmpty()) {
+            secret = UUID.randomUUID().toString().replace("-", "");
+            logger.info("Segreto del webhook non configurato: generato un segreto per questa esecuzione");
+        }
+        try {
+            InetSocketAddress address = new InetSocketAddress(setting("webhook.host", DEFAULT_WEBHOOK_HOST),
+                    Integer.parseInt(setting("webhook.port", DEFAULT_WEBHOOK_PORT)));
+            webhookServer = new WebhookServer(address, setting("webhook.path", DEFAULT_WEBHOOK_PATH), secret, botInstance::dispatch);
+            webhookServer.start();
+
+            String publicUrl = setting("webhook.url", null);
+            if (publicUrl != null && !publicUrl.isEmpty()) {
+                WebhookServer.registerWebhook(botInstance.getBotToken(), publicUrl, secret);
+            } else {
+                logger.warn("webhook.url non configurato: il webhook non viene registrato presso Telegram");
+            }
+        } catch (IOException e) {
+            throw new TelegramApiException("Avvio del webhook non riuscito", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TelegramApiException("Registrazione del webhook interrotta", e);
+        }
+    }
+
+    // Proprietà di sistema play.telegram.<chiave>, altrimenti telegram.properties, altrimenti il default
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty("play.telegram." + key, config.getProperty(key, defaultValue));
+    }
+
+    /**
+     * Accoda un messaggio per la chat senza attendere l'API di Telegram.
+     *
+     * @return false se la coda dei messaggi in uscita è piena
+     */
+    public static boolean enqueueMessage(long chatId, String messageText) {
+        return outgoing.enqueue(new OutgoingMessageQueue.OutgoingMessage(chatId, messageText, false));
+    }
+
+    /**
+     * Come {@link #enqueueMessage}, ma il future termina quando Telegram ha accettato il messaggio
+     * o con un errore se non è stato possibile consegnarlo.
+     */
+    public static CompletableFuture<Void> sendMessage(long chatId, String messageText) {
+        return outgoing.send(new OutgoingMessageQueue.OutgoingMessage(chatId, messageText, false));
+    }
+
+    // Invio effettivo, sui thread della coda in uscita
+    private static void deliver(OutgoingMessageQueue.OutgoingMessage outgoingMessage) throws TelegramApiException {
         SendMessage message = new SendMessage();
-        message.setChatId(String.valueOf(chatId));
-        message.setText(messageText);
+        message.setChatId(String.valueOf(outgoingMessage.chatId()));
+        message.setText(outgoingMessage.text());
+        if (outgoingMessage.markdown()) {
+            message.enableMarkdown(true);
+        }
+        instance().execute(message);
+    }
 
+    /**
+     * Ferma la ricezione degli aggiornamenti e attende, fino a {@value #SHUTDOWN_TIMEOUT_SECONDS} secondi,
+     * che il dispatcher gestisca quelli già accodati. Da chiamare prima della chiusura del database.
+     */
+    public static void shutdown() {
+        TelegramBoot bot;
+        synchronized (TelegramBoot.class) {
+            bot = botInstance;
+        }
+        if (bot == null) {
+            return;
+        }
+        if (pollingSession != null && pollingSession.isRunning()) {
+            pollingSession.stop();
+        }
+        // Le richieste in corso hanno un secondo per terminare, poi porta ed executor vengono chiusi
+        if (webhookServer != null) {
+            webhookServer.stop(1);
+        }
         try {
-            if (botInstance == null) {
-                botInstance = new TelegramBoot();
-            }
-            botInstance.execute(message);
-        } catch (TelegramApiException e) {
-            logger.error("Errore nell'invio del messaggio: {}", e.getMessage());
+            bot.dispatcher.shutdown(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static synchronized TelegramBoot instance() {
+        if (botInstance == null) {
+            botInstance = new TelegramBoot();
         }
+        return botInstance;
     }
-}
\ No newline at end of file
+}
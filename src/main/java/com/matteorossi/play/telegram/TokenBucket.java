@@ -0,0 +1,43 @@
+package com.matteorossi.play.telegram;
+
+/**
+ * Token bucket per limitare la frequenza degli invii: si riempie di {@code ratePerSecond} gettoni
+ * al secondo fino a {@code burst}, e ogni invio ne consuma uno.
+ * Non sincronizzato: l'accesso è protetto dal chiamante.
+ *
+ * @see OutgoingMessageQueue Limiti globali e per chat
+ */
+final class TokenBucket {
+
+    private final double burst;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double ratePerSecond, double burst, long nowNanos) {
+        this.burst = burst;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.tokens = burst;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    // Nanosecondi da attendere prima del prossimo gettone, 0 se è già disponibile
+    long nanosUntilToken(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    void take() {
+        tokens -= 1;
+    }
+
+    // Tempo in cui un bucket vuoto torna pieno
+    long refillNanos() {
+        return (long) Math.ceil(burst / tokensPerNano);
+    }
+
+    private void refill(long nowNanos) {
+        tokens = Math.min(burst, tokens + (nowNanos - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = nowNanos;
+    }
+}
@@ -0,0 +1,238 @@
+package com.matteorossi.play.telegram;
+
+import com.matteorossi.play.database.QueryMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Smistamento concorrente degli aggiornamenti ricevuti dal bot Telegram.
+ * Il thread di polling della libreria si limita ad accodare: ogni chat ha la propria coda,
+ * svuotata in ordine da un virtual thread, così una chiamata lenta blocca solo la sua chat.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Ordine garantito per chat, chat diverse gestite in parallelo</li>
+ *   <li>Al massimo {@code play.telegram.maxQueued} aggiornamenti in sospeso (default {@value #DEFAULT_MAX_QUEUED}):
+ *       oltre, il thread di polling attende fino a {@code play.telegram.offerTimeoutMs} ms
+ *       (default {@value #DEFAULT_OFFER_TIMEOUT_MS}) e poi scarta l'aggiornamento</li>
+ *   <li>Al massimo {@code play.telegram.maxPerChat} aggiornamenti in coda per chat
+ *       (default {@value #DEFAULT_MAX_PER_CHAT}): una chat che insiste non occupa tutta la capacità</li>
+ *   <li>Latenza dei gestori e attesa in coda in {@link QueryMetrics}, profondità della coda
+ *       come MXBean {@code com.matteorossi.play:type=TelegramDispatcher}</li>
+ * </ul>
+ *
+ * @see TelegramBoot Gestione dei comandi
+ */
+public class UpdateDispatcher implements UpdateDispatcherMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpdateDispatcher.class);
+
+    private static final int DEFAULT_MAX_QUEUED = 1000;
+    private static final int DEFAULT_MAX_PER_CHAT = 20;
+    private static final long DEFAULT_OFFER_TIMEOUT_MS = 5000;
+
+    private static final QueryMetrics.Operation HANDLE = QueryMetrics.operation("TelegramBoot", "handleUpdate");
+    private static final QueryMetrics.Operation QUEUE_WAIT = QueryMetrics.operation("TelegramBoot", "queueWait");
+
+    // Aggiornamento in coda con l'istante di arrivo
+    private record Pending(Update update, long enqueuedNanos) {
+    }
+
+    private final Consumer<Update> handler;
+    private final int maxQueued;
+    private final int maxPerChat;
+    private final long offerTimeoutMillis;
+
+    // Una coda esiste finché la sua chat ha aggiornamenti da gestire; modificata solo dentro compute
+    private final Map<Long, ArrayDeque<Pending>> lanes = new ConcurrentHashMap<>();
+    private final Semaphore capacity;
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("telegram-update-", 0).factory());
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public UpdateDispatcher(Consumer<Update> handler) {
+        this(handler, Integer.getInteger("play.telegram.maxQueued", DEFAULT_MAX_QUEUED),
+                Integer.getInteger("play.telegram.maxPerChat", DEFAULT_MAX_PER_CHAT),
+                Long.getLong("play.telegram.offerTimeoutMs", DEFAULT_OFFER_TIMEOUT_MS));
+    }
+
+    UpdateDispatcher(Consumer<Update> handler, int maxQueued, int maxPerChat, long offerTimeoutMillis) {
+        this.handler = handler;
+        this.maxQueued = maxQueued;
+        this.maxPerChat = maxPerChat;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.capacity = new Semaphore(maxQueued);
+    }
+
+    /**
+     * Accoda l'aggiornamento nella coda della sua chat. Se la capacità totale è esaurita
+     * il chiamante attende, rallentando il polling.
+     *
+     * @return false se l'aggiornamento è stato scartato
+     */
+    public boolean submit(Update update) {
+        if (workers.isShutdown()) {
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (!capacity.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                logger.warn("Aggiornamento {} scartato: {} in sospeso", update.getUpdateId(), maxQueued);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            return false;
+        }
+
+        Long chatId = chatIdOf(update);
+        if (chatId == null) {
+            // Nessuna chat a cui legare l'ordine: gestito da solo
+            queued.incrementAndGet();
+            accepted.increment();
+            Pending pending = new Pending(update, System.nanoTime());
+            workers.execute(() -> {
+                queued.decrementAndGet();
+                handle(pending);
+            });
+            return true;
+        }
+
+        // Contato prima di entrare in coda: il worker può prenderlo subito
+        queued.incrementAndGet();
+        Pending pending = new Pending(update, System.nanoTime());
+        boolean[] started = new boolean[1];
+        boolean[] full = new boolean[1];
+        lanes.compute(chatId, (id, lane) -> {
+            if (lane == null) {
+                lane = new ArrayDeque<>();
+                started[0] = true;
+            } else if (lane.size() >= maxPerChat) {
+                full[0] = true;
+                return lane;
+            }
+            lane.add(pending);
+            return lane;
+        });
+
+        if (full[0]) {
+            queued.decrementAndGet();
+            capacity.release();
+            dropped.increment();
+            logger.warn("Aggiornamento {} scartato: coda della chat {} piena", update.getUpdateId(), chatId);
+            return false;
+        }
+        accepted.increment();
+        if (started[0]) {
+            workers.execute(() -> drain(chatId));
+        }
+        return true;
+    }
+
+    // Un solo virtual thread per chat: termina quando la coda è vuota e viene rimossa
+    private void drain(Long chatId) {
+        Pending next;
+        while ((next = poll(chatId)) != null) {
+            queued.decrementAndGet();
+            handle(next);
+        }
+    }
+
+    // Prossimo aggiornamento della chat; se non ce ne sono la coda viene rimossa nello stesso passo
+    private Pending poll(Long chatId) {
+        Pending[] next = new Pending[1];
+        lanes.computeIfPresent(chatId, (id, lane) -> {
+            next[0] = lane.poll();
+            return next[0] == null ? null : lane;
+        });
+        return next[0];
+    }
+
+    private void handle(Pending pending) {
+        QUEUE_WAIT.record(System.nanoTime() - pending.enqueuedNanos());
+        try (QueryMetrics.Timer timer = HANDLE.start()) {
+            handler.accept(pending.update());
+        } catch (RuntimeException e) {
+            HANDLE.failed(e);
+            logger.error("Errore nella gestione dell'aggiornamento {}", pending.update().getUpdateId(), e);
+        } finally {
+            capacity.release();
+        }
+    }
+
+    static Long chatIdOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return null;
+    }
+
+    // Pubblica gli attributi su JMX, salvo play.metrics.jmx=false
+    public void registerMBean() {
+        QueryMetrics.registerMBean(this, "type=TelegramDispatcher");
+    }
+
+    /**
+     * Smette di accettare aggiornamenti e attende quelli in corso fino al timeout indicato.
+     */
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(timeout, unit)) {
+            logger.warn("Aggiornamenti ancora in gestione alla chiusura: {}", maxQueued - capacity.availablePermits());
+        }
+    }
+
+    @Override
+    public int getQueuedUpdates() {
+        return queued.get();
+    }
+
+    @Override
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    @Override
+    public int getActiveChats() {
+        return lanes.size();
+    }
+
+    @Override
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
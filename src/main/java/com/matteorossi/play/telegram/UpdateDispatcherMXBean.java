@@ -0,0 +1,22 @@
+package com.matteorossi.play.telegram;
+
+/**
+ * Attributi JMX di {@link UpdateDispatcher}.
+ */
+public interface UpdateDispatcherMXBean {
+    // Aggiornamenti accodati e non ancora in gestione
+    int getQueuedUpdates();
+
+    int getMaxQueued();
+
+    // Chat con almeno un aggiornamento in coda o in gestione
+    int getActiveChats();
+
+    long getAccepted();
+
+    // Scartati perché la capacità totale è rimasta piena oltre il timeout
+    long getRejected();
+
+    // Scartati perché la coda della chat era piena
+    long getDropped();
+}
@@ -0,0 +1,95 @@
+package com.matteorossi.play.telegram;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sostituto locale di Telegram per provare la modalità webhook: invia al {@link WebhookServer}
+ * aggiornamenti registrati, uno alla volta e nell'ordine del file, come farebbe Telegram.
+ *
+ * <p>Formati accettati per il file:</p>
+ * <ul>
+ *   <li>La risposta di {@code getUpdates} ({@code {"ok":true,"result":[...]}})</li>
+ *   <li>Un array JSON di aggiornamenti</li>
+ *   <li>Un aggiornamento JSON per riga</li>
+ * </ul>
+ *
+ * <p>Uso:</p>
+ * <pre>{@code
+ * java -cp target/Play-1.0-SNAPSHOT.jar com.matteorossi.play.telegram.WebhookReplay \
+ *      updates.json http://127.0.0.1:8088/telegram/webhook <segreto>
+ * }</pre>
+ *
+ * @see WebhookServer Server che riceve gli aggiornamenti
+ */
+public class WebhookReplay {
+
+    private WebhookReplay() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Uso: WebhookReplay <file> <url del webhook> <segreto>");
+            System.exit(2);
+        }
+        List<String> updates = readUpdates(Path.of(args[0]));
+        Map<Integer, Integer> statuses = new TreeMap<>();
+        long[] latencies = new long[updates.size()];
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            for (int i = 0; i < updates.size(); i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(args[1]))
+                        .header("Content-Type", "application/json")
+                        .header(WebhookServer.SECRET_HEADER, args[2])
+                        .POST(HttpRequest.BodyPublishers.ofString(updates.get(i)))
+                        .build();
+                long start = System.nanoTime();
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                latencies[i] = System.nanoTime() - start;
+                statuses.merge(response.statusCode(), 1, Integer::sum);
+            }
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf(Locale.ROOT, "Aggiornamenti inviati: %d, risposte: %s%n", updates.size(), statuses);
+        if (latencies.length > 0) {
+            System.out.printf(Locale.ROOT, "Latenza p50 %d us, p99 %d us, max %d us%n",
+                    latencies[latencies.length / 2] / 1_000,
+                    latencies[(int) Math.min(latencies.length - 1, Math.round(latencies.length * 0.99))] / 1_000,
+                    latencies[latencies.length - 1] / 1_000);
+        }
+    }
+
+    // Un elemento per aggiornamento, già serializzato
+    static List<String> readUpdates(Path file) throws IOException {
+        String content = Files.readString(file).strip();
+        List<String> updates = new ArrayList<>();
+        JsonNode root = content.startsWith("[") || content.startsWith("{")
+                ? WebhookServer.MAPPER.readTree(content) : null;
+        if (root != null && (root.isArray() || root.has("result"))) {
+            for (JsonNode update : root.isArray() ? root : root.path("result")) {
+                updates.add(WebhookServer.MAPPER.writeValueAsString(update));
+            }
+        } else {
+            for (String line : content.split("\\R")) {
+                if (!line.isBlank()) {
+                    updates.add(line);
+                }
+            }
+        }
+        return updates;
+    }
+}
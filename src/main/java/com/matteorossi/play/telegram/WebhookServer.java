@@ -0,0 +1,152 @@
+package com.matteorossi.play.telegram;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matteorossi.play.database.QueryMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Ricezione degli aggiornamenti Telegram tramite webhook, alternativa al long polling.
+ * Un {@link HttpServer} del JDK, con un virtual thread per richiesta, riceve gli aggiornamenti
+ * inviati da Telegram (di solito tramite un reverse proxy HTTPS) e li passa allo stesso
+ * {@link UpdateDispatcher} usato dal polling.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Solo richieste POST sul percorso configurato, con l'header
+ *       {@value #SECRET_HEADER} uguale al segreto (confronto a tempo costante)</li>
+ *   <li>Risposta 200 appena l'aggiornamento è accodato; 503 se il dispatcher lo scarta,
+ *       così Telegram lo invia di nuovo più tardi</li>
+ *   <li>Corpo oltre {@value #MAX_BODY_BYTES} byte rifiutato con 413, JSON non valido con 400</li>
+ *   <li>Registrazione del webhook e del segreto presso Telegram con {@link #registerWebhook}</li>
+ * </ul>
+ *
+ * @see TelegramBoot Scelta tra polling e webhook
+ * @see WebhookReplay Invio di aggiornamenti registrati per le prove in locale
+ */
+public class WebhookServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookServer.class);
+
+    public static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private static final QueryMetrics.Operation RECEIVE = QueryMetrics.operation("TelegramBoot", "receiveWebhook");
+
+    static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final byte[] secret;
+    private final Predicate<Update> sink;
+
+    /**
+     * @param address indirizzo locale su cui ascoltare
+     * @param path    percorso del webhook, ad esempio {@code /telegram/webhook}
+     * @param secret  segreto atteso nell'header {@value #SECRET_HEADER}
+     * @param sink    destinazione degli aggiornamenti; false se l'aggiornamento è stato scartato
+     */
+    public WebhookServer(InetSocketAddress address, String path, String secret, Predicate<Update> sink) throws IOException {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.sink = sink;
+        this.server = HttpServer.create(address, 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Webhook Telegram in ascolto su {}", server.getAddress());
+    }
+
+    // Porta effettiva, utile se il server è stato creato sulla porta 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; QueryMetrics.Timer timer = RECEIVE.start()) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                reply(exchange, 405);
+                return;
+            }
+            String token = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+            if (token == null || !MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8))) {
+                RECEIVE.failed(new SecurityException());
+                logger.warn("Richiesta webhook da {} rifiutata: segreto non valido", exchange.getRemoteAddress());
+                reply(exchange, 401);
+                return;
+            }
+
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (body.length > MAX_BODY_BYTES) {
+                reply(exchange, 413);
+                return;
+            }
+
+            Update update;
+            try {
+                update = MAPPER.readValue(body, Update.class);
+            } catch (JsonProcessingException e) {
+                RECEIVE.failed(e);
+                logger.warn("Aggiornamento non valido ricevuto dal webhook: {}", e.getOriginalMessage());
+                reply(exchange, 400);
+                return;
+            }
+            reply(exchange, sink.test(update) ? 200 : 503);
+        }
+    }
+
+    private static void reply(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    /**
+     * Comunica a Telegram l'URL pubblico del webhook e il segreto da inviare con ogni aggiornamento.
+     * Chiamata diretta alla Bot API, perché {@code SetWebhook} della libreria non prevede il segreto.
+     */
+    public static void registerWebhook(String botToken, String publicUrl, String secret) throws IOException, InterruptedException {
+        String body = MAPPER.writeValueAsString(Map.of("url", publicUrl, "secret_token", secret));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("https://api.telegram.org/bot" + botToken + "/setWebhook"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            JsonNode result = MAPPER.readTree(response.body());
+            if (!result.path("ok").asBoolean()) {
+                throw new IOException("setWebhook rifiutato: " + result.path("description").asText(response.body()));
+            }
+        }
+        logger.info("Webhook registrato presso Telegram: {}", publicUrl);
+    }
+}
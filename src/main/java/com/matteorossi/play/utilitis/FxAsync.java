@@ -0,0 +1,94 @@
+package com.matteorossi.play.utilitis;
+
+import javafx.application.Platform;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.Pane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Classe utilitaria per consegnare al thread JavaFX i risultati delle operazioni asincrone.
+ * Le callback vengono sempre eseguite tramite {@link Platform#runLater(Runnable)}.
+ *
+ * <p>Responsabilità principali:</p>
+ * <ul>
+ *   <li>Esecuzione della callback di successo o di errore sul thread JavaFX</li>
+ *   <li>Stato di caricamento: nodo disabilitato e cursore di attesa fino al completamento</li>
+ *   <li>Indicatore di avanzamento per le schermate che si popolano all'apertura</li>
+ * </ul>
+ *
+ * @see com.matteorossi.play.database.AsyncDAO Operazioni asincrone sul database
+ */
+public class FxAsync {
+
+    private static final Logger logger = LoggerFactory.getLogger(FxAsync.class);
+
+    /**
+     * Esegue {@code onSuccess} o {@code onError} sul thread JavaFX al completamento.
+     * L'errore passato è già privo dei wrapper {@link CompletionException}.
+     */
+    public static <T> void onFx(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(unwrap(error));
+            }
+        }));
+    }
+
+    // Come onFx, con errore registrato e mostrato all'utente
+    public static <T> void onFx(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        onFx(future, onSuccess, error -> {
+            logger.error("Operazione asincrona non riuscita", error);
+            WhindowUtilit.showAlert("Errore", "Operazione non riuscita. Riprova più tardi.", "Errore");
+        });
+    }
+
+    /**
+     * Disabilita il nodo e mostra il cursore di attesa finché l'operazione non termina.
+     * Da chiamare sul thread JavaFX, ad esempio nel gestore di un pulsante.
+     */
+    public static <T> CompletableFuture<T> withLoading(Node node, CompletableFuture<T> future) {
+        node.setDisable(true);
+        Scene scene = node.getScene();
+        if (scene != null) {
+            scene.setCursor(Cursor.WAIT);
+        }
+        return future.whenComplete((result, error) -> Platform.runLater(() -> {
+            node.setDisable(false);
+            if (scene != null) {
+                scene.setCursor(Cursor.DEFAULT);
+            }
+        }));
+    }
+
+    /**
+     * Mostra un indicatore di avanzamento al centro del pannello finché l'operazione non termina.
+     * Pensato per le schermate che caricano i dati in {@code initialize()}.
+     */
+    public static <T> CompletableFuture<T> withSpinner(Pane pane, CompletableFuture<T> future) {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.layoutXProperty().bind(pane.widthProperty().subtract(indicator.widthProperty()).divide(2));
+        indicator.layoutYProperty().bind(pane.heightProperty().subtract(indicator.heightProperty()).divide(2));
+        pane.getChildren().add(indicator);
+        return future.whenComplete((result, error) -> Platform.runLater(() -> pane.getChildren().remove(indicator)));
+    }
+
+    // Rimuove i wrapper aggiunti da CompletableFuture
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException) && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+}
@@ -1,6 +1,5 @@
 package com.matteorossi.play.utilitis;
 
 public class GlobalConfig {
-    public static int userID = -1;
     public static final int SCORE_QUESTIONS = 10;
 }
@@ -0,0 +1,45 @@
+package com.matteorossi.play.utilitis;
+
+import com.matteorossi.play.database.QueryDAO;
+import com.matteorossi.play.models.ProgressSnapshot;
+
+/**
+ * Cache dell'istantanea dei progressi, conservata in ogni {@link UserSession}.
+ * L'istantanea viene calcolata al login e letta dalle schermate di scelta di linguaggio,
+ * tema e difficoltà senza interrogare di nuovo il database.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Calcolo al login tramite {@link #loadFor(UserSession)}</li>
+ *   <li>Invalidazione dopo il salvataggio di una sessione di test</li>
+ *   <li>Ricalcolo automatico alla prima lettura dopo l'invalidazione</li>
+ * </ul>
+ *
+ * @see ProgressSnapshot Istantanea dei progressi
+ * @see QueryDAO#getProgressSnapshot(int) Calcolo dell'istantanea
+ */
+public class ProgressCache {
+
+    // Calcola e memorizza l'istantanea per la sessione
+    public static ProgressSnapshot loadFor(UserSession session) {
+        ProgressSnapshot snapshot = QueryDAO.getProgressSnapshot(session.getUserId());
+        session.setProgress(snapshot);
+        return snapshot;
+    }
+
+    // Istantanea della sessione, ricalcolata se manca
+    public static ProgressSnapshot get(UserSession session) {
+        ProgressSnapshot snapshot = session.getProgress();
+        return snapshot != null ? snapshot : loadFor(session);
+    }
+
+    // Istantanea della sessione dell'interfaccia
+    public static ProgressSnapshot getCurrent() {
+        return get(SessionRegistry.getInstance().current());
+    }
+
+    // Da chiamare dopo ogni scrittura che modifica i progressi dell'utente
+    public static void invalidate(UserSession session) {
+        session.setProgress(null);
+    }
+}
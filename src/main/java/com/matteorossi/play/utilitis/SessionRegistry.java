@@ -0,0 +1,133 @@
+package com.matteorossi.play.utilitis;
+
+import com.matteorossi.play.models.SessionPrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro concorrente delle sessioni aperte, indicizzate per id di sessione.
+ * L'interfaccia JavaFX usa una sola sessione alla volta, quella legata con {@link #bindUi(UserSession)};
+ * altri client (ad esempio il bot Telegram) possono aprirne quante ne servono.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Ricerca per id senza lock, con aggiornamento dell'ultimo accesso</li>
+ *   <li>Chiusura automatica delle sessioni inattive da più di {@code play.session.idleSeconds}
+ *       secondi (default {@value #DEFAULT_IDLE_SECONDS}), controllate da un thread daemon</li>
+ *   <li>La sessione dell'interfaccia non scade: resta aperta finché l'utente non torna al login</li>
+ * </ul>
+ *
+ * @see UserSession Stato della singola sessione
+ */
+public class SessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRegistry.class);
+
+    private static final long DEFAULT_IDLE_SECONDS = 1800;
+    private static final long MAX_SWEEP_SECONDS = 60;
+
+    private static final SessionRegistry INSTANCE = new SessionRegistry(
+            Long.getLong("play.session.idleSeconds", DEFAULT_IDLE_SECONDS));
+
+    private final Map<String, UserSession> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutNanos;
+    private volatile UserSession ui;
+
+    private SessionRegistry(long idleSeconds) {
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        long sweepSeconds = Math.max(1, Math.min(MAX_SWEEP_SECONDS, idleSeconds / 2));
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("session-evictor").daemon().factory());
+        evictor.scheduleWithFixedDelay(this::evictIdle, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    public static SessionRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    // Apre una nuova sessione per il principal autenticato
+    public UserSession open(SessionPrincipal principal) {
+        UserSession session = new UserSession(UUID.randomUUID().toString(), principal);
+        sessions.put(session.getId(), session);
+        logger.debug("Sessione aperta: {}", session);
+        return session;
+    }
+
+    public Optional<UserSession> find(String sessionId) {
+        UserSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.touch();
+        }
+        return Optional.ofNullable(session);
+    }
+
+    public void close(UserSession session) {
+        if (session != null && sessions.remove(session.getId(), session)) {
+            logger.debug("Sessione chiusa: {}", session);
+        }
+    }
+
+    /**
+     * Lega la sessione all'interfaccia JavaFX, chiudendo quella precedente.
+     * Da chiamare sul thread JavaFX dopo il login.
+     */
+    public void bindUi(UserSession session) {
+        UserSession previous = ui;
+        ui = session;
+        if (previous != null && previous != session) {
+            close(previous);
+        }
+    }
+
+    // Chiude la sessione dell'interfaccia, ad esempio al ritorno alla schermata di login
+    public void closeUi() {
+        UserSession previous = ui;
+        ui = null;
+        close(previous);
+    }
+
+    /**
+     * Sessione dell'interfaccia JavaFX.
+     *
+     * @throws IllegalStateException se nessun utente è collegato
+     */
+    public UserSession current() {
+        UserSession session = ui;
+        if (session == null) {
+            throw new IllegalStateException("Nessuna sessione attiva");
+        }
+        session.touch();
+        return session;
+    }
+
+    // Numero di sessioni aperte
+    public int size() {
+        return sessions.size();
+    }
+
+    // Chiude le sessioni inattive da più del timeout, tranne quella dell'interfaccia
+    int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Iterator<UserSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            UserSession session = it.next();
+            if (session != ui && session.idleNanos(now) > idleTimeoutNanos) {
+                it.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.info("Sessioni inattive chiuse: {} (aperte: {})", evicted, sessions.size());
+        }
+        return evicted;
+    }
+}
@@ -0,0 +1,99 @@
+package com.matteorossi.play.utilitis;
+
+import com.matteorossi.play.models.ProgressSnapshot;
+import com.matteorossi.play.models.SessionPrincipal;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stato di una sessione di gioco: chi è collegato, cosa ha scelto per il prossimo test
+ * e l'istantanea dei suoi progressi. Sostituisce l'ID utente globale e la mappa statica di chiavi
+ * non tipizzate, così più sessioni possono convivere nella stessa JVM.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Principal immutabile, fissato al login</li>
+ *   <li>Scelte di linguaggio, tema e difficoltà tipizzate e aggiornate atomicamente</li>
+ *   <li>Istantanea dei progressi per sessione, invalidata dopo ogni salvataggio</li>
+ *   <li>Istante dell'ultimo accesso, usato da {@link SessionRegistry} per chiudere le sessioni inattive</li>
+ * </ul>
+ *
+ * @see SessionRegistry Registro delle sessioni aperte
+ * @see SessionPrincipal Identità della sessione
+ */
+public final class UserSession {
+
+    /**
+     * Scelte fatte prima di iniziare un test; null finché non sono state fatte.
+     *
+     * @param languageId   id del linguaggio
+     * @param themeId      id del tema
+     * @param difficultyId id della difficoltà
+     */
+    public record QuizSelection(Integer languageId, Integer themeId, Integer difficultyId) {
+        static final QuizSelection EMPTY = new QuizSelection(null, null, null);
+    }
+
+    private final String id;
+    private final SessionPrincipal principal;
+    private final AtomicReference<QuizSelection> selection = new AtomicReference<>(QuizSelection.EMPTY);
+    private volatile ProgressSnapshot progress;
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    UserSession(String id, SessionPrincipal principal) {
+        this.id = id;
+        this.principal = principal;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public SessionPrincipal getPrincipal() {
+        return principal;
+    }
+
+    // Id nella tabella users (o admins per un amministratore)
+    public int getUserId() {
+        return principal.id();
+    }
+
+    public QuizSelection getSelection() {
+        return selection.get();
+    }
+
+    public void selectLanguage(int languageId) {
+        selection.updateAndGet(s -> new QuizSelection(languageId, s.themeId(), s.difficultyId()));
+    }
+
+    public void selectTheme(int themeId) {
+        selection.updateAndGet(s -> new QuizSelection(s.languageId(), themeId, s.difficultyId()));
+    }
+
+    public void selectDifficulty(int difficultyId) {
+        selection.updateAndGet(s -> new QuizSelection(s.languageId(), s.themeId(), difficultyId));
+    }
+
+    // Istantanea dei progressi, null se non ancora calcolata o invalidata
+    ProgressSnapshot getProgress() {
+        return progress;
+    }
+
+    void setProgress(ProgressSnapshot progress) {
+        this.progress = progress;
+    }
+
+    // Una scrittura volatile: nessun lock sul percorso di lettura
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    long idleNanos(long now) {
+        return now - lastAccessNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "UserSession[" + id + ", " + principal.username() + ", " + principal.role() + "]";
+    }
+}
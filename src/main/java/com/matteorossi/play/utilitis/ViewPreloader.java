@@ -0,0 +1,65 @@
+package com.matteorossi.play.utilitis;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Viste FXML caricate in anticipo su un thread in background, tipicamente durante l'avvio.
+ * Il caricamento di un FXML non richiede il thread JavaFX finché la vista non entra in una scena.
+ *
+ * <p>Caratteristiche principali:</p>
+ * <ul>
+ *   <li>Ogni vista precaricata viene consegnata una sola volta: un nodo può stare in una sola scena</li>
+ *   <li>Se il precaricamento è ancora in corso si attende quello, senza caricare due volte</li>
+ *   <li>Senza precaricamento, o se fallisce, la vista viene caricata normalmente</li>
+ * </ul>
+ *
+ * @see WhindowUtilit Navigazione tra le viste
+ */
+public class ViewPreloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViewPreloader.class);
+
+    private static final Map<String, CompletableFuture<Parent>> preloaded = new ConcurrentHashMap<>();
+
+    private ViewPreloader() {
+    }
+
+    // Registra il caricamento in corso della vista; un eventuale caricamento precedente non ancora usato viene sostituito
+    public static void offer(String path, CompletableFuture<Parent> view) {
+        preloaded.put(path, view);
+    }
+
+    // Caricamento della vista, utilizzabile da qualsiasi thread
+    public static Parent load(String path) {
+        try {
+            return FXMLLoader.load(ViewPreloader.class.getResource(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Restituisce la vista precaricata, attendendo se necessario, oppure la carica subito.
+     */
+    public static Parent take(String path) throws IOException {
+        CompletableFuture<Parent> view = preloaded.remove(path);
+        if (view != null) {
+            try {
+                return view.join();
+            } catch (CompletionException e) {
+                logger.warn("Precaricamento di {} non riuscito, nuovo caricamento: {}", path, e.getCause().getMessage());
+            }
+        }
+        return FXMLLoader.load(ViewPreloader.class.getResource(path));
+    }
+}
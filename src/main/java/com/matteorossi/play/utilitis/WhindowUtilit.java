@@ -16,7 +16,7 @@ import java.io.IOException;
  *
  * <p>Responsabilità principali:</p>
  * <ul>
- *   <li>Navigazione tra view FXML</li>
+ *   <li>Navigazione tra view FXML, usando quelle precaricate da {@link ViewPreloader} se disponibili</li>
  *   <li>Visualizzazione alert di errore preconfigurati</li>
  *   <li>Centralizzazione della logica di gestione UI</li>
  * </ul>
@@ -29,8 +29,7 @@ public class WhindowUtilit {
 
 
     public void changeWhindow(ActionEvent actionEvent, String fileToLoad, String title) throws IOException {
-        FXMLLoader loader = new FXMLLoader(getClass().getResource(fileToLoad));
-        Parent root = loader.load();
+        Parent root = ViewPreloader.take(fileToLoad);
 
         Stage stage = (Stage) ((Node) actionEvent.getSource()).getScene().getWindow();
         stage.setTitle(title);
@@ -40,7 +39,7 @@ public class WhindowUtilit {
     }
 
     public void changeWhindow(Stage stage, String path, String title) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource(path));
+        Parent root = ViewPreloader.take(path);
         stage.setTitle(title);
         stage.setScene(new Scene(root));
         stage.show();
@@ -11,16 +11,23 @@ module com.matteorossi.play {
     requires eu.hansolo.tilesfx;
     requires com.almasb.fxgl.all;
     requires java.sql;
+    requires java.management;
     requires jbcrypt;
     requires java.desktop;
     requires telegrambots.meta;
     requires telegrambots;
     requires org.slf4j;
     requires jersey.common;
+    requires com.fasterxml.jackson.databind;
+    requires jdk.httpserver;
+    requires java.net.http;
 
     opens com.matteorossi.play to javafx.fxml;
     exports com.matteorossi.play;
     exports com.matteorossi.play.controllers;
+    // Interfacce MXBean delle metriche del database e del bot
+    exports com.matteorossi.play.database to java.management;
+    exports com.matteorossi.play.telegram to java.management;
     opens com.matteorossi.play.controllers to javafx.fxml;
     opens com.matteorossi.play.models to javafx.base;
 }
\ No newline at end of file
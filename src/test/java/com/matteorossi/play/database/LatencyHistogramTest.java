@@ -0,0 +1,75 @@
+package com.matteorossi.play.database;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesHaveExactBuckets() {
+        for (long value = 0; value < 8; value++) {
+            assertEquals(value, LatencyHistogram.index(value));
+            assertEquals(value, LatencyHistogram.upperBound((int) value));
+        }
+    }
+
+    @Test
+    void everyValueFallsInsideItsBucket() {
+        long[] values = {8, 9, 15, 16, 17, 31, 32, 1_000, 1_023, 1_024, 999_999, 1L << 40, (1L << 40) - 1, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(value <= LatencyHistogram.upperBound(index), "limite superiore per " + value);
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.upperBound(index - 1), "limite dell'intervallo precedente per " + value);
+            }
+        }
+    }
+
+    @Test
+    void bucketsAreContiguousAndWithinRelativeError() {
+        long previous = LatencyHistogram.upperBound(7);
+        for (int index = 8; index < 8 * 61; index++) {
+            long bound = LatencyHistogram.upperBound(index);
+            long lower = previous + 1;
+            assertEquals(index, LatencyHistogram.index(lower), "primo valore dell'intervallo " + index);
+            assertEquals(index, LatencyHistogram.index(bound), "ultimo valore dell'intervallo " + index);
+            assertTrue((double) (bound - lower) / lower <= 0.125, "errore relativo dell'intervallo " + index);
+            previous = bound;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    void percentilesUseUpperBoundCappedAtMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.5));
+
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value * 1_000);
+        }
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(100_000, histogram.percentile(1.0));
+
+        long p50 = histogram.percentile(0.5);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 * 1.125, "p50 " + p50);
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p99 >= 99_000 && p99 <= 100_000, "p99 " + p99);
+        // Il primo campione è sempre coperto dal percentile più basso
+        assertTrue(histogram.percentile(0.0) >= 1_000);
+    }
+
+    @Test
+    void negativeSamplesCountAsZeroAndResetClears() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.getMax());
+
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.getMax());
+    }
+}
@@ -0,0 +1,100 @@
+package com.matteorossi.play.database;
+
+import com.matteorossi.play.models.PlayerRankingModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardTest {
+
+    // Stesso ordinamento della classifica: punteggio decrescente, poi id utente crescente
+    private static final Comparator<Leaderboard.Entry> ORDER = Comparator
+            .comparingInt(Leaderboard.Entry::totalScore).reversed()
+            .thenComparingInt(Leaderboard.Entry::userId);
+
+    @Test
+    void emptyLeaderboard() {
+        Leaderboard leaderboard = new Leaderboard(List.of());
+        assertEquals(0, leaderboard.size());
+        assertEquals(-1, leaderboard.getRank(1));
+        assertTrue(leaderboard.getTop(10).isEmpty());
+        assertTrue(leaderboard.getPage(3, 10).isEmpty());
+    }
+
+    @Test
+    void tiesAreBrokenByUserId() {
+        Leaderboard leaderboard = new Leaderboard(List.of(
+                new Leaderboard.Entry(3, "c", 10),
+                new Leaderboard.Entry(1, "a", 10),
+                new Leaderboard.Entry(2, "b", 20)));
+
+        assertEquals(1, leaderboard.getRank(2));
+        assertEquals(2, leaderboard.getRank(1));
+        assertEquals(3, leaderboard.getRank(3));
+        List<PlayerRankingModel> top = leaderboard.getTop(3);
+        assertEquals(List.of("b", "a", "c"), top.stream().map(PlayerRankingModel::getUsername).toList());
+        assertEquals(List.of(1, 2, 3), top.stream().map(PlayerRankingModel::getPosition).toList());
+    }
+
+    @Test
+    void randomUpdatesMatchSortedListOracle() {
+        Random random = new Random(42);
+        Map<Integer, Leaderboard.Entry> oracle = new HashMap<>();
+        List<Leaderboard.Entry> initial = new ArrayList<>();
+        for (int userId = 1; userId <= 200; userId++) {
+            Leaderboard.Entry entry = new Leaderboard.Entry(userId, "u" + userId, random.nextInt(50));
+            initial.add(entry);
+            oracle.put(userId, entry);
+        }
+        Leaderboard leaderboard = new Leaderboard(initial);
+
+        for (int step = 0; step < 2_000; step++) {
+            int userId = 1 + random.nextInt(300);
+            if (random.nextInt(5) == 0) {
+                leaderboard.apply(userId, null);
+                oracle.remove(userId);
+            } else {
+                Leaderboard.Entry entry = new Leaderboard.Entry(userId, "u" + userId, random.nextInt(50));
+                leaderboard.apply(userId, entry);
+                oracle.put(userId, entry);
+            }
+            if (step % 100 == 0) {
+                assertMatches(oracle, leaderboard);
+            }
+        }
+        assertMatches(oracle, leaderboard);
+    }
+
+    private static void assertMatches(Map<Integer, Leaderboard.Entry> oracle, Leaderboard leaderboard) {
+        List<Leaderboard.Entry> sorted = new ArrayList<>(oracle.values());
+        sorted.sort(ORDER);
+        assertEquals(sorted.size(), leaderboard.size());
+
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(i + 1, leaderboard.getRank(sorted.get(i).userId()), "posizione di " + sorted.get(i));
+        }
+        assertEquals(-1, leaderboard.getRank(10_000));
+
+        for (int pageSize : new int[]{1, 7, 25, 1_000}) {
+            for (int page = 0; page * pageSize <= sorted.size(); page++) {
+                List<PlayerRankingModel> actual = leaderboard.getPage(page, pageSize);
+                int from = page * pageSize;
+                List<Leaderboard.Entry> expected = sorted.subList(from, Math.min(from + pageSize, sorted.size()));
+                assertEquals(expected.size(), actual.size(), "dimensione della pagina " + page);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(from + i + 1, actual.get(i).getPosition());
+                    assertEquals(expected.get(i).username(), actual.get(i).getUsername());
+                    assertEquals(expected.get(i).totalScore(), actual.get(i).getTotalScore());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.matteorossi.play.database;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuestionImporterTest {
+
+    private final QuestionImporter importer = new QuestionImporter();
+    // Parametri impostati da bind, per indice
+    private final Map<Integer, Object> params = new HashMap<>();
+    private PreparedStatement stmt;
+
+    @BeforeEach
+    void setUp() {
+        importer.loadLookups(new ReferenceDataCache.Snapshot(
+                List.of(new ReferenceDataCache.NamedRow(1, "Java"), new ReferenceDataCache.NamedRow(2, "Python")),
+                List.of(new ReferenceDataCache.NamedRow(10, "Cicli")),
+                List.of(new ReferenceDataCache.DifficultyRow(100, "Facile", 1))));
+        // Statement finto che registra solo i parametri
+        stmt = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length == 2) {
+                        params.put((Integer) args[0], args[1]);
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    void normalizeCorrectOptionAcceptsCommonSpellings() {
+        assertEquals("Corretta A", QuestionImporter.normalizeCorrectOption("a"));
+        assertEquals("Corretta B", QuestionImporter.normalizeCorrectOption(" B "));
+        assertEquals("Corretta C", QuestionImporter.normalizeCorrectOption("Corretta C"));
+        assertEquals("Corretta D", QuestionImporter.normalizeCorrectOption("corretta   d"));
+        assertEquals("Corretta D", QuestionImporter.normalizeCorrectOption("CORRETTAD"));
+    }
+
+    @Test
+    void normalizeCorrectOptionRejectsEverythingElse() {
+        assertNull(QuestionImporter.normalizeCorrectOption(null));
+        assertNull(QuestionImporter.normalizeCorrectOption(""));
+        assertNull(QuestionImporter.normalizeCorrectOption("e"));
+        assertNull(QuestionImporter.normalizeCorrectOption("ab"));
+        assertNull(QuestionImporter.normalizeCorrectOption("corretta"));
+        assertNull(QuestionImporter.normalizeCorrectOption("1"));
+    }
+
+    @Test
+    void validMultipleChoiceRecordIsBound() throws SQLException {
+        assertNull(importer.bind(stmt, multipleChoice()));
+
+        assertEquals(1, params.get(1));
+        assertEquals(10, params.get(2));
+        assertEquals(100, params.get(3));
+        assertEquals("multiple_choice", params.get(4));
+        assertEquals("Quale ciclo?", params.get(5));
+        assertEquals("for", params.get(6));
+        assertEquals("Corretta B", params.get(10));
+        assertNull(params.get(11));
+    }
+
+    @Test
+    void validCodeRecordIsBound() throws SQLException {
+        Map<String, String> record = new HashMap<>(Map.of(
+                "language", "python", "theme", "cicli", "difficulty", "facile",
+                "question_type", "Code", "question", "Stampa 1", "code_solution", " print(1) "));
+
+        assertNull(importer.bind(stmt, record));
+        assertEquals(2, params.get(1));
+        assertEquals("code", params.get(4));
+        assertEquals("print(1)", params.get(11));
+        assertNull(params.get(6));
+        assertNull(params.get(10));
+    }
+
+    @Test
+    void invalidRecordsAreRejectedWithReason() throws SQLException {
+        assertRejected("linguaggio sconosciuto", with(multipleChoice(), "language", "Rust"));
+        assertRejected("tema sconosciuto", with(multipleChoice(), "theme", null));
+        assertRejected("difficoltà sconosciuta", with(multipleChoice(), "difficulty", "Difficile"));
+        assertRejected("testo della domanda mancante", with(multipleChoice(), "question", "   "));
+        assertRejected("tutte le opzioni A-D sono obbligatorie", with(multipleChoice(), "option_c", ""));
+        assertRejected("risposta corretta non valida", with(multipleChoice(), "correct_option", "E"));
+        assertRejected("soluzione mancante", with(with(multipleChoice(), "question_type", "code"), "code_solution", null));
+        assertRejected("tipo di domanda non valido", with(multipleChoice(), "question_type", "vero_falso"));
+        assertTrue(params.isEmpty(), "nessun parametro impostato per i record scartati");
+    }
+
+    private void assertRejected(String reason, Map<String, String> record) throws SQLException {
+        String error = importer.bind(stmt, record);
+        assertTrue(error != null && error.startsWith(reason), "atteso \"" + reason + "\", ottenuto " + error);
+    }
+
+    private static Map<String, String> multipleChoice() {
+        Map<String, String> record = new HashMap<>();
+        record.put("language", " JAVA ");
+        record.put("theme", "Cicli");
+        record.put("difficulty", "facile");
+        record.put("question_type", "multiple_choice");
+        record.put("question", " Quale ciclo? ");
+        record.put("option_a", "for");
+        record.put("option_b", "while");
+        record.put("option_c", "do");
+        record.put("option_d", "goto");
+        record.put("correct_option", "b");
+        return record;
+    }
+
+    private static Map<String, String> with(Map<String, String> record, String key, String value) {
+        Map<String, String> copy = new HashMap<>(record);
+        copy.put(key, value);
+        return copy;
+    }
+}
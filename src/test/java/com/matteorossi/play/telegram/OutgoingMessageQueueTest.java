@@ -0,0 +1,112 @@
+package com.matteorossi.play.telegram;
+
+import com.matteorossi.play.telegram.OutgoingMessageQueue.OutgoingMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutgoingMessageQueueTest {
+
+    @Test
+    void messagesOfTheSameChatAreSentInOrderOneAtATime() throws Exception {
+        Map<Long, List<String>> received = new ConcurrentHashMap<>();
+        Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+        List<String> overlaps = Collections.synchronizedList(new ArrayList<>());
+        OutgoingMessageQueue queue = new OutgoingMessageQueue(message -> {
+            if (!inFlight.add(message.chatId())) {
+                overlaps.add(message.text());
+            }
+            received.computeIfAbsent(message.chatId(), id -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(message.text());
+            inFlight.remove(message.chatId());
+        }, 10_000, 10_000, 1_000);
+
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            for (long chatId = 1; chatId <= 3; chatId++) {
+                deliveries.add(queue.send(new OutgoingMessage(chatId, "messaggio " + i, false)));
+            }
+        }
+        CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add("messaggio " + i);
+        }
+        for (long chatId = 1; chatId <= 3; chatId++) {
+            assertEquals(expected, received.get(chatId), "ordine della chat " + chatId);
+        }
+        assertTrue(overlaps.isEmpty(), "invii sovrapposti nella stessa chat: " + overlaps);
+        assertEquals(90, queue.getSent());
+        assertEquals(0, queue.getPending());
+    }
+
+    @Test
+    void identicalMessageStillQueuedIsCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        OutgoingMessageQueue queue = new OutgoingMessageQueue(message -> {
+            awaitQuietly(release);
+            received.add(message.chatId() + ":" + message.text());
+        }, 10_000, 10_000, 1_000);
+
+        CompletableFuture<Void> first = queue.send(new OutgoingMessage(1, "a", false));
+        CompletableFuture<Void> second = queue.send(new OutgoingMessage(1, "b", false));
+        CompletableFuture<Void> duplicate = queue.send(new OutgoingMessage(1, "b", false));
+        // Stesso testo ma chat diversa: non è un duplicato
+        CompletableFuture<Void> otherChat = queue.send(new OutgoingMessage(2, "b", false));
+
+        assertSame(second, duplicate);
+        assertEquals(1, queue.getCoalesced());
+        release.countDown();
+        CompletableFuture.allOf(first, second, otherChat).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("1:a", "1:b"), received.stream().filter(text -> text.startsWith("1:")).toList());
+        assertEquals(List.of("2:b"), received.stream().filter(text -> text.startsWith("2:")).toList());
+        assertEquals(3, queue.getSent());
+    }
+
+    @Test
+    void fullQueueRejectsNewMessages() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        OutgoingMessageQueue queue = new OutgoingMessageQueue(message -> awaitQuietly(release), 10_000, 10_000, 2);
+
+        CompletableFuture<Void> first = queue.send(new OutgoingMessage(1, "a", false));
+        CompletableFuture<Void> second = queue.send(new OutgoingMessage(1, "b", false));
+        CompletableFuture<Void> rejected = queue.send(new OutgoingMessage(1, "c", false));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertFalse(queue.enqueue(new OutgoingMessage(2, "d", false)));
+        assertEquals(2, queue.getRejected());
+
+        release.countDown();
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+        assertTrue(queue.enqueue(new OutgoingMessage(2, "d", false)));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.matteorossi.play.telegram;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void startsFullUpToBurst() {
+        TokenBucket bucket = new TokenBucket(1, 3, 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.nanosUntilToken(0));
+            bucket.take();
+        }
+        assertNanos(SECOND, bucket.nanosUntilToken(0));
+    }
+
+    @Test
+    void waitShrinksAsTokensRefill() {
+        TokenBucket bucket = new TokenBucket(2, 1, 0);
+        bucket.take();
+        assertNanos(SECOND / 2, bucket.nanosUntilToken(0));
+        assertNanos(SECOND / 4, bucket.nanosUntilToken(SECOND / 4));
+        assertEquals(0, bucket.nanosUntilToken(SECOND / 2));
+    }
+
+    @Test
+    void refillIsCappedAtBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+        bucket.take();
+        bucket.take();
+        // Un'ora di inattività non accumula più di burst gettoni
+        assertEquals(0, bucket.nanosUntilToken(3_600 * SECOND));
+        bucket.take();
+        assertEquals(0, bucket.nanosUntilToken(3_600 * SECOND));
+        bucket.take();
+        assertNanos(SECOND / 10, bucket.nanosUntilToken(3_600 * SECOND));
+    }
+
+    @Test
+    void refillNanosIsTimeToFillEmptyBucket() {
+        assertNanos(SECOND, new TokenBucket(1, 1, 0).refillNanos());
+        assertNanos(SECOND / 10, new TokenBucket(30, 3, 0).refillNanos());
+    }
+
+    // Le attese sono arrotondate per eccesso: tolleranza di un nanosecondo
+    private static void assertNanos(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + 1, "atteso " + expected + " ns, ottenuto " + actual);
+    }
+}